@@ -0,0 +1,71 @@
+package com.plantdisease.classification.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Resolve o parâmetro "dataset" dos benchmarks para um arquivo CSV.
+ *
+ * Bases do repositório: iris, folha, caule, fruto (procuradas em -Dbench.data,
+ * padrão ../data). Bases sintéticas: "sintetico-LINHASxSINTOMAS", ex.
+ * sintetico-10000x32, geradas uma vez por JVM num diretório temporário.
+ */
+public final class BenchmarkData {
+
+    private static final String PREFIX = "Diagnostico Murfa de Fitoftora - ";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param dataset nome da base.
+     * @return arquivo CSV correspondente.
+     * @throws IOException se a base não existir ou não puder ser gerada.
+     */
+    public static synchronized File resolve(String dataset) throws IOException {
+        File dataDir = new File(System.getProperty("bench.data", "../data"));
+        File file;
+        switch (dataset) {
+            case "iris":
+                file = new File(dataDir, "Iris.csv");
+                break;
+            case "folha":
+                file = new File(dataDir, "Dataset/" + PREFIX + "Folha.csv");
+                break;
+            case "caule":
+                file = new File(dataDir, "Dataset/" + PREFIX + "Caule.csv");
+                break;
+            case "fruto":
+                file = new File(dataDir, "Dataset/" + PREFIX + "Fruto.csv");
+                break;
+            default:
+                return synthetic(dataset);
+        }
+        if (!file.isFile()) {
+            throw new IOException("Base não encontrada: " + file.getAbsolutePath()
+                    + " (ajuste -Dbench.data para o diretório data do projeto).");
+        }
+        return file;
+    }
+
+    private static File synthetic(String dataset) throws IOException {
+        if (!dataset.startsWith("sintetico-")) {
+            throw new IOException("Base desconhecida: " + dataset + ".");
+        }
+        String[] size = dataset.substring("sintetico-".length()).split("x");
+        if (size.length != 2) {
+            throw new IOException("Use sintetico-LINHASxSINTOMAS, ex.: sintetico-10000x32.");
+        }
+        int rows = Integer.parseInt(size[0]);
+        int symptoms = Integer.parseInt(size[1]);
+        File dir = new File(System.getProperty("java.io.tmpdir"), "plantdisease-bench");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Não foi possível criar " + dir + ".");
+        }
+        File file = new File(dir, dataset + ".csv");
+        if (!file.isFile()) {
+            SyntheticSymptoms.write(file, rows, symptoms, 42);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,101 @@
+package com.plantdisease.classification.benchmarks;
+
+import com.plantdisease.classification.PlantDiseaseClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classificação de um modelo já treinado: uma instância por chamada (classifyInstance)
+ * e em lote a partir de valores brutos (classifyBatch). Resultados em amostras por segundo.
+ * Para as RBF (opções 6 e 7) o lote usa o CompiledRBFModel; o setup confere que as
+ * distribuições coincidem com as do RBFClassifier antes de medir.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassifyBenchmarks {
+
+    static final int BATCH = 1024;
+    static final double TOLERANCE = 1e-9;
+
+    @Param({"1", "2", "3", "4", "5", "6", "7"})
+    public int modelOption;
+
+    @Param({"caule", "sintetico-10000x32"})
+    public String dataset;
+
+    private final PlantDiseaseClassifier classifier = new PlantDiseaseClassifier();
+    private Instance[] instances;
+    private double[][] rawRows;
+    private int[] classes;
+    private double[][] dist;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        String path = BenchmarkData.resolve(dataset).getPath();
+        classifier.loadData(path);
+        classifier.setClassifier(modelOption, TrainBenchmarks.defaultParams(modelOption));
+        classifier.trainTestSplit(70);
+        classifier.trainClassifier();
+
+        Instances data = classifier.getData();
+        instances = new Instance[data.numInstances()];
+        for (int i = 0; i < instances.length; i++) {
+            instances[i] = data.instance(i);
+        }
+        // Lote de linhas brutas (antes da normalização), repetindo a base até BATCH linhas.
+        Instances raw = PlantDiseaseClassifier.readData(path);
+        rawRows = new double[BATCH][];
+        for (int i = 0; i < BATCH; i++) {
+            rawRows[i] = raw.instance(i % raw.numInstances()).toDoubleArray();
+        }
+        classes = new int[BATCH];
+        dist = new double[BATCH][data.numClasses()];
+        checkBatchMatchesClassifier();
+    }
+
+    private void checkBatchMatchesClassifier() throws Exception {
+        classifier.classifyBatch(rawRows, classes, dist);
+        for (int i = 0; i < BATCH; i++) {
+            double[] expected = classifier.classifyRaw(rawRows[i]);
+            for (int c = 0; c < expected.length; c++) {
+                if (Math.abs(expected[c] - dist[i][c]) > TOLERANCE) {
+                    throw new IllegalStateException("classifyBatch diverge de distributionForInstance na linha "
+                            + i + ", classe " + c + ": " + dist[i][c] + " != " + expected[c]);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public double classifyInstance() throws Exception {
+        Instance instance = instances[next];
+        next = next + 1 == instances.length ? 0 : next + 1;
+        return classifier.classifyInstance(instance);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] classifyBatch() throws Exception {
+        classifier.classifyBatch(rawRows, classes, dist);
+        return classes;
+    }
+}
@@ -0,0 +1,54 @@
+package com.plantdisease.classification.benchmarks;
+
+import com.plantdisease.classification.PlantDiseaseClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.classifiers.Evaluation;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validação cruzada completa (evaluateModelCV) por opção de modelo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class CrossValidationBenchmarks {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7"})
+    public int modelOption;
+
+    @Param({"iris", "caule"})
+    public String dataset;
+
+    @Param({"10"})
+    public int folds;
+
+    private final PlantDiseaseClassifier classifier = new PlantDiseaseClassifier();
+
+    @Setup
+    public void setup() throws Exception {
+        // Mede o treino dos folds, não a leitura de resultados gravados em execuções anteriores.
+        classifier.setResultCache(null);
+        classifier.loadData(BenchmarkData.resolve(dataset).getPath());
+        classifier.setClassifier(modelOption, TrainBenchmarks.defaultParams(modelOption));
+    }
+
+    @Benchmark
+    public Evaluation crossValidate() throws Exception {
+        classifier.evaluateModelCV(folds);
+        return classifier.getEvaluation();
+    }
+}
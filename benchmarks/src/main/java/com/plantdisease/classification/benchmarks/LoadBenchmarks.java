@@ -0,0 +1,93 @@
+package com.plantdisease.classification.benchmarks;
+
+import com.plantdisease.classification.ColumnarCsvReader;
+import com.plantdisease.classification.ColumnarDataset;
+import com.plantdisease.classification.DatasetCache;
+import com.plantdisease.classification.PlantDiseaseClassifier;
+import com.plantdisease.classification.PreparedDataset;
+import com.plantdisease.classification.PreprocessingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instances;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura do CSV e pré-processamento (Normalize + ClassBalancer).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmarks {
+
+    @Param({"iris", "caule", "folha", "fruto", "sintetico-10000x32", "sintetico-100000x32"})
+    public String dataset;
+
+    private File file;
+    private Instances raw;
+    private final PlantDiseaseClassifier classifier = new PlantDiseaseClassifier();
+
+    @Setup
+    public void setup() throws Exception {
+        file = BenchmarkData.resolve(dataset);
+        raw = PlantDiseaseClassifier.readData(file.getPath());
+    }
+
+    /** Só o parser em colunas primitivas. */
+    @Benchmark
+    public ColumnarDataset csvColumnar() throws Exception {
+        return ColumnarCsvReader.read(file);
+    }
+
+    /** Parser + materialização como Instances. */
+    @Benchmark
+    public Instances csvToInstances() throws Exception {
+        return PlantDiseaseClassifier.readData(file.getPath());
+    }
+
+    /** Normalize + ClassBalancer sobre a base já lida (FusedPreprocessor). */
+    @Benchmark
+    public PreparedDataset normalizeAndBalance() throws Exception {
+        return PlantDiseaseClassifier.preprocess(raw);
+    }
+
+    /** Normalize + ClassBalancer com dois Filter.useFilter (referência). */
+    @Benchmark
+    public PreparedDataset normalizeAndBalanceFilters() throws Exception {
+        return PlantDiseaseClassifier.preprocessWithFilters(raw);
+    }
+
+    /** Parser em colunas + pré-processamento fundido, sem a base bruta em Instances. */
+    @Benchmark
+    public PreparedDataset csvColumnarPrepared() throws Exception {
+        return PlantDiseaseClassifier.loadPrepared(file.getPath(), null);
+    }
+
+    /** loadData completo, sem cache. */
+    @Benchmark
+    public PreprocessingModel loadDataUncached() throws Exception {
+        DatasetCache.shared().clear();
+        classifier.loadData(file.getPath());
+        return classifier.getPreprocessing();
+    }
+
+    /** loadData com a base já residente no DatasetCache. */
+    @Benchmark
+    public PreprocessingModel loadDataCached() throws Exception {
+        classifier.loadData(file.getPath());
+        return classifier.getPreprocessing();
+    }
+}
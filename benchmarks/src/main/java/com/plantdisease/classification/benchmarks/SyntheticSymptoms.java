@@ -0,0 +1,59 @@
+package com.plantdisease.classification.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Gera tabelas de sintomas 0/1 no formato das bases Folha/Caule/Fruto, em escala maior.
+ *
+ * Cada doença tem um perfil de probabilidade por sintoma; a classe de cada linha é
+ * sorteada e os sintomas seguem o perfil, de modo que os modelos têm o que aprender.
+ * A mesma semente gera sempre o mesmo arquivo.
+ */
+public final class SyntheticSymptoms {
+
+    private SyntheticSymptoms() {
+    }
+
+    /**
+     * Escreve o CSV (cabeçalho + linhas), com a classe binária na última coluna.
+     *
+     * @param file destino.
+     * @param rows número de linhas.
+     * @param symptoms número de colunas de sintoma.
+     * @param seed semente.
+     * @throws IOException se a gravação falhar.
+     */
+    public static void write(File file, int rows, int symptoms, long seed) throws IOException {
+        Random random = new Random(seed);
+        double[][] profile = new double[2][symptoms];
+        for (int c = 0; c < 2; c++) {
+            for (int j = 0; j < symptoms; j++) {
+                profile[c][j] = 0.1 + 0.8 * random.nextDouble();
+            }
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8), 1 << 16)) {
+            for (int j = 0; j < symptoms; j++) {
+                out.write("SINTOMA " + (j + 1));
+                out.write(',');
+            }
+            out.write("DOENTE\n");
+            for (int i = 0; i < rows; i++) {
+                int c = random.nextDouble() < 0.35 ? 1 : 0;
+                for (int j = 0; j < symptoms; j++) {
+                    out.write(random.nextDouble() < profile[c][j] ? '1' : '0');
+                    out.write(',');
+                }
+                out.write(c == 1 ? '1' : '0');
+                out.write('\n');
+            }
+        }
+    }
+}
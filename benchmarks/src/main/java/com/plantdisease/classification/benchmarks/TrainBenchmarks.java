@@ -0,0 +1,83 @@
+package com.plantdisease.classification.benchmarks;
+
+import com.plantdisease.classification.PlantDiseaseClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Treino (buildClassifier) de cada opção de setClassifier, com os parâmetros padrão da interface.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrainBenchmarks {
+
+    @Param({"1", "2", "3", "4", "5", "6", "7"})
+    public int modelOption;
+
+    @Param({"iris", "caule", "sintetico-10000x32"})
+    public String dataset;
+
+    private Instances train;
+    private double[] params;
+
+    @Setup
+    public void setup() throws Exception {
+        PlantDiseaseClassifier classifier = new PlantDiseaseClassifier();
+        classifier.loadData(BenchmarkData.resolve(dataset).getPath());
+        Instances shuffled = new Instances(classifier.getData());
+        shuffled.randomize(new Random(1));
+        train = new Instances(shuffled, 0, (int) Math.round(shuffled.numInstances() * 0.7));
+        params = defaultParams(modelOption);
+    }
+
+    @Benchmark
+    public Classifier train() throws Exception {
+        Classifier model = PlantDiseaseClassifier.createClassifier(modelOption, params);
+        model.buildClassifier(train);
+        return model;
+    }
+
+    /**
+     * Valores iniciais dos campos de tuning da FrontUI.
+     *
+     * @param modelOption opção do modelo (1 a 7).
+     * @return parâmetros de tuning.
+     */
+    static double[] defaultParams(int modelOption) {
+        switch (modelOption) {
+            case 1:
+                return new double[]{1.0, 1.0};
+            case 2:
+                return new double[]{0.25, 2};
+            case 3:
+                return new double[]{10};
+            case 4:
+                return new double[]{100};
+            case 5:
+                return new double[]{1};
+            case 6:
+            case 7:
+                return new double[]{10, 42, 1};
+            default:
+                throw new IllegalArgumentException("Opção de modelo inválida. Use 1 a 7.");
+        }
+    }
+}
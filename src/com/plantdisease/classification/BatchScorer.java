@@ -0,0 +1,207 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.RBFClassifier;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.List;
+
+/**
+ * Classificação em lote a partir de valores brutos.
+ *
+ * Aplica a normalização do treino (PreprocessingModel) e classifica linha a linha,
+ * gravando classes e distribuições em arrays fornecidos pelo chamador. Uma única
+ * instância é reaproveitada para todas as linhas, de modo que o caminho de
+ * pontuação não cria objetos por linha; o que o classificador do Weka aloca
+ * internamente em distributionForInstance fica fora desse controle. Um RBFClassifier
+ * suportado é classificado pelo CompiledRBFModel, sem passar pelos filtros do Weka.
+ *
+ * Não é thread-safe: use um BatchScorer por thread.
+ */
+public class BatchScorer {
+
+    private final Classifier classifier;
+    private final PreprocessingModel preprocessing;
+    private final Instances header;
+    private final Instances modelHeader;
+    private final ReusableInstance instance;
+    private final double[] rawRow;
+    private final int numClasses;
+    private final CompiledRBFModel compiled;
+    private final double[] compiledWorkspace;
+    private final double[] compiledDist;
+
+    /**
+     * @param classifier classificador treinado.
+     * @param preprocessing pré-processamento usado no treino.
+     */
+    public BatchScorer(Classifier classifier, PreprocessingModel preprocessing) {
+        this.classifier = classifier;
+        this.preprocessing = preprocessing;
+        this.header = preprocessing.getHeader();
+        this.modelHeader = preprocessing.getModelHeader();
+        this.instance = new ReusableInstance(modelHeader.numAttributes());
+        this.instance.setDataset(modelHeader);
+        this.rawRow = new double[header.numAttributes()];
+        this.numClasses = header.numClasses();
+        this.compiled = classifier instanceof RBFClassifier && CompiledRBFModel.isSupported((RBFClassifier) classifier)
+                ? CompiledRBFModel.compile((RBFClassifier) classifier, modelHeader) : null;
+        this.compiledWorkspace = compiled == null ? null : compiled.newWorkspace();
+        this.compiledDist = compiled == null ? null : new double[numClasses];
+    }
+
+    boolean uses(Classifier classifier, PreprocessingModel preprocessing) {
+        return this.classifier == classifier && this.preprocessing == preprocessing;
+    }
+
+    /**
+     * @return número de classes (tamanho de cada distribuição).
+     */
+    public int numClasses() {
+        return numClasses;
+    }
+
+    /**
+     * Classifica linhas de valores brutos, um valor por atributo na ordem do cabeçalho
+     * (a posição da classe é ignorada e pode ser NaN).
+     *
+     * @param rows linhas a classificar.
+     * @param outClasses recebe o índice da classe prevista (-1 se indefinida); pode ser null.
+     * @param outDist recebe as distribuições (cada linha com numClasses() posições); pode ser null.
+     * @throws Exception se a classificação falhar.
+     */
+    public void score(double[][] rows, int[] outClasses, double[][] outDist) throws Exception {
+        score(rows, 0, rows.length, outClasses, outDist);
+    }
+
+    /**
+     * Classifica rows[from, from + count). Os resultados vão para as posições 0..count-1.
+     *
+     * @param rows linhas a classificar.
+     * @param from primeira linha.
+     * @param count número de linhas.
+     * @param outClasses classes previstas (pode ser null).
+     * @param outDist distribuições (pode ser null).
+     * @throws Exception se a classificação falhar.
+     */
+    public void score(double[][] rows, int from, int count, int[] outClasses, double[][] outDist)
+            throws Exception {
+        for (int i = 0; i < count; i++) {
+            double[] row = rows[from + i];
+            if (row.length != rawRow.length) {
+                throw new IllegalArgumentException("Linha " + (from + i) + ": esperados " + rawRow.length
+                        + " valores, recebidos " + row.length + ".");
+            }
+            scoreLoaded(row, i, outClasses, outDist);
+        }
+    }
+
+    /**
+     * Classifica um bloco em colunas (ex.: arquivo lido pelo ColumnarCsvReader). As colunas
+     * são associadas aos atributos pelo nome; rótulos nominais são convertidos para os
+     * índices do cabeçalho do modelo. A coluna da classe é opcional.
+     *
+     * @param block bloco em colunas.
+     * @param outClasses classes previstas (pode ser null).
+     * @param outDist distribuições (pode ser null).
+     * @throws Exception se faltar algum atributo ou a classificação falhar.
+     */
+    public void score(ColumnarDataset block, int[] outClasses, double[][] outDist) throws Exception {
+        int numAttributes = header.numAttributes();
+        double[][] columns = new double[numAttributes][];
+        double[][] labelMaps = new double[numAttributes][];
+        for (int j = 0; j < numAttributes; j++) {
+            int column = findColumn(block, header.attribute(j).name());
+            if (column < 0) {
+                if (j == header.classIndex()) {
+                    continue;
+                }
+                throw new IllegalArgumentException("Coluna ausente no bloco: " + header.attribute(j).name() + ".");
+            }
+            columns[j] = block.column(column);
+            if (block.isNominal(column)) {
+                labelMaps[j] = labelMap(block.labels(column), j);
+            }
+        }
+        for (int i = 0; i < block.numRows(); i++) {
+            for (int j = 0; j < numAttributes; j++) {
+                double value = columns[j] == null ? Double.NaN : columns[j][i];
+                if (labelMaps[j] != null && !Double.isNaN(value)) {
+                    value = labelMaps[j][(int) value];
+                }
+                rawRow[j] = value;
+            }
+            scoreLoaded(rawRow, i, outClasses, outDist);
+        }
+    }
+
+    private void scoreLoaded(double[] raw, int out, int[] outClasses, double[][] outDist) throws Exception {
+        double[] values = instance.values();
+        preprocessing.transform(raw, values);
+        int classIndex = modelHeader.classIndex();
+        if (classIndex >= 0) {
+            values[classIndex] = Double.NaN;
+        }
+        double[] dist;
+        if (compiled != null) {
+            compiled.score(values, compiledDist, compiledWorkspace);
+            dist = compiledDist;
+        } else {
+            dist = classifier.distributionForInstance(instance);
+        }
+        if (outDist != null) {
+            System.arraycopy(dist, 0, outDist[out], 0, dist.length);
+        }
+        if (outClasses != null) {
+            outClasses[out] = argMax(dist);
+        }
+    }
+
+    // Como Classifier.classifyInstance: maior probabilidade; tudo zero = classe indefinida.
+    static int argMax(double[] dist) {
+        int best = 0;
+        for (int c = 1; c < dist.length; c++) {
+            if (dist[c] > dist[best]) {
+                best = c;
+            }
+        }
+        return dist.length == 0 || dist[best] <= 0 ? -1 : best;
+    }
+
+    private static int findColumn(ColumnarDataset block, String name) {
+        for (int c = 0; c < block.numColumns(); c++) {
+            if (block.name(c).equals(name)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    // Código do rótulo no bloco -> índice no atributo do modelo (NaN se o rótulo não existir no treino).
+    private double[] labelMap(List<String> labels, int attribute) {
+        double[] map = new double[labels.size()];
+        for (int code = 0; code < map.length; code++) {
+            int index = header.attribute(attribute).isNominal()
+                    ? header.attribute(attribute).indexOfValue(labels.get(code)) : -1;
+            map[code] = index < 0 ? Double.NaN : index;
+        }
+        return map;
+    }
+
+    /**
+     * DenseInstance cujo vetor de valores é regravado a cada linha.
+     */
+    private static final class ReusableInstance extends DenseInstance {
+        private static final long serialVersionUID = 1L;
+
+        ReusableInstance(int numAttributes) {
+            super(1.0, new double[numAttributes]);
+        }
+
+        // Lido a cada linha: se o Weka trocar o array (copy-on-write), usa o atual.
+        double[] values() {
+            return m_AttValues;
+        }
+    }
+}
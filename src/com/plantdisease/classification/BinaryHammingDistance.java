@@ -0,0 +1,187 @@
+package com.plantdisease.classification;
+
+import weka.core.EuclideanDistance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.neighboursearch.PerformanceStats;
+
+import java.util.Arrays;
+
+/**
+ * Distância euclidiana com atalho por popcount para bases de sintomas 0/1.
+ *
+ * Quando todos os atributos (exceto a classe) são numéricos e têm faixa [0, 1] ou
+ * constante no treino, a distância ao quadrado calculada pela EuclideanDistance é
+ * exatamente o número de atributos não constantes em que as amostras diferem. Nesse
+ * caso a base é empacotada uma vez em bits (um BitPackedInstances por setInstances) e a
+ * distância sai de XOR + Long.bitCount, com o mesmo valor da implementação do Weka.
+ * A linha de cada amostra é localizada pela posição: a busca linear percorre a base em
+ * ordem, e a linha seguinte à última encontrada é conferida por identidade. Amostras
+ * fora da base empacotada são empacotadas na hora; amostras com valores fora de {0, 1}
+ * ou ausentes, ou bases com outros atributos, usam o cálculo normal da superclasse.
+ */
+public class BinaryHammingDistance extends EuclideanDistance {
+
+    private static final long serialVersionUID = 1L;
+
+    // Estado derivado da base; refeito sob demanda depois de setInstances/update.
+    private transient boolean prepared;
+    private transient boolean binaryMode;
+    private transient int[] attributes;
+    private transient long[] mask;
+    private transient BitPackedInstances packed;
+    private transient int nextRow;
+    private transient Instance query;
+    private transient long[] queryBits;
+
+    public BinaryHammingDistance() {
+        super();
+    }
+
+    public BinaryHammingDistance(Instances data) {
+        super(data);
+    }
+
+    @Override
+    public void setInstances(Instances insts) {
+        super.setInstances(insts);
+        prepared = false;
+        endQuery();
+    }
+
+    @Override
+    public void update(Instance ins) {
+        super.update(ins);
+        // As faixas podem ter mudado: a máscara é recalculada, os bits já empacotados continuam
+        // válidos. A instância nova fica fora da base empacotada e é empacotada na hora.
+        if (prepared && binaryMode) {
+            binaryMode = computeMask();
+        }
+    }
+
+    /**
+     * Empacota a amostra de consulta uma única vez antes de uma busca de vizinhos.
+     * Usado pelo BitPackedNNSearch.
+     *
+     * @param target amostra de consulta.
+     */
+    void beginQuery(Instance target) {
+        query = null;
+        queryBits = null;
+        nextRow = 0;
+        if (prepare()) {
+            long[] bits = new long[mask.length];
+            if (BitPackedInstances.packValues(target, attributes, bits, 0)) {
+                query = target;
+                queryBits = bits;
+            }
+        }
+    }
+
+    void endQuery() {
+        query = null;
+        queryBits = null;
+    }
+
+    @Override
+    public double distance(Instance first, Instance second, double cutOffValue, PerformanceStats stats) {
+        if (!prepare()) {
+            return super.distance(first, second, cutOffValue, stats);
+        }
+        long[] a = first == query ? queryBits : bitsOf(first);
+        if (a == null) {
+            return super.distance(first, second, cutOffValue, stats);
+        }
+        int distance;
+        int row = second == query ? -1 : rowOf(second);
+        if (row >= 0) {
+            if (!packed.isPacked(row)) {
+                return super.distance(first, second, cutOffValue, stats);
+            }
+            distance = packed.hamming(a, row, mask);
+        } else {
+            long[] b = second == query ? queryBits : bitsOf(second);
+            if (b == null) {
+                return super.distance(first, second, cutOffValue, stats);
+            }
+            distance = BitPackedInstances.hamming(a, 0, b, 0, mask, mask.length);
+        }
+        return distance > cutOffValue ? Double.POSITIVE_INFINITY : distance;
+    }
+
+    /**
+     * @return true se a base atual permite o atalho por popcount.
+     */
+    public boolean isBinaryMode() {
+        return prepare();
+    }
+
+    private boolean prepare() {
+        if (prepared) {
+            return binaryMode;
+        }
+        prepared = true;
+        binaryMode = false;
+        packed = null;
+        Instances data = m_Data;
+        if (data == null || getInvertSelection() || !"first-last".equals(getAttributeIndices())) {
+            return false;
+        }
+        attributes = BitPackedInstances.featureAttributes(data);
+        if (attributes == null || attributes.length == 0) {
+            return false;
+        }
+        validate();
+        mask = new long[BitPackedInstances.wordsFor(attributes.length)];
+        if (!computeMask()) {
+            return false;
+        }
+        packed = BitPackedInstances.pack(data, attributes);
+        nextRow = 0;
+        binaryMode = true;
+        return true;
+    }
+
+    // Com normalização, atributo constante no treino vale 0 no Weka e fica fora da máscara;
+    // faixa [0, 1] entra; qualquer outra faixa desativa o atalho. Sem normalização a
+    // diferença usa o valor bruto e todos os atributos entram.
+    private boolean computeMask() {
+        Arrays.fill(mask, 0L);
+        for (int k = 0; k < attributes.length; k++) {
+            double[] range = m_Ranges[attributes[k]];
+            double min = range[R_MIN];
+            double max = range[R_MAX];
+            if (!m_DontNormalize) {
+                if (Double.isNaN(min) || min == max) {
+                    continue;
+                }
+                if (min != 0.0 || max != 1.0) {
+                    return false;
+                }
+            }
+            mask[k >>> 6] |= 1L << (k & 63);
+        }
+        return true;
+    }
+
+    // Linha da base empacotada que contém a instância, ou -1. Testa a linha seguinte à
+    // última encontrada e a primeira (nova busca); não procura nas demais.
+    private int rowOf(Instance inst) {
+        int n = packed.numRows();
+        int row = -1;
+        if (nextRow < n && m_Data.instance(nextRow) == inst) {
+            row = nextRow;
+        } else if (n > 0 && m_Data.instance(0) == inst) {
+            row = 0;
+        }
+        if (row >= 0) {
+            nextRow = row + 1;
+        }
+        return row;
+    }
+
+    private long[] bitsOf(Instance inst) {
+        long[] bits = new long[mask.length];
+        return BitPackedInstances.packValues(inst, attributes, bits, 0) ? bits : null;
+    }
+}
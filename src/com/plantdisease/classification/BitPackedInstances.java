@@ -0,0 +1,160 @@
+package com.plantdisease.classification;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+
+/**
+ * Armazena bases de sintomas binários (0/1) com um bit por atributo.
+ *
+ * Cada amostra ocupa wordsPerRow longs, num único vetor contíguo, em vez de um double
+ * por atributo, e as distâncias saem de XOR + Long.bitCount. Para vetores 0/1 a
+ * distância euclidiana ao quadrado é igual à distância de Hamming. Linhas com valores
+ * fora de {0, 1} ou ausentes ficam marcadas como não empacotadas.
+ */
+public class BitPackedInstances implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] attributes;
+    private final int wordsPerRow;
+    private final long[] bits;
+    private final long[] unpacked;
+    private final int numRows;
+
+    private BitPackedInstances(int[] attributes, int numRows) {
+        this.attributes = attributes;
+        this.wordsPerRow = wordsFor(attributes.length);
+        this.numRows = numRows;
+        long size = (long) numRows * wordsPerRow;
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Base grande demais para empacotar: "
+                    + numRows + " linhas de " + wordsPerRow + " palavras.");
+        }
+        this.bits = new long[(int) size];
+        this.unpacked = new long[wordsFor(numRows)];
+    }
+
+    /**
+     * Empacota as linhas da base.
+     *
+     * @param data base de dados.
+     * @param attributes atributos a empacotar, na ordem dos bits (ver featureAttributes).
+     * @return base empacotada; linhas não binárias ficam marcadas (ver isPacked).
+     */
+    public static BitPackedInstances pack(Instances data, int[] attributes) {
+        BitPackedInstances packed = new BitPackedInstances(attributes, data.numInstances());
+        for (int i = 0; i < packed.numRows; i++) {
+            if (!packValues(data.instance(i), attributes, packed.bits, i * packed.wordsPerRow)) {
+                packed.unpacked[i >>> 6] |= 1L << (i & 63);
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Índices dos atributos empacotáveis: todos exceto a classe, desde que numéricos.
+     *
+     * @param data base de dados.
+     * @return índices dos atributos, ou null se houver atributo não numérico.
+     */
+    static int[] featureAttributes(Instances data) {
+        int classIndex = data.classIndex();
+        int count = classIndex >= 0 ? data.numAttributes() - 1 : data.numAttributes();
+        int[] attributes = new int[count];
+        int k = 0;
+        for (int j = 0; j < data.numAttributes(); j++) {
+            if (j == classIndex) {
+                continue;
+            }
+            if (!data.attribute(j).isNumeric()) {
+                return null;
+            }
+            attributes[k++] = j;
+        }
+        return attributes;
+    }
+
+    /**
+     * Grava os bits de uma instância.
+     *
+     * @param inst instância.
+     * @param attributes atributos a empacotar, na ordem dos bits.
+     * @param dest destino.
+     * @param offset primeira palavra do destino.
+     * @return false se algum valor não for 0 ou 1 (destino fica incompleto).
+     */
+    static boolean packValues(Instance inst, int[] attributes, long[] dest, int offset) {
+        int words = wordsFor(attributes.length);
+        for (int w = 0; w < words; w++) {
+            dest[offset + w] = 0L;
+        }
+        for (int k = 0; k < attributes.length; k++) {
+            double v = inst.value(attributes[k]);
+            if (v == 1.0) {
+                dest[offset + (k >>> 6)] |= 1L << (k & 63);
+            } else if (v != 0.0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param numBits número de atributos.
+     * @return número de longs necessários.
+     */
+    public static int wordsFor(int numBits) {
+        return (numBits + 63) >>> 6;
+    }
+
+    /**
+     * Distância de Hamming entre duas sequências de bits, restrita à máscara.
+     */
+    static int hamming(long[] a, int aOffset, long[] b, int bOffset, long[] mask, int words) {
+        int distance = 0;
+        for (int w = 0; w < words; w++) {
+            distance += Long.bitCount((a[aOffset + w] ^ b[bOffset + w]) & mask[w]);
+        }
+        return distance;
+    }
+
+    /**
+     * @param row linha da base.
+     * @return false se a linha tem valores fora de {0, 1} ou ausentes.
+     */
+    public boolean isPacked(int row) {
+        return (unpacked[row >>> 6] & (1L << (row & 63))) == 0;
+    }
+
+    /**
+     * @param query bits de uma amostra (wordsPerRow longs, mesma ordem de atributos).
+     * @param row linha empacotada da base (ver isPacked).
+     * @param mask atributos considerados.
+     * @return distância de Hamming restrita à máscara.
+     */
+    public int hamming(long[] query, int row, long[] mask) {
+        return hamming(query, 0, bits, row * wordsPerRow, mask, wordsPerRow);
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+
+    public int numAttributes() {
+        return attributes.length;
+    }
+
+    public int wordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * @param k posição do atributo empacotado.
+     * @return índice do atributo na base original.
+     */
+    public int attributeIndex(int k) {
+        return attributes[k];
+    }
+}
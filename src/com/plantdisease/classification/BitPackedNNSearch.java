@@ -0,0 +1,54 @@
+package com.plantdisease.classification;
+
+import weka.core.DistanceFunction;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.neighboursearch.LinearNNSearch;
+
+/**
+ * Busca linear de vizinhos que usa a BinaryHammingDistance. A amostra de consulta é
+ * empacotada uma vez por busca, em vez de uma vez por distância calculada.
+ */
+public class BitPackedNNSearch extends LinearNNSearch {
+
+    private static final long serialVersionUID = 1L;
+
+    public BitPackedNNSearch() {
+        super();
+        try {
+            setDistanceFunction(new BinaryHammingDistance());
+        } catch (Exception e) {
+            throw new IllegalStateException("Não foi possível configurar a distância binária.", e);
+        }
+    }
+
+    @Override
+    public Instances kNearestNeighbours(Instance target, int kNN) throws Exception {
+        DistanceFunction distance = getDistanceFunction();
+        if (!(distance instanceof BinaryHammingDistance)) {
+            return super.kNearestNeighbours(target, kNN);
+        }
+        BinaryHammingDistance hamming = (BinaryHammingDistance) distance;
+        hamming.beginQuery(target);
+        try {
+            return super.kNearestNeighbours(target, kNN);
+        } finally {
+            hamming.endQuery();
+        }
+    }
+
+    @Override
+    public Instance nearestNeighbour(Instance target) throws Exception {
+        DistanceFunction distance = getDistanceFunction();
+        if (!(distance instanceof BinaryHammingDistance)) {
+            return super.nearestNeighbour(target);
+        }
+        BinaryHammingDistance hamming = (BinaryHammingDistance) distance;
+        hamming.beginQuery(target);
+        try {
+            return super.nearestNeighbour(target);
+        } finally {
+            hamming.endQuery();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.functions.supportVector.PolyKernel;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * PolyKernel que lê os valores entre instâncias de treino da KernelMatrixCache
+ * compartilhada, em vez de recalculá-los em cada fold e em cada k.
+ *
+ * Os valores são os mesmos do PolyKernel (mesmo produto escalar, na mesma ordem dos
+ * atributos). As instâncias são reconhecidas pelos valores que o SMO entrega ao kernel,
+ * já filtrados; se o filtro do SMO produzir valores diferentes num fold (faixas do
+ * Normalize diferentes), os padrões desse fold simplesmente entram como padrões novos.
+ * Avaliações contra uma instância fora do treino (id1 < 0, classificação) seguem pelo
+ * PolyKernel.
+ */
+public class CachedPolyKernel extends PolyKernel {
+
+    private static final long serialVersionUID = 1L;
+
+    private boolean useMatrixCache = true;
+
+    private transient KernelMatrixCache.View view;
+    private transient int[] patternIds;
+
+    public boolean getUseMatrixCache() {
+        return useMatrixCache;
+    }
+
+    /**
+     * @param useMatrixCache false para usar só o cache por treino do PolyKernel.
+     */
+    public void setUseMatrixCache(boolean useMatrixCache) {
+        this.useMatrixCache = useMatrixCache;
+    }
+
+    public String useMatrixCacheTipText() {
+        return "Compartilha os valores do kernel entre treinos sobre a mesma base.";
+    }
+
+    @Override
+    public void buildKernel(Instances data) throws Exception {
+        super.buildKernel(data);
+        view = null;
+        patternIds = null;
+        if (!useMatrixCache) {
+            return;
+        }
+        final int classIndex = data.classIndex();
+        double[][] patterns = new double[data.numInstances()][];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = withoutClass(data.instance(i).toDoubleArray(), classIndex);
+        }
+        final double exponent = m_exponent;
+        final boolean lowerOrder = m_lowerOrder;
+        String key = "poly exp=" + exponent + " lower=" + lowerOrder + " atts=" + data.numAttributes()
+                + " class=" + classIndex;
+        int[] ids = new int[patterns.length];
+        view = KernelMatrixCache.shared().register(key, new KernelMatrixCache.KernelFunction() {
+            @Override
+            public double evaluate(double[] a, double[] b) {
+                // Mesma conta de PolyKernel.evaluate.
+                double result = 0;
+                for (int j = 0; j < a.length; j++) {
+                    result += a[j] * b[j];
+                }
+                if (lowerOrder) {
+                    result += 1.0;
+                }
+                if (exponent != 1.0) {
+                    result = Math.pow(result, exponent);
+                }
+                return result;
+            }
+        }, patterns, ids);
+        patternIds = ids;
+    }
+
+    @Override
+    public double eval(int id1, int id2, Instance inst1) throws Exception {
+        int[] ids = patternIds;
+        if (ids != null && id1 >= 0) {
+            int p = ids[id1];
+            int q = ids[id2];
+            if (p >= 0 && q >= 0) {
+                return view.get(p, q);
+            }
+        }
+        return super.eval(id1, id2, inst1);
+    }
+
+    @Override
+    public void clean() {
+        super.clean();
+        view = null;
+        patternIds = null;
+    }
+
+    private static double[] withoutClass(double[] values, int classIndex) {
+        if (classIndex < 0) {
+            return values;
+        }
+        double[] result = new double[values.length - 1];
+        System.arraycopy(values, 0, result, 0, classIndex);
+        System.arraycopy(values, classIndex + 1, result, classIndex, values.length - classIndex - 1);
+        return result;
+    }
+}
@@ -0,0 +1,185 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.functions.RBFClassifier;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * RBFClassifier com a escolha inicial dos centros substituível.
+ *
+ * O RBFModel posiciona os centros com um SimpleKMeans (semente fixa, até 10000
+ * iterações) sobre a base inteira; com muitos neurônios e bases grandes essa etapa
+ * domina o treino, e como a semente do k-means não é a do classificador o resultado
+ * varia pouco com setSeed e muito com a ordem das instâncias. Com um CenterInitializer
+ * definido, o RBFModel roda com um único centro (k-means trivial, só para aplicar os
+ * filtros e ajustar o estado interno) e os centros, as larguras e os pesos iniciais
+ * são refeitos aqui a partir dos centros do inicializador, com as mesmas regras do
+ * RBFModel: largura inicial = raiz da maior entre as distâncias quadráticas mínimas
+ * entre centros e pesos de atributo 1. A camada de saída é sorteada com um
+ * Random(seed) novo, e não com o gerador do RBFModel, então não coincide com a
+ * inicialização padrão mesmo com os mesmos centros.
+ *
+ * Sem inicializador o comportamento é exatamente o do RBFClassifier.
+ */
+public class CenteredRBFClassifier extends RBFClassifier {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Escolhe os centros iniciais das funções de base.
+     */
+    public interface CenterInitializer extends Serializable {
+        /**
+         * @param points instâncias já filtradas pelo RBFModel, sem o atributo de classe.
+         * @param weights peso de cada instância.
+         * @param k número de centros pedido.
+         * @param random gerador (semente do classificador).
+         * @return até k centros distintos, na dimensão dos pontos.
+         * @throws Exception se a inicialização falhar.
+         */
+        double[][] centers(double[][] points, double[] weights, int k, Random random) throws Exception;
+    }
+
+    private CenterInitializer centerInitializer;
+
+    public CenterInitializer getCenterInitializer() {
+        return centerInitializer;
+    }
+
+    /**
+     * @param centerInitializer inicializador dos centros, ou null para o k-means do RBFModel.
+     */
+    public void setCenterInitializer(CenterInitializer centerInitializer) {
+        this.centerInitializer = centerInitializer;
+    }
+
+    public String centerInitializerTipText() {
+        return "Escolha inicial dos centros (null usa o SimpleKMeans do RBFModel).";
+    }
+
+    @Override
+    protected Instances initializeClassifier(Instances data) throws Exception {
+        if (centerInitializer == null) {
+            return super.initializeClassifier(data);
+        }
+        int requested = m_numUnits;
+        Instances result;
+        m_numUnits = 1;
+        try {
+            result = super.initializeClassifier(data);
+        } finally {
+            m_numUnits = requested;
+        }
+        if (m_ZeroR != null) {
+            return result;
+        }
+
+        int classIndex = result.classIndex();
+        int n = result.numInstances();
+        double[][] points = new double[n][m_numAttributes - 1];
+        double[] weights = new double[n];
+        for (int i = 0; i < n; i++) {
+            Instance instance = result.instance(i);
+            int k = 0;
+            for (int j = 0; j < m_numAttributes; j++) {
+                if (j != classIndex) {
+                    points[i][k++] = instance.value(j);
+                }
+            }
+            weights[i] = instance.weight();
+        }
+        double[][] centers = centerInitializer.centers(points, weights, requested, new Random(m_Seed));
+        if (centers.length == 0) {
+            throw new IllegalStateException("O inicializador não devolveu nenhum centro.");
+        }
+        // Como no RBFModel, menos centros distintos que o pedido reduz o número de neurônios.
+        m_numUnits = Math.min(requested, centers.length);
+
+        OFFSET_WEIGHTS = 0;
+        if (m_useAttributeWeights) {
+            OFFSET_ATTRIBUTE_WEIGHTS = (m_numUnits + 1) * m_numClasses;
+            OFFSET_CENTERS = OFFSET_ATTRIBUTE_WEIGHTS + m_numAttributes;
+        } else {
+            OFFSET_ATTRIBUTE_WEIGHTS = -1;
+            OFFSET_CENTERS = (m_numUnits + 1) * m_numClasses;
+        }
+        OFFSET_SCALES = OFFSET_CENTERS + m_numUnits * m_numAttributes;
+        switch (m_scaleOptimizationOption) {
+            case USE_GLOBAL_SCALE:
+                m_RBFParameters = new double[OFFSET_SCALES + 1];
+                break;
+            case USE_SCALE_PER_UNIT_AND_ATTRIBUTE:
+                m_RBFParameters = new double[OFFSET_SCALES + m_numUnits * m_numAttributes];
+                break;
+            default:
+                m_RBFParameters = new double[OFFSET_SCALES + m_numUnits];
+                break;
+        }
+
+        double scale = Math.sqrt(initialSquaredScale(points, centers, m_numUnits));
+        if (m_scaleOptimizationOption == USE_GLOBAL_SCALE) {
+            m_RBFParameters[OFFSET_SCALES] = scale;
+        }
+        for (int u = 0; u < m_numUnits; u++) {
+            if (m_scaleOptimizationOption == USE_SCALE_PER_UNIT) {
+                m_RBFParameters[OFFSET_SCALES + u] = scale;
+            }
+            int k = 0;
+            for (int j = 0; j < m_numAttributes; j++) {
+                if (j == classIndex) {
+                    continue;
+                }
+                if (m_scaleOptimizationOption == USE_SCALE_PER_UNIT_AND_ATTRIBUTE) {
+                    m_RBFParameters[OFFSET_SCALES + u * m_numAttributes + j] = scale;
+                }
+                m_RBFParameters[OFFSET_CENTERS + u * m_numAttributes + j] = centers[u][k++];
+            }
+        }
+        if (m_useAttributeWeights) {
+            for (int j = 0; j < m_numAttributes; j++) {
+                if (j != classIndex) {
+                    m_RBFParameters[OFFSET_ATTRIBUTE_WEIGHTS + j] = 1;
+                }
+            }
+        }
+        // Camada de saída sorteada com um Random(m_Seed) novo. O RBFModel usa o gerador de
+        // data.getRandomNumberGenerator(m_Seed) já consumido pelo randomize, então os pesos
+        // iniciais não são os mesmos da inicialização padrão.
+        initializeOutputLayer(new Random(m_Seed));
+        return result;
+    }
+
+    // Mesma regra do RBFModel: com um centro, a maior distância quadrática de uma instância
+    // a ele; com vários, a maior entre as menores distâncias de cada centro aos seguintes.
+    private static double initialSquaredScale(double[][] points, double[][] centers, int numUnits) {
+        double max = -1;
+        if (numUnits == 1) {
+            for (double[] point : points) {
+                max = Math.max(max, squaredDistance(point, centers[0]));
+            }
+            return max;
+        }
+        for (int u = 0; u < numUnits; u++) {
+            double min = Double.MAX_VALUE;
+            for (int v = u + 1; v < numUnits; v++) {
+                min = Math.min(min, squaredDistance(centers[u], centers[v]));
+            }
+            if (min != Double.MAX_VALUE && min > max) {
+                max = min;
+            }
+        }
+        return max;
+    }
+
+    static double squaredDistance(double[] a, double[] b) {
+        double sum = 0;
+        for (int k = 0; k < a.length; k++) {
+            double d = a[k] - b[k];
+            sum += d * d;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,441 @@
+package com.plantdisease.classification;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Leitor de CSV em streaming que grava direto em colunas primitivas.
+ *
+ * O arquivo é lido em blocos por um FileChannel e decodificado (UTF-8) bloco a bloco;
+ * as células vão direto para arrays double de cada coluna, sem criar objetos por
+ * célula. O tipo de cada coluna é inferido durante a leitura: começa numérica e passa
+ * a nominal no primeiro valor não numérico; colunas numéricas só com 0/1 são marcadas
+ * como binárias. Campos entre aspas podem conter vírgulas, aspas duplicadas ("") e
+ * quebras de linha, como os cabeçalhos do arquivo do Caule. Nomes de coluna têm os
+ * espaços e quebras de linha normalizados e nomes repetidos recebem um sufixo (_2, _3...).
+ */
+public class ColumnarCsvReader {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int INITIAL_ROWS = 1024;
+    // Potências de 10 representáveis exatamente em double.
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private final StringBuilder cell = new StringBuilder();
+    private final List<String> header = new ArrayList<>();
+    private Column[] columns;
+    private int numRows;
+    private int lineNumber = 1;
+    private int cellIndex;
+    private boolean inQuotes;
+    private boolean afterQuote;
+    private boolean quotedCell;
+
+    /**
+     * Lê um arquivo CSV com cabeçalho.
+     *
+     * @param file arquivo CSV.
+     * @return base em colunas.
+     * @throws IOException se a leitura falhar ou uma linha tiver colunas a mais.
+     */
+    public static ColumnarDataset read(File file) throws IOException {
+        ColumnarCsvReader reader = new ColumnarCsvReader();
+        reader.parse(file);
+        String relation = file.getName();
+        int dot = relation.lastIndexOf('.');
+        if (dot > 0) {
+            relation = relation.substring(0, dot);
+        }
+        return reader.build(relation);
+    }
+
+    private void parse(File file) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+        // UTF-8 nunca gera mais caracteres que bytes: o bloco de caracteres não transborda.
+        CharBuffer chars = CharBuffer.allocate(CHUNK_SIZE);
+        boolean first = true;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(bytes) < 0;
+                bytes.flip();
+                decoder.decode(bytes, chars, eof);
+                if (eof) {
+                    decoder.flush(chars);
+                }
+                bytes.compact();
+                chars.flip();
+                if (first && chars.hasRemaining() && chars.get(chars.position()) == '\uFEFF') {
+                    chars.get(); // BOM
+                }
+                first = false;
+                while (chars.hasRemaining()) {
+                    accept(chars.get());
+                }
+                chars.clear();
+            }
+        }
+        if (inQuotes) {
+            throw new IOException("Aspas não fechadas no fim do arquivo.");
+        }
+        if (cell.length() > 0 || cellIndex > 0 || quotedCell) {
+            endCell();
+            endRow();
+        }
+    }
+
+    private void accept(char c) throws IOException {
+        if (inQuotes) {
+            if (c == '"') {
+                inQuotes = false;
+                afterQuote = true;
+            } else {
+                if (c == '\n') {
+                    lineNumber++;
+                }
+                cell.append(c);
+            }
+            return;
+        }
+        if (afterQuote) {
+            afterQuote = false;
+            if (c == '"') {
+                // Aspas duplicadas dentro de um campo entre aspas.
+                cell.append('"');
+                inQuotes = true;
+                return;
+            }
+        }
+        switch (c) {
+            case '"':
+                if (cell.length() == 0 && !quotedCell) {
+                    inQuotes = true;
+                    quotedCell = true;
+                } else {
+                    cell.append(c);
+                }
+                break;
+            case ',':
+                endCell();
+                break;
+            case '\n':
+                endCell();
+                endRow();
+                lineNumber++;
+                break;
+            case '\r':
+                break;
+            default:
+                cell.append(c);
+                break;
+        }
+    }
+
+    private void endCell() throws IOException {
+        if (columns == null) {
+            header.add(cell.toString());
+        } else {
+            if (cellIndex >= columns.length) {
+                throw new IOException("Linha " + lineNumber + ": mais colunas que o cabeçalho (" + columns.length + ").");
+            }
+            columns[cellIndex].add(numRows, cell, quotedCell);
+        }
+        cellIndex++;
+        cell.setLength(0);
+        quotedCell = false;
+    }
+
+    private void endRow() {
+        if (columns == null) {
+            if (header.size() == 1 && header.get(0).trim().isEmpty()) {
+                header.clear(); // linha em branco antes do cabeçalho
+            } else {
+                createColumns();
+            }
+            cellIndex = 0;
+            return;
+        }
+        if (cellIndex == 1 && columns.length > 1 && columns[0].isBlank()) {
+            cellIndex = 0; // linha em branco
+            return;
+        }
+        // Células que faltam no fim da linha ficam ausentes.
+        for (int j = cellIndex; j < columns.length; j++) {
+            columns[j].addMissing(numRows);
+        }
+        numRows++;
+        cellIndex = 0;
+    }
+
+    private void createColumns() {
+        columns = new Column[header.size()];
+        Set<String> used = new HashSet<>();
+        for (int j = 0; j < columns.length; j++) {
+            String name = header.get(j).trim().replaceAll("\\s+", " ");
+            if (name.isEmpty()) {
+                name = "att" + (j + 1);
+            }
+            String unique = name;
+            for (int n = 2; !used.add(unique); n++) {
+                unique = name + "_" + n;
+            }
+            columns[j] = new Column(unique);
+        }
+    }
+
+    private ColumnarDataset build(String relation) {
+        if (columns == null) {
+            createColumns();
+        }
+        String[] names = new String[columns.length];
+        double[][] values = new double[columns.length][];
+        List<List<String>> labels = new ArrayList<>(columns.length);
+        boolean[] binary = new boolean[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            Column column = columns[j];
+            names[j] = column.name;
+            values[j] = Arrays.copyOf(column.values, numRows);
+            labels.add(column.labels);
+            binary[j] = column.labels == null && column.binary && column.seenValue;
+        }
+        return new ColumnarDataset(relation, names, values, labels, binary, numRows);
+    }
+
+    /**
+     * Converte um número decimal simples sem criar String. Usa o caminho exato
+     * (mantissa inteira < 2^53 e potência de 10 exata); nos demais casos delega
+     * a Double.parseDouble, de modo que o resultado é sempre o mesmo do CSVLoader.
+     *
+     * @param s texto da célula.
+     * @param out out[0] recebe 1 se o texto é numérico e 0 caso contrário.
+     * @return o valor (NaN se o texto não for numérico).
+     */
+    static double parseNumber(CharSequence s, double[] out) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return Double.NaN;
+        }
+        int i = start;
+        boolean negative = false;
+        char c = s.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+        boolean simple = true;
+        for (; i < end; i++) {
+            c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa < (1L << 53) / 10) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (dot) {
+                        fractionDigits++;
+                    }
+                } else {
+                    simple = false;
+                }
+                digits++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else if (c == 'e' || c == 'E' || c == '-' || c == '+') {
+                simple = false; // notação científica: fica para Double.parseDouble
+            } else {
+                out[0] = 0;
+                return Double.NaN;
+            }
+        }
+        if (digits == 0) {
+            out[0] = 0;
+            return Double.NaN;
+        }
+        if (simple && fractionDigits < POWERS_OF_TEN.length) {
+            double value = fractionDigits == 0 ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+            out[0] = 1;
+            return negative ? -value : value;
+        }
+        try {
+            double value = Double.parseDouble(s.subSequence(start, end).toString());
+            out[0] = 1;
+            return value;
+        } catch (NumberFormatException e) {
+            out[0] = 0;
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Coluna em construção: valores primitivos, tipo inferido e rótulos nominais.
+     */
+    private static final class Column {
+        final String name;
+        final double[] parsed = new double[1];
+        double[] values = new double[INITIAL_ROWS];
+        List<String> labels;
+        Map<String, Integer> labelIndex;
+        // Texto das células numéricas cujo rótulo não seria Long.toString do valor
+        // ("1.0", "01", "-2"): rawCodes[i] - 1 indexa rawTexts, 0 é o texto canônico.
+        // Só existe enquanto a coluna é numérica, para rotular pelo texto original se
+        // ela virar nominal.
+        int[] rawCodes;
+        List<String> rawTexts;
+        Map<String, Integer> rawIndex;
+        boolean binary = true;
+        boolean seenValue;
+        boolean blankFirstCell;
+
+        Column(String name) {
+            this.name = name;
+        }
+
+        void add(int row, CharSequence text, boolean quoted) {
+            ensureCapacity(row);
+            blankFirstCell = !quoted && text.length() == 0;
+            if (isMissing(text, quoted)) {
+                values[row] = Double.NaN;
+                return;
+            }
+            seenValue = true;
+            if (labels == null) {
+                double value = parseNumber(text, parsed);
+                if (parsed[0] == 1) {
+                    values[row] = value;
+                    if (!isCanonical(text)) {
+                        rememberText(row, text.toString().trim());
+                    }
+                    if (value != 0.0 && value != 1.0) {
+                        binary = false;
+                    }
+                    return;
+                }
+                toNominal(row);
+            }
+            values[row] = labelCode(text.toString().trim());
+        }
+
+        void addMissing(int row) {
+            ensureCapacity(row);
+            values[row] = Double.NaN;
+        }
+
+        boolean isBlank() {
+            return blankFirstCell;
+        }
+
+        // Só dígitos, sem zero à esquerda e curto o bastante para Long.toString devolver o
+        // mesmo texto.
+        private static boolean isCanonical(CharSequence text) {
+            int length = text.length();
+            if (length == 0 || length > 15 || (length > 1 && text.charAt(0) == '0')) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void rememberText(int row, String text) {
+            if (rawCodes == null) {
+                rawCodes = new int[values.length];
+                rawTexts = new ArrayList<>();
+                rawIndex = new HashMap<>();
+            }
+            Integer code = rawIndex.get(text);
+            if (code == null) {
+                rawTexts.add(text);
+                code = rawTexts.size();
+                rawIndex.put(text, code);
+            }
+            rawCodes[row] = code;
+        }
+
+        private static boolean isMissing(CharSequence text, boolean quoted) {
+            if (quoted) {
+                return text.length() == 0;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c != ' ' && c != '?') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Um valor não numérico apareceu: os números anteriores viram rótulos com o
+        // texto lido (como no CSVLoader), igual ao das células seguintes.
+        private void toNominal(int rows) {
+            labels = new ArrayList<>();
+            labelIndex = new HashMap<>();
+            binary = false;
+            for (int i = 0; i < rows; i++) {
+                double v = values[i];
+                if (!Double.isNaN(v)) {
+                    String label = rawCodes != null && rawCodes[i] != 0
+                            ? rawTexts.get(rawCodes[i] - 1) : Long.toString((long) v);
+                    values[i] = labelCode(label);
+                }
+            }
+            rawCodes = null;
+            rawTexts = null;
+            rawIndex = null;
+        }
+
+        private int labelCode(String label) {
+            Integer code = labelIndex.get(label);
+            if (code == null) {
+                code = labels.size();
+                labels.add(label);
+                labelIndex.put(label, code);
+            }
+            return code;
+        }
+
+        private void ensureCapacity(int row) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, Math.max(row + 1, values.length * 2));
+                if (rawCodes != null) {
+                    rawCodes = Arrays.copyOf(rawCodes, values.length);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.plantdisease.classification;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base de dados em colunas primitivas, como produzida pelo ColumnarCsvReader.
+ *
+ * Cada coluna é um double[]: colunas numéricas guardam o próprio valor e colunas
+ * nominais guardam o índice do rótulo. Valores ausentes são NaN. A conversão para
+ * Instances só acontece quando um classificador do Weka precisa dos dados.
+ */
+public class ColumnarDataset {
+
+    private final String relationName;
+    private final String[] names;
+    private final double[][] columns;
+    private final List<List<String>> labels;
+    private final boolean[] binary;
+    private final int numRows;
+
+    /**
+     * @param relationName nome da relação (normalmente o nome do arquivo).
+     * @param names nomes das colunas.
+     * @param columns valores de cada coluna (cada array com ao menos numRows posições).
+     * @param labels rótulos das colunas nominais, ou null nas posições numéricas.
+     * @param binary indica colunas numéricas com apenas 0 e 1.
+     * @param numRows número de linhas.
+     */
+    public ColumnarDataset(String relationName, String[] names, double[][] columns, List<List<String>> labels,
+                           boolean[] binary, int numRows) {
+        this.relationName = relationName;
+        this.names = names;
+        this.columns = columns;
+        this.labels = labels;
+        this.binary = binary;
+        this.numRows = numRows;
+    }
+
+    public String getRelationName() {
+        return relationName;
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+
+    public int numColumns() {
+        return names.length;
+    }
+
+    public String name(int column) {
+        return names[column];
+    }
+
+    /**
+     * Retorna os valores da coluna (sem cópia; o array pode ser maior que numRows).
+     *
+     * @param column índice da coluna.
+     * @return valores da coluna.
+     */
+    public double[] column(int column) {
+        return columns[column];
+    }
+
+    public boolean isNominal(int column) {
+        return labels.get(column) != null;
+    }
+
+    /**
+     * @param column índice da coluna.
+     * @return true se a coluna é numérica e só contém 0, 1 ou ausentes.
+     */
+    public boolean isBinary(int column) {
+        return binary[column];
+    }
+
+    /**
+     * @param column índice da coluna.
+     * @return rótulos da coluna nominal, ou null se a coluna for numérica.
+     */
+    public List<String> labels(int column) {
+        return labels.get(column);
+    }
+
+    /**
+     * Materializa a base como Instances. Uma coluna de classe numérica binária (0/1)
+     * vira um atributo nominal {0, 1}, para que os classificadores e o ClassBalancer
+     * a tratem como classificação.
+     *
+     * @param classIndex índice do atributo de classe.
+     * @return Instances com uma DenseInstance por linha.
+     */
+    public Instances toInstances(int classIndex) {
+        Instances result = new Instances(header(classIndex), numRows);
+        for (int i = 0; i < numRows; i++) {
+            double[] values = new double[names.length];
+            for (int j = 0; j < names.length; j++) {
+                values[j] = columns[j][i];
+            }
+            result.add(new DenseInstance(1.0, values));
+        }
+        return result;
+    }
+
+    /**
+     * Cabeçalho (sem instâncias) com os mesmos atributos de toInstances.
+     *
+     * @param classIndex índice do atributo de classe.
+     * @return Instances vazia com a classe definida.
+     */
+    public Instances header(int classIndex) {
+        ArrayList<Attribute> attributes = new ArrayList<>(names.length);
+        for (int j = 0; j < names.length; j++) {
+            attributes.add(attribute(j, j == classIndex));
+        }
+        Instances header = new Instances(relationName, attributes, 0);
+        header.setClassIndex(classIndex);
+        return header;
+    }
+
+    private Attribute attribute(int column, boolean isClass) {
+        List<String> columnLabels = labels.get(column);
+        if (columnLabels != null) {
+            return new Attribute(names[column], new ArrayList<>(columnLabels));
+        }
+        if (isClass && binary[column]) {
+            return new Attribute(names[column], new ArrayList<>(Arrays.asList("0", "1")));
+        }
+        return new Attribute(names[column]);
+    }
+}
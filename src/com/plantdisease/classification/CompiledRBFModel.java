@@ -0,0 +1,335 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.functions.RBFClassifier;
+import weka.classifiers.functions.RBFModel;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Normalize;
+
+import java.lang.reflect.Field;
+
+/**
+ * Versão "compilada" de um RBFClassifier treinado, para classificação em volume.
+ *
+ * O RBFClassifier passa cada instância por quatro filtros (ReplaceMissingValues,
+ * RemoveUseless, NominalToBinary e Normalize), cada um criando uma instância nova,
+ * e depois percorre m_RBFParameters por deslocamentos. Aqui esses passos viram arrays
+ * primitivos contíguos:
+ *
+ * - inputIndex: posição, nos valores de entrada, de cada atributo usado pela rede
+ *   (atributos removidos pelo RemoveUseless e a classe ficam de fora);
+ * - inputScale/inputShift: o Normalize interno como uma transformação afim;
+ * - centers: numUnits x numInputs, uma linha por neurônio;
+ * - coefficients: peso de cada diferença ao quadrado, já com escala (global, por
+ *   neurônio ou por neurônio e atributo) e peso de atributo: w² / (2 s²);
+ * - outputWeights: numClasses x (numUnits + 1), com o bias no fim de cada linha.
+ *
+ * A saída segue o RBFClassifier: sigmoide com a mesma aproximação de exp, corte em
+ * [0, 1] e normalização. Só a ordem das somas muda, então as distribuições coincidem
+ * com as do Weka até arredondamento. Instâncias com valores ausentes vão para o
+ * classificador original, que aplica o ReplaceMissingValues.
+ *
+ * Imutável e thread-safe; cada thread usa seu próprio workspace (newWorkspace).
+ */
+public class CompiledRBFModel {
+
+    private final RBFClassifier source;
+    private final Instances header;
+    private final int numInputs;
+    private final int numUnits;
+    private final int numClasses;
+    private final boolean normalizedBasis;
+    private final int[] inputIndex;
+    private final double[] inputScale;
+    private final double[] inputShift;
+    private final double[] centers;
+    private final double[] coefficients;
+    private final double[] outputWeights;
+
+    private CompiledRBFModel(RBFClassifier source, Instances header, int numInputs, int numUnits, int numClasses,
+                             boolean normalizedBasis, int[] inputIndex, double[] inputScale, double[] inputShift,
+                             double[] centers, double[] coefficients, double[] outputWeights) {
+        this.source = source;
+        this.header = header;
+        this.numInputs = numInputs;
+        this.numUnits = numUnits;
+        this.numClasses = numClasses;
+        this.normalizedBasis = normalizedBasis;
+        this.inputIndex = inputIndex;
+        this.inputScale = inputScale;
+        this.inputShift = inputShift;
+        this.centers = centers;
+        this.coefficients = coefficients;
+        this.outputWeights = outputWeights;
+    }
+
+    /**
+     * Indica se o modelo pode ser compilado: rede treinada (não degenerada em ZeroR)
+     * e entradas numéricas, sem expansão pelo NominalToBinary.
+     *
+     * @param model classificador a testar.
+     * @return true se compile aceitaria o modelo.
+     */
+    public static boolean isSupported(RBFClassifier model) {
+        try {
+            Filter attFilter = (Filter) field("m_AttFilter").get(model);
+            Filter nominalToBinary = (Filter) field("m_NominalToBinary").get(model);
+            if (field("m_ZeroR").get(model) != null || attFilter == null || nominalToBinary == null
+                    || !(field("m_Filter").get(model) instanceof Normalize)) {
+                return false;
+            }
+            Instances reduced = attFilter.getOutputFormat();
+            Instances binary = nominalToBinary.getOutputFormat();
+            if (binary.numAttributes() != reduced.numAttributes()) {
+                return false;
+            }
+            for (int j = 0; j < binary.numAttributes(); j++) {
+                if (j != binary.classIndex() && !binary.attribute(j).isNumeric()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Extrai os parâmetros de um RBFClassifier treinado.
+     *
+     * @param model classificador treinado.
+     * @param header cabeçalho das instâncias que serão classificadas (o mesmo do treino).
+     * @return modelo compilado.
+     * @throws IllegalArgumentException se o modelo não for suportado (ver isSupported)
+     *         ou se faltar no cabeçalho algum atributo usado pela rede.
+     */
+    public static CompiledRBFModel compile(RBFClassifier model, Instances header) {
+        if (!isSupported(model)) {
+            throw new IllegalArgumentException("RBFClassifier não suportado pela versão compilada "
+                    + "(não treinado, sem atributos úteis ou com atributos nominais).");
+        }
+        try {
+            double[] params = (double[]) field("m_RBFParameters").get(model);
+            int numUnits = field("m_numUnits").getInt(model);
+            int numAttributes = field("m_numAttributes").getInt(model);
+            int classIndex = field("m_classIndex").getInt(model);
+            int numClasses = field("m_numClasses").getInt(model);
+            int offsetWeights = field("OFFSET_WEIGHTS").getInt(model);
+            int offsetCenters = field("OFFSET_CENTERS").getInt(model);
+            int offsetScales = field("OFFSET_SCALES").getInt(model);
+            int offsetAttributeWeights = field("OFFSET_ATTRIBUTE_WEIGHTS").getInt(model);
+            int scaleOption = field("m_scaleOptimizationOption").getInt(model);
+            boolean attributeWeights = field("m_useAttributeWeights").getBoolean(model);
+            boolean normalizedBasis = field("m_useNormalizedBasisFunctions").getBoolean(model);
+            Normalize normalize = (Normalize) field("m_Filter").get(model);
+            Instances filtered = ((Filter) field("m_NominalToBinary").get(model)).getOutputFormat();
+
+            int numInputs = numAttributes - 1;
+            int[] inputIndex = new int[numInputs];
+            double[] inputScale = new double[numInputs];
+            double[] inputShift = new double[numInputs];
+            double[] min = normalize.getMinArray();
+            double[] max = normalize.getMaxArray();
+            int k = 0;
+            for (int j = 0; j < numAttributes; j++) {
+                if (j == classIndex) {
+                    continue;
+                }
+                Attribute attribute = header.attribute(filtered.attribute(j).name());
+                if (attribute == null || !attribute.isNumeric()) {
+                    throw new IllegalArgumentException("Atributo ausente ou não numérico no cabeçalho: "
+                            + filtered.attribute(j).name() + ".");
+                }
+                inputIndex[k] = attribute.index();
+                // Mesma regra do Normalize: atributo constante no treino vira 0.
+                if (Double.isNaN(min[j]) || max[j] == min[j]) {
+                    inputScale[k] = 0;
+                    inputShift[k] = 0;
+                } else {
+                    inputScale[k] = normalize.getScale() / (max[j] - min[j]);
+                    inputShift[k] = normalize.getTranslation() - min[j] * inputScale[k];
+                }
+                k++;
+            }
+
+            double[] centers = new double[numUnits * numInputs];
+            double[] coefficients = new double[numUnits * numInputs];
+            for (int u = 0; u < numUnits; u++) {
+                k = 0;
+                for (int j = 0; j < numAttributes; j++) {
+                    if (j == classIndex) {
+                        continue;
+                    }
+                    double scale;
+                    switch (scaleOption) {
+                        case RBFModel.USE_GLOBAL_SCALE:
+                            scale = params[offsetScales];
+                            break;
+                        case RBFModel.USE_SCALE_PER_UNIT_AND_ATTRIBUTE:
+                            scale = params[offsetScales + u * numAttributes + j];
+                            break;
+                        default:
+                            scale = params[offsetScales + u];
+                            break;
+                    }
+                    double weight = attributeWeights ? params[offsetAttributeWeights + j] : 1;
+                    centers[u * numInputs + k] = params[offsetCenters + u * numAttributes + j];
+                    coefficients[u * numInputs + k] = weight * weight / (2 * scale * scale);
+                    k++;
+                }
+            }
+
+            double[] outputWeights = new double[numClasses * (numUnits + 1)];
+            System.arraycopy(params, offsetWeights, outputWeights, 0, outputWeights.length);
+
+            return new CompiledRBFModel(model, new Instances(header, 0), numInputs, numUnits, numClasses,
+                    normalizedBasis, inputIndex, inputScale, inputShift, centers, coefficients, outputWeights);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Não foi possível ler os parâmetros do RBFClassifier.", e);
+        }
+    }
+
+    public int numInputs() {
+        return numInputs;
+    }
+
+    public int numUnits() {
+        return numUnits;
+    }
+
+    public int numClasses() {
+        return numClasses;
+    }
+
+    /**
+     * @return área de trabalho para score (uma por thread).
+     */
+    public double[] newWorkspace() {
+        return new double[numInputs + numUnits];
+    }
+
+    /**
+     * Distribuição de uma instância do cabeçalho informado em compile.
+     *
+     * @param instance instância (valores já normalizados pelo pré-processamento do treino).
+     * @return distribuição das classes.
+     * @throws Exception se o classificador original falhar (valores ausentes).
+     */
+    public double[] distributionForInstance(Instance instance) throws Exception {
+        double[] out = new double[numClasses];
+        score(instance.toDoubleArray(), out, newWorkspace());
+        return out;
+    }
+
+    /**
+     * Classifica um vetor de valores na ordem do cabeçalho, sem criar objetos (exceto
+     * quando há valor ausente e a instância vai para o RBFClassifier original).
+     *
+     * @param values um valor por atributo do cabeçalho (a classe é ignorada).
+     * @param out recebe a distribuição (numClasses posições).
+     * @param workspace área de trabalho de newWorkspace.
+     * @throws Exception se o classificador original falhar.
+     */
+    public void score(double[] values, double[] out, double[] workspace) throws Exception {
+        final int d = numInputs;
+        final int units = numUnits;
+        final double[] x = workspace;
+        for (int k = 0; k < d; k++) {
+            double value = values[inputIndex[k]];
+            if (Double.isNaN(value)) {
+                scoreWithSource(values, out);
+                return;
+            }
+            x[k] = value * inputScale[k] + inputShift[k];
+        }
+
+        // Camada oculta: quatro acumuladores independentes para o JIT encadear as multiplicações.
+        final double[] c = centers;
+        final double[] w = coefficients;
+        for (int u = 0, base = 0; u < units; u++, base += d) {
+            double s0 = 0;
+            double s1 = 0;
+            double s2 = 0;
+            double s3 = 0;
+            int k = 0;
+            for (; k + 3 < d; k += 4) {
+                double e0 = c[base + k] - x[k];
+                double e1 = c[base + k + 1] - x[k + 1];
+                double e2 = c[base + k + 2] - x[k + 2];
+                double e3 = c[base + k + 3] - x[k + 3];
+                s0 += w[base + k] * e0 * e0;
+                s1 += w[base + k + 1] * e1 * e1;
+                s2 += w[base + k + 2] * e2 * e2;
+                s3 += w[base + k + 3] * e3 * e3;
+            }
+            for (; k < d; k++) {
+                double e = c[base + k] - x[k];
+                s0 += w[base + k] * e * e;
+            }
+            double distance = (s0 + s1) + (s2 + s3);
+            x[d + u] = normalizedBasis ? -distance : Math.exp(-distance);
+        }
+        if (normalizedBasis) {
+            // Softmax, como em RBFModel.calculateOutputs.
+            double max = Double.NEGATIVE_INFINITY;
+            for (int u = 0; u < units; u++) {
+                max = Math.max(max, x[d + u]);
+            }
+            double sum = 0;
+            for (int u = 0; u < units; u++) {
+                x[d + u] = Math.exp(x[d + u] - max);
+                sum += x[d + u];
+            }
+            for (int u = 0; u < units; u++) {
+                x[d + u] /= sum;
+            }
+        }
+
+        // Camada de saída: sigmoide por classe, corte em [0, 1] e normalização (RBFClassifier.getDistribution).
+        for (int cls = 0, row = 0; cls < numClasses; cls++, row += units + 1) {
+            double sum = 0;
+            for (int u = 0; u < units; u++) {
+                sum += outputWeights[row + u] * x[d + u];
+            }
+            sum += outputWeights[row + units];
+            double p = 1 / (1 + approxExp(-sum));
+            out[cls] = p < 0 ? 0 : (p > 1 ? 1 : p);
+        }
+        Utils.normalize(out);
+    }
+
+    private void scoreWithSource(double[] values, double[] out) throws Exception {
+        Instance instance = new DenseInstance(1.0, values.clone());
+        instance.setDataset(header);
+        double[] dist = source.distributionForInstance(instance);
+        System.arraycopy(dist, 0, out, 0, numClasses);
+    }
+
+    // A mesma aproximação de RBFClassifier.approxExp: (1 + x/4096)^4096 por 12 quadrados.
+    private static double approxExp(double x) {
+        double y = 1 + x / 4096;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        y *= y;
+        return y;
+    }
+
+    private static Field field(String name) throws NoSuchFieldException {
+        Field field = RBFModel.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+}
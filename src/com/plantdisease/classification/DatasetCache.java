@@ -0,0 +1,224 @@
+package com.plantdisease.classification;
+
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache em memória de bases já carregadas e pré-processadas.
+ *
+ * A chave combina o caminho canônico do arquivo, o tamanho, a data de modificação e
+ * a configuração de pré-processamento; se o arquivo mudar no disco a entrada antiga
+ * deixa de ser usada. As entradas são descartadas em ordem LRU quando o total estimado
+ * passa do orçamento de memória, permitindo manter várias bases residentes (ex.:
+ * Folha, Caule e Fruto).
+ *
+ * As bases devolvidas são compartilhadas entre chamadas e devem ser tratadas como
+ * somente leitura; quem precisar alterá-las deve trabalhar numa cópia. Cada entrada
+ * guarda também o PreprocessingModel, para que um acerto no cache permita normalizar
+ * amostras novas e salvar o modelo.
+ */
+public class DatasetCache {
+
+    /**
+     * Carrega e pré-processa a base quando ela não está no cache.
+     */
+    public interface Loader {
+        PreparedDataset load() throws Exception;
+    }
+
+    private static final long DEFAULT_BUDGET_BYTES = 256L * 1024 * 1024;
+    private static final DatasetCache SHARED = new DatasetCache(
+            Long.getLong("plantdisease.cache.mb", DEFAULT_BUDGET_BYTES / (1024 * 1024)) * 1024 * 1024);
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long budgetBytes;
+    private long usedBytes;
+
+    /**
+     * @param budgetBytes orçamento de memória estimada para as bases em cache.
+     */
+    public DatasetCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Retorna o cache compartilhado do processo. O orçamento padrão (256 MB) pode
+     * ser alterado com -Dplantdisease.cache.mb.
+     *
+     * @return cache compartilhado.
+     */
+    public static DatasetCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Retorna a base em cache ou carrega com o loader.
+     *
+     * @param file arquivo de origem.
+     * @param preprocessingKey descrição da configuração de pré-processamento.
+     * @param loader carrega e pré-processa a base em caso de falta.
+     * @return base pré-processada (somente leitura).
+     * @throws Exception se o carregamento falhar.
+     */
+    public PreparedDataset get(File file, String preprocessingKey, Loader loader) throws Exception {
+        Key key = Key.of(file, preprocessingKey);
+        synchronized (this) {
+            Entry hit = entries.get(key);
+            if (hit != null) {
+                return hit.data;
+            }
+        }
+        PreparedDataset loaded = loader.load();
+        synchronized (this) {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                return existing.data;
+            }
+            removeStale(key);
+            Entry entry = new Entry(loaded, estimateBytes(loaded.sharedData()));
+            entries.put(key, entry);
+            usedBytes += entry.bytes;
+            evict(key);
+        }
+        return loaded;
+    }
+
+    /**
+     * Remove todas as entradas de um arquivo.
+     *
+     * @param file arquivo de origem.
+     * @throws IOException se o caminho não puder ser resolvido.
+     */
+    public synchronized void invalidate(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().path.equals(path)) {
+                usedBytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Esvazia o cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Altera o orçamento de memória, descartando entradas se necessário.
+     *
+     * @param budgetBytes novo orçamento em bytes.
+     */
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evict(null);
+    }
+
+    /**
+     * @return número de bases residentes.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return memória estimada ocupada pelas bases residentes, em bytes.
+     */
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Estimativa grosseira do tamanho de uma base: valores double de cada instância
+     * mais o overhead dos objetos DenseInstance.
+     *
+     * @param data base de dados.
+     * @return tamanho estimado em bytes.
+     */
+    static long estimateBytes(Instances data) {
+        long perInstance = 8L * data.numAttributes() + 64;
+        return perInstance * data.numInstances() + 256L * data.numAttributes();
+    }
+
+    // Uma versão antiga do mesmo arquivo (tamanho/data diferentes) não será mais pedida.
+    private void removeStale(Key key) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            Key k = e.getKey();
+            if (k.path.equals(key.path) && k.preprocessing.equals(key.preprocessing)) {
+                usedBytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    // Descarta as menos usadas até caber no orçamento; a entrada recém-inserida é mantida.
+    private void evict(Key keep) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (usedBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().equals(keep)) {
+                continue;
+            }
+            usedBytes -= e.getValue().bytes;
+            it.remove();
+        }
+    }
+
+    private static final class Entry {
+        final PreparedDataset data;
+        final long bytes;
+
+        Entry(PreparedDataset data, long bytes) {
+            this.data = data;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Key {
+        final String path;
+        final long size;
+        final long lastModified;
+        final String preprocessing;
+
+        private Key(String path, long size, long lastModified, String preprocessing) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.preprocessing = preprocessing;
+        }
+
+        static Key of(File file, String preprocessing) throws IOException {
+            return new Key(file.getCanonicalPath(), file.length(), file.lastModified(), preprocessing);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return size == k.size && lastModified == k.lastModified
+                    && path.equals(k.path) && preprocessing.equals(k.preprocessing);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = path.hashCode();
+            h = 31 * h + (int) (size ^ (size >>> 32));
+            h = 31 * h + (int) (lastModified ^ (lastModified >>> 32));
+            return 31 * h + preprocessing.hashCode();
+        }
+    }
+}
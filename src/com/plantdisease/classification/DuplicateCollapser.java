@@ -0,0 +1,112 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.lazy.IBk;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.WeightedInstancesHandler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Agrupa linhas repetidas (mesmos atributos e mesma classe) numa única instância com a
+ * soma dos pesos.
+ *
+ * As bases de sintomas são quase só padrões 0/1 repetidos: na Folha, ~126 linhas viram
+ * poucos vetores distintos. Para classificadores que usam o peso das instâncias como
+ * multiplicidade (SMO, J48, AdaBoostM1, RandomForest, RBF), treinar no conjunto agrupado
+ * custa proporcional ao número de padrões distintos em vez do número de linhas.
+ *
+ * O agrupamento é feito só no conjunto de treino, depois da divisão: os folds da
+ * validação cruzada continuam sendo sorteados sobre as linhas originais e o teste
+ * continua linha a linha, então a avaliação é a da base expandida. Para SMO, J48 e
+ * AdaBoostM1 o modelo é o mesmo do treino sem agrupar (até arredondamento); para os
+ * que sorteiam instâncias (bootstrap da RandomForest, k-means inicial da RBF) o sorteio
+ * passa a ser sobre padrões ponderados, equivalente em distribuição mas não idêntico.
+ * O IBk fica de fora: uma linha repetida ocupa vários dos k vizinhos, o que um peso não
+ * reproduz.
+ */
+public class DuplicateCollapser {
+
+    private DuplicateCollapser() {
+    }
+
+    private static final class Row {
+        final double[] values;
+        final int hash;
+
+        Row(double[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Row && Arrays.equals(values, ((Row) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * @param classifier classificador a treinar.
+     * @return true se treinar no conjunto agrupado preserva o significado dos dados.
+     */
+    public static boolean supports(Classifier classifier) {
+        return classifier instanceof WeightedInstancesHandler && !(classifier instanceof IBk);
+    }
+
+    /**
+     * Agrupa as linhas repetidas. A ordem das instâncias é a da primeira ocorrência de
+     * cada padrão.
+     *
+     * @param data conjunto de treino (não é modificado).
+     * @return conjunto agrupado, ou o próprio data se não houver repetições.
+     */
+    public static Instances collapse(Instances data) {
+        int n = data.numInstances();
+        Map<Row, Integer> index = new HashMap<>(n * 2);
+        double[][] values = new double[n][];
+        double[] weights = new double[n];
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            Instance instance = data.instance(i);
+            double[] row = instance.toDoubleArray();
+            Row key = new Row(row);
+            Integer position = index.get(key);
+            if (position == null) {
+                index.put(key, distinct);
+                values[distinct] = row;
+                weights[distinct] = instance.weight();
+                distinct++;
+            } else {
+                weights[position] += instance.weight();
+            }
+        }
+        if (distinct == n) {
+            return data;
+        }
+        Instances collapsed = new Instances(data, distinct);
+        for (int i = 0; i < distinct; i++) {
+            collapsed.add(new DenseInstance(weights[i], values[i]));
+        }
+        return collapsed;
+    }
+
+    /**
+     * Agrupa o conjunto se o classificador aceitar pesos (supports).
+     *
+     * @param classifier classificador a treinar.
+     * @param data conjunto de treino.
+     * @return conjunto a usar no buildClassifier.
+     */
+    public static Instances forTraining(Classifier classifier, Instances data) {
+        return supports(classifier) ? collapse(data) : data;
+    }
+}
@@ -0,0 +1,304 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.Evaluation;
+
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Execução de um experimento pela linha de comando, sem interface gráfica:
+ *
+ *   --headless --data ARQUIVO --model N [--params a,b,c] [--eval cv|split]
+ *   [--folds k[,k...]] [--train-pct P] [--collapse true|false] [--streaming true|false]
+ *   [--cache true|false] [--select-features true|false] [--out ARQUIVO] [--format json|csv]
+ *
+ * Roda o mesmo pipeline da FrontUI (loadData, setClassifier, trainTestSplit/
+ * trainClassifier/evaluateModel ou validação cruzada) e grava as métricas de cada
+ * avaliação e os tempos por etapa (PipelineMetrics) em JSON ou CSV, na saída padrão ou
+ * em --out. Nenhuma classe do AWT/Swing é carregada, então a JVM pode rodar com
+ * -Djava.awt.headless=true em servidores sem display. Código de saída 0 em sucesso,
+ * 1 se o experimento falhar e 2 para argumentos inválidos.
+ */
+public class ExperimentRunner {
+
+    private static final String USAGE = "Uso: --headless --data ARQUIVO --model N [--params a,b,c] [--eval cv|split]\n"
+            + "       [--folds k[,k...]] [--train-pct P] [--collapse true|false] [--streaming true|false]\n"
+            + "       [--cache true|false] [--select-features true|false] [--out ARQUIVO] [--format json|csv]";
+
+    // Mesmos valores iniciais dos campos da FrontUI.
+    private static final double[][] DEFAULT_PARAMS = {
+            {1.0, 1.0},
+            {0.25, 2},
+            {10},
+            {100},
+            {1},
+            {10, 42, 1, 0},
+            {10, 42, 1, 0}
+    };
+
+    private ExperimentRunner() {
+    }
+
+    /**
+     * Resultado de uma avaliação (um k da validação cruzada ou a divisão treino/teste).
+     */
+    private static final class Result {
+        final String eval;
+        final double setting;
+        final double instances;
+        final double accuracy;
+        final double kappa;
+        final double precision;
+        final double recall;
+        final double fMeasure;
+        final double rmse;
+
+        Result(String eval, double setting, Evaluation e) {
+            this(eval, setting, e.numInstances(), e.pctCorrect(), e.kappa(), e.weightedPrecision(),
+                    e.weightedRecall(), e.weightedFMeasure(), e.rootMeanSquaredError());
+        }
+
+        Result(String eval, double setting, StreamingEvaluation e) {
+            this(eval, setting, e.numInstances(), e.pctCorrect(), e.kappa(), e.weightedPrecision(),
+                    e.weightedRecall(), e.weightedFMeasure(), e.rootMeanSquaredError());
+        }
+
+        private Result(String eval, double setting, double instances, double accuracy, double kappa,
+                       double precision, double recall, double fMeasure, double rmse) {
+            this.eval = eval;
+            this.setting = setting;
+            this.instances = instances;
+            this.accuracy = accuracy;
+            this.kappa = kappa;
+            this.precision = precision;
+            this.recall = recall;
+            this.fMeasure = fMeasure;
+            this.rmse = rmse;
+        }
+
+        // Na avaliação em streaming getEvaluation fica null.
+        static Result of(String eval, double setting, PlantDiseaseClassifier classifier) {
+            Evaluation evaluation = classifier.getEvaluation();
+            return evaluation != null ? new Result(eval, setting, evaluation)
+                    : new Result(eval, setting, classifier.getStreamingEvaluation());
+        }
+    }
+
+    /**
+     * Ponto de entrada do modo sem interface (Main --headless).
+     *
+     * @param args argumentos, sem o --headless.
+     * @return código de saída do processo.
+     */
+    public static int run(String[] args) {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        Map<String, String> options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            String dataPath = require(options, "data");
+            int modelOption = Integer.parseInt(require(options, "model"));
+            if (modelOption < 1 || modelOption > DEFAULT_PARAMS.length) {
+                throw new IllegalArgumentException("Opção de modelo inválida. Use 1 a 7.");
+            }
+            double[] params = options.containsKey("params") ? parseDoubles(options.get("params"))
+                    : DEFAULT_PARAMS[modelOption - 1];
+            String eval = value(options, "eval", "cv");
+            String format = value(options, "format", "json");
+            if (!"json".equals(format) && !"csv".equals(format)) {
+                throw new IllegalArgumentException("Formato inválido: " + format + " (use json ou csv).");
+            }
+
+            PlantDiseaseClassifier classifier = new PlantDiseaseClassifier();
+            classifier.setPrintModel(false);
+            classifier.setCollapseDuplicates(Boolean.parseBoolean(value(options, "collapse", "false")));
+            boolean streaming = Boolean.parseBoolean(value(options, "streaming", "false"));
+            classifier.setStreamingEvaluation(streaming);
+            classifier.setFeatureSelection(Boolean.parseBoolean(value(options, "select-features", "false")));
+            if (Boolean.parseBoolean(value(options, "cache", "true"))) {
+                classifier.setResultCache(ResultCache.shared());
+            }
+            long start = System.nanoTime();
+            classifier.loadData(dataPath);
+            classifier.setClassifier(modelOption, params);
+            Result[] results;
+            if ("split".equals(eval)) {
+                double trainPercentage = Double.parseDouble(value(options, "train-pct", "70"));
+                classifier.trainTestSplit(trainPercentage);
+                classifier.trainClassifier();
+                classifier.evaluateModel();
+                results = new Result[]{Result.of(eval, trainPercentage, classifier)};
+            } else if ("cv".equals(eval)) {
+                double[] values = parseDoubles(value(options, "folds", "10"));
+                int[] folds = new int[values.length];
+                for (int i = 0; i < folds.length; i++) {
+                    folds[i] = (int) values[i];
+                }
+                results = new Result[folds.length];
+                if (folds.length == 1 || streaming) {
+                    // O sweep compartilha os modelos entre valores de k, mas guarda as
+                    // predições; em streaming cada k é avaliado separadamente.
+                    for (int i = 0; i < folds.length; i++) {
+                        classifier.evaluateModelCV(folds[i]);
+                        results[i] = Result.of(eval, folds[i], classifier);
+                    }
+                } else {
+                    Evaluation[] evaluations = classifier.evaluateSweepCV(folds);
+                    for (int i = 0; i < folds.length; i++) {
+                        results[i] = new Result(eval, folds[i], evaluations[i]);
+                    }
+                }
+            } else {
+                throw new IllegalArgumentException("Avaliação inválida: " + eval + " (use cv ou split).");
+            }
+            long totalNanos = System.nanoTime() - start;
+
+            String output = "json".equals(format)
+                    ? toJson(dataPath, modelOption, params, results, classifier.getMetrics(), uptime, totalNanos)
+                    : toCsv(results, classifier.getMetrics());
+            if (options.containsKey("out")) {
+                try (Writer out = new OutputStreamWriter(Files.newOutputStream(new File(options.get("out")).toPath()),
+                        StandardCharsets.UTF_8)) {
+                    out.write(output);
+                }
+            } else {
+                PrintStream out = new PrintStream(System.out, true, "UTF-8");
+                out.print(output);
+                out.flush();
+            }
+            return 0;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (Exception e) {
+            System.err.println("Erro: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    // Aceita "--nome valor" e "--nome=valor".
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Argumento inesperado: " + arg);
+            }
+            String name = arg.substring(2);
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                options.put(name.substring(0, eq), name.substring(eq + 1));
+            } else if (i + 1 < args.length) {
+                options.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Falta o valor de " + arg + ".");
+            }
+        }
+        return options;
+    }
+
+    private static String require(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Argumento obrigatório ausente: --" + name + ".");
+        }
+        return value;
+    }
+
+    private static String value(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : value;
+    }
+
+    private static double[] parseDoubles(String text) {
+        String[] parts = text.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+
+    private static String toJson(String dataPath, int modelOption, double[] params, Result[] results,
+                                 PipelineMetrics metrics, long uptimeMillis, long totalNanos) {
+        StringBuilder json = new StringBuilder("{\"data\":");
+        InferenceServer.appendString(json, dataPath);
+        json.append(",\"model\":").append(modelOption).append(",\"params\":[");
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendNumber(json, params[i]);
+        }
+        json.append("],\"results\":[");
+        for (int i = 0; i < results.length; i++) {
+            Result r = results[i];
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"eval\":\"").append(r.eval).append('"');
+            json.append("split".equals(r.eval) ? ",\"trainPct\":" : ",\"k\":");
+            appendNumber(json, r.setting);
+            json.append(",\"instances\":");
+            appendNumber(json, r.instances);
+            json.append(",\"accuracy\":");
+            appendNumber(json, r.accuracy);
+            json.append(",\"kappa\":");
+            appendNumber(json, r.kappa);
+            json.append(",\"precision\":");
+            appendNumber(json, r.precision);
+            json.append(",\"recall\":");
+            appendNumber(json, r.recall);
+            json.append(",\"fMeasure\":");
+            appendNumber(json, r.fMeasure);
+            json.append(",\"rmse\":");
+            appendNumber(json, r.rmse);
+            json.append('}');
+        }
+        json.append("],\"timings\":").append(metrics.toJson());
+        json.append(String.format(Locale.ROOT, ",\"jvmUptimeAtStartMs\":%d,\"totalMs\":%.3f}\n",
+                uptimeMillis, totalNanos / 1e6));
+        return json.toString();
+    }
+
+    // NaN (ex.: precisão sem predições de uma classe) vira null.
+    private static void appendNumber(StringBuilder json, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            json.append("null");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            json.append((long) value);
+        } else {
+            json.append(String.format(Locale.ROOT, "%.6f", value));
+        }
+    }
+
+    // Duas tabelas separadas por linha em branco: avaliações e tempos por etapa.
+    private static String toCsv(Result[] results, PipelineMetrics metrics) {
+        StringBuilder csv = new StringBuilder("eval,setting,instances,accuracy,kappa,precision,recall,fMeasure,rmse\n");
+        for (Result r : results) {
+            csv.append(String.format(Locale.ROOT, "%s,%s,%.0f,%.6f,%.6f,%.6f,%.6f,%.6f,%.6f\n", r.eval,
+                    r.setting == Math.rint(r.setting) ? String.valueOf((long) r.setting) : String.valueOf(r.setting),
+                    r.instances, r.accuracy, r.kappa, r.precision, r.recall, r.fMeasure, r.rmse));
+        }
+        csv.append("\nstage,totalMs\n");
+        for (String stage : metrics.getStageNames()) {
+            csv.append(String.format(Locale.ROOT, "%s,%.3f\n", stage, metrics.totalMillis(stage)));
+        }
+        return csv.toString();
+    }
+}
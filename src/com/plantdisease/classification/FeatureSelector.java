@@ -0,0 +1,398 @@
+package com.plantdisease.classification;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Ranqueia os atributos binários (sintomas 0/1) pela relação com a classe e descarta os
+ * redundantes e os sem informação antes do treino.
+ *
+ * Cada atributo binário vira um bitset de 64 linhas por long, e cada classe também; as
+ * contagens da tabela atributo × classe saem de Long.bitCount(atributo & classe), sem
+ * percorrer as instâncias. O ranqueamento usa informação mútua (bits) ou qui-quadrado,
+ * com cada atributo calculado numa tarefa do pool compartilhado. Os pesos entram pelo
+ * peso médio de cada classe, o que é exato depois do ClassBalancer (peso constante
+ * dentro da classe).
+ *
+ * São descartados:
+ * - atributos com pontuação até minScore (os constantes têm pontuação 0);
+ * - atributos iguais ou complementares (0/1 trocados) a outro de pontuação maior, como
+ *   as colunas repetidas de um mesmo sintoma;
+ * - além de maxFeatures, os binários de menor pontuação (0 para não limitar).
+ * Atributos não binários (valores fora de 0/1 ou ausentes) não são ranqueados e são
+ * sempre mantidos.
+ */
+public class FeatureSelector {
+
+    /**
+     * Medida usada no ranqueamento.
+     */
+    public enum Measure {
+        MUTUAL_INFORMATION,
+        CHI_SQUARED
+    }
+
+    /** Pontuação mínima padrão (informação mútua em bits). */
+    public static final double DEFAULT_MIN_SCORE = 1e-3;
+
+    private Measure measure = Measure.MUTUAL_INFORMATION;
+    private double minScore = DEFAULT_MIN_SCORE;
+    private int maxFeatures;
+    private final ForkJoinPool pool;
+
+    public FeatureSelector() {
+        this(ParallelCrossValidator.sharedPool());
+    }
+
+    /**
+     * @param pool pool onde os atributos são pontuados.
+     */
+    public FeatureSelector(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void setMeasure(Measure measure) {
+        this.measure = measure;
+    }
+
+    /**
+     * @param minScore atributos binários com pontuação até este valor são descartados.
+     */
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+
+    /**
+     * @param maxFeatures máximo de atributos binários mantidos (0 para não limitar).
+     */
+    public void setMaxFeatures(int maxFeatures) {
+        this.maxFeatures = maxFeatures;
+    }
+
+    /**
+     * Resultado da seleção.
+     */
+    public static class Selection {
+        private final Instances header;
+        private final double[] scores;
+        private final int[] duplicateOf;
+        private final int[] selected;
+        private final Instances reducedHeader;
+
+        Selection(Instances header, double[] scores, int[] duplicateOf, int[] selected) {
+            this.header = header;
+            this.scores = scores;
+            this.duplicateOf = duplicateOf;
+            this.selected = selected;
+            this.reducedHeader = PreprocessingModel.selectHeader(header, selected);
+        }
+
+        /**
+         * @return índices mantidos (em ordem crescente, incluindo a classe).
+         */
+        public int[] getSelected() {
+            return selected.clone();
+        }
+
+        /**
+         * @param j índice do atributo.
+         * @return pontuação, ou NaN se o atributo não foi ranqueado.
+         */
+        public double getScore(int j) {
+            return scores[j];
+        }
+
+        /**
+         * @param j índice do atributo.
+         * @return atributo do qual j é cópia ou complemento, ou -1.
+         */
+        public int getDuplicateOf(int j) {
+            return duplicateOf[j];
+        }
+
+        /**
+         * @return true se algum atributo foi descartado.
+         */
+        public boolean dropsAttributes() {
+            return selected.length < header.numAttributes();
+        }
+
+        /**
+         * Reduz uma base com os atributos da base selecionada às colunas mantidas,
+         * mantendo os pesos.
+         *
+         * @param data base no cabeçalho usado na seleção.
+         * @return nova base só com os atributos mantidos.
+         */
+        public Instances reduce(Instances data) {
+            Instances result = new Instances(reducedHeader, data.numInstances());
+            for (int i = 0; i < data.numInstances(); i++) {
+                result.add(reduce(data.instance(i)));
+            }
+            return result;
+        }
+
+        /**
+         * @param instance instância no cabeçalho usado na seleção.
+         * @return cópia só com os atributos mantidos, ligada ao cabeçalho reduzido.
+         */
+        public Instance reduce(Instance instance) {
+            double[] values = new double[selected.length];
+            for (int k = 0; k < selected.length; k++) {
+                values[k] = instance.value(selected[k]);
+            }
+            Instance result = new DenseInstance(instance.weight(), values);
+            result.setDataset(reducedHeader);
+            return result;
+        }
+
+        /**
+         * Atributos ranqueados do mais para o menos informativo, com o motivo de cada descarte.
+         */
+        @Override
+        public String toString() {
+            List<Integer> order = new ArrayList<>();
+            for (int j = 0; j < scores.length; j++) {
+                if (!Double.isNaN(scores[j])) {
+                    order.add(j);
+                }
+            }
+            Collections.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(scores[b], scores[a]);
+                }
+            });
+            StringBuilder sb = new StringBuilder("Atributo,Pontuação,Situação\n");
+            for (int j : order) {
+                String status;
+                if (Arrays.binarySearch(selected, j) >= 0) {
+                    status = "mantido";
+                } else if (duplicateOf[j] >= 0) {
+                    status = "repete " + header.attribute(duplicateOf[j]).name();
+                } else {
+                    status = "descartado";
+                }
+                sb.append(header.attribute(j).name()).append(',')
+                        .append(String.format("%.4f", scores[j])).append(',').append(status).append('\n');
+            }
+            sb.append("Mantidos ").append(selected.length - 1).append(" de ")
+                    .append(header.numAttributes() - 1).append(" atributos.");
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Pontua os atributos e escolhe os mantidos. A base não é alterada.
+     *
+     * @param data base pré-processada com classe nominal.
+     * @return seleção (aplique com PreprocessingModel.withSelection e select).
+     * @throws Exception se uma tarefa falhar.
+     */
+    public Selection select(final Instances data) throws Exception {
+        if (data.classIndex() < 0 || !data.classAttribute().isNominal()) {
+            throw new IllegalArgumentException("A seleção de atributos requer classe nominal.");
+        }
+        final int n = data.numInstances();
+        final int numClasses = data.numClasses();
+        final int classIndex = data.classIndex();
+        final int words = (n + 63) / 64;
+
+        final long[][] classBits = new long[numClasses][words];
+        final int[] classCounts = new int[numClasses];
+        double[] classWeights = new double[numClasses];
+        for (int i = 0; i < n; i++) {
+            Instance instance = data.instance(i);
+            double c = instance.value(classIndex);
+            if (!Double.isNaN(c)) {
+                classBits[(int) c][i >>> 6] |= 1L << i;
+                classCounts[(int) c]++;
+                classWeights[(int) c] += instance.weight();
+            }
+        }
+        final double[] meanWeight = new double[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            meanWeight[c] = classCounts[c] == 0 ? 0 : classWeights[c] / classCounts[c];
+        }
+
+        int numAttributes = data.numAttributes();
+        final long[][] bits = new long[numAttributes][];
+        final double[] scores = new double[numAttributes];
+        List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+        for (int j = 0; j < numAttributes; j++) {
+            if (j == classIndex) {
+                scores[j] = Double.NaN;
+                continue;
+            }
+            final int attribute = j;
+            tasks.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    bits[attribute] = pack(data, attribute, words);
+                    scores[attribute] = bits[attribute] == null ? Double.NaN
+                            : score(bits[attribute], classBits, classCounts, meanWeight);
+                    return null;
+                }
+            }));
+        }
+        for (ForkJoinTask<Void> task : tasks) {
+            task.get();
+        }
+
+        // Do mais para o menos informativo; o primeiro de cada grupo de cópias fica.
+        List<Integer> order = new ArrayList<>();
+        for (int j = 0; j < numAttributes; j++) {
+            if (bits[j] != null) {
+                order.add(j);
+            }
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int byScore = Double.compare(scores[b], scores[a]);
+                return byScore != 0 ? byScore : Integer.compare(a, b);
+            }
+        });
+        int[] duplicateOf = new int[numAttributes];
+        Arrays.fill(duplicateOf, -1);
+        boolean[] keep = new boolean[numAttributes];
+        Map<BitKey, Integer> seen = new HashMap<>();
+        int kept = 0;
+        for (int j : order) {
+            BitKey key = new BitKey(canonical(bits[j], n));
+            Integer first = seen.get(key);
+            if (first != null) {
+                duplicateOf[j] = first;
+                continue;
+            }
+            seen.put(key, j);
+            if (scores[j] > minScore && (maxFeatures <= 0 || kept < maxFeatures)) {
+                keep[j] = true;
+                kept++;
+            }
+        }
+        int count = 0;
+        for (int j = 0; j < numAttributes; j++) {
+            if (j == classIndex || bits[j] == null) {
+                keep[j] = true;
+            }
+            if (keep[j]) {
+                count++;
+            }
+        }
+        int[] selected = new int[count];
+        count = 0;
+        for (int j = 0; j < numAttributes; j++) {
+            if (keep[j]) {
+                selected[count++] = j;
+            }
+        }
+        return new Selection(new Instances(data, 0), scores, duplicateOf, selected);
+    }
+
+    // Bitset das linhas com valor 1, ou null se o atributo não for binário.
+    private static long[] pack(Instances data, int attribute, int words) {
+        if (data.attribute(attribute).isNominal() && data.attribute(attribute).numValues() > 2) {
+            return null;
+        }
+        long[] bits = new long[words];
+        for (int i = 0; i < data.numInstances(); i++) {
+            double value = data.instance(i).value(attribute);
+            if (value == 1) {
+                bits[i >>> 6] |= 1L << i;
+            } else if (value != 0) {
+                return null;
+            }
+        }
+        return bits;
+    }
+
+    private double score(long[] bits, long[][] classBits, int[] classCounts, double[] meanWeight) {
+        int numClasses = classBits.length;
+        double[] ones = new double[numClasses];
+        double[] zeros = new double[numClasses];
+        double totalOnes = 0;
+        double total = 0;
+        for (int c = 0; c < numClasses; c++) {
+            int count = 0;
+            long[] cb = classBits[c];
+            for (int w = 0; w < bits.length; w++) {
+                count += Long.bitCount(bits[w] & cb[w]);
+            }
+            ones[c] = count * meanWeight[c];
+            zeros[c] = (classCounts[c] - count) * meanWeight[c];
+            totalOnes += ones[c];
+            total += ones[c] + zeros[c];
+        }
+        if (total <= 0) {
+            return 0;
+        }
+        double totalZeros = total - totalOnes;
+        double result = 0;
+        for (int c = 0; c < numClasses; c++) {
+            double classTotal = ones[c] + zeros[c];
+            result += cell(ones[c], totalOnes * classTotal / total, total);
+            result += cell(zeros[c], totalZeros * classTotal / total, total);
+        }
+        return result;
+    }
+
+    // Contribuição de uma célula observada/esperada para a medida escolhida.
+    private double cell(double observed, double expected, double total) {
+        if (expected <= 0) {
+            return 0;
+        }
+        if (measure == Measure.CHI_SQUARED) {
+            double diff = observed - expected;
+            return diff * diff / expected;
+        }
+        return observed <= 0 ? 0 : observed / total * Math.log(observed / expected) / Math.log(2);
+    }
+
+    // Atributo e complemento na mesma forma: a linha 0 sempre com bit 0.
+    private static long[] canonical(long[] bits, int n) {
+        if (n == 0 || (bits[0] & 1L) == 0) {
+            return bits;
+        }
+        long[] flipped = new long[bits.length];
+        for (int w = 0; w < bits.length; w++) {
+            flipped[w] = ~bits[w];
+        }
+        if (n % 64 != 0) {
+            flipped[bits.length - 1] &= (1L << (n % 64)) - 1;
+        }
+        return flipped;
+    }
+
+    private static final class BitKey {
+        final long[] bits;
+        final int hash;
+
+        BitKey(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BitKey && Arrays.equals(bits, ((BitKey) o).bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -1,12 +1,23 @@
 package com.plantdisease.classification;
 
-import weka.classifiers.Evaluation;
+import weka.core.Instances;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 public class FrontUI extends JFrame {
+    private static final String DATA_DIR = "data";
+
+    private JComboBox<String> datasetComboBox;
+    private JComboBox<String> fusionComboBox;
     private JComboBox<String> modelComboBox;
     private JRadioButton trainTestRadio;
     private JRadioButton crossValRadio;
@@ -15,7 +26,20 @@ public class FrontUI extends JFrame {
     private JButton trainEvaluateButton;
     private JButton showModelSummaryButton;
     private JButton evalMultipleCVButton;
+    private JButton searchButton;
+    private JButton saveModelButton;
+    private JButton loadModelButton;
+    private JButton updateModelButton;
+    private JCheckBox searchAllModelsCheckBox;
+    private JButton cancelButton;
+    private JProgressBar progressBar;
     private JTextArea evaluationTextArea;
+    private JTextArea timingTextArea;
+    private JCheckBox printModelCheckBox;
+    private JCheckBox collapseCheckBox;
+    private JCheckBox streamingCheckBox;
+    private JCheckBox featureSelectionCheckBox;
+    private JButton exportMetricsButton;
 
     // Painel de tuning e campos
     private JPanel tuningPanel;
@@ -36,13 +60,38 @@ public class FrontUI extends JFrame {
     private JTextField rbfHiddenField; // Número de neurônios ocultos (ex.: 10)
     private JTextField rbfSeedField; // Semente para neuronio.
     private JTextField rbfUseCGDFied; // Usar CGD.
+    private JTextField rbfCentersField; // Centros iniciais: 0 = k-means do Weka, 1 = k-means++.
 
     private PlantDiseaseClassifier classifier;
+    private final MultiOrganDiagnosis plantDiagnosis = new MultiOrganDiagnosis();
 
     public FrontUI() {
         super("Portfólio: Classificação de Doenças de Plantas");
         classifier = new PlantDiseaseClassifier();
+        // Experimentos repetidos na interface leem a validação cruzada do disco.
+        classifier.setResultCache(ResultCache.shared());
+        try {
+            // Deixa os tempos visíveis no JConsole/VisualVM.
+            classifier.getMetrics().registerMBean("ui");
+        } catch (Exception e) {
+            System.err.println("Métricas não registradas no JMX: " + e.getMessage());
+        }
+        plantDiagnosis.setMetrics(classifier.getMetrics());
         initUI();
+        // O progresso chega pela thread de trabalho; repassa para a EDT.
+        classifier.setProgressListener(new ProgressListener() {
+            @Override
+            public void onProgress(final int completed, final int total, final String message) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        progressBar.setMaximum(total);
+                        progressBar.setValue(completed);
+                        progressBar.setString(message);
+                    }
+                });
+            }
+        });
     }
 
     private void initUI() {
@@ -53,12 +102,28 @@ public class FrontUI extends JFrame {
         configPanel.setBorder(BorderFactory.createTitledBorder("Configuração"));
 
         // Parte superior: seleção de modelo e método de avaliação
-        JPanel upperPanel = new JPanel(new GridLayout(2, 1));
+        JPanel upperPanel = new JPanel(new GridLayout(3, 1));
+
+        // Seleção da base: uma base ou os três órgãos combinados
+        JPanel datasetPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        datasetPanel.add(new JLabel("Base de Dados:"));
+        String[] datasets = new String[MultiOrganDiagnosis.ORGANS.length + 2];
+        datasets[0] = "Iris";
+        for (int i = 0; i < MultiOrganDiagnosis.ORGANS.length; i++) {
+            datasets[i + 1] = "Murcha de Fitóftora - " + MultiOrganDiagnosis.ORGANS[i];
+        }
+        datasets[datasets.length - 1] = "Planta (Folha + Caule + Fruto)";
+        datasetComboBox = new JComboBox<>(datasets);
+        datasetPanel.add(datasetComboBox);
+        datasetPanel.add(new JLabel("Fusão:"));
+        fusionComboBox = new JComboBox<>(new String[]{"Média", "Produto"});
+        datasetPanel.add(fusionComboBox);
+        upperPanel.add(datasetPanel);
 
         // Seleção de modelo
         JPanel modelPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         modelPanel.add(new JLabel("Selecione o Modelo:"));
-        String[] models = {"SVM (SMO)", "Árvore (J48)", "Boosting (AdaBoostM1)", "RandomForest", "IBk (k-NN)", "Rede Neural RBF"};
+        String[] models = {"SVM (SMO)", "Árvore (J48)", "Boosting (AdaBoostM1)", "RandomForest", "IBk (k-NN)", "Rede Neural RBF", "Rede Neural RBF (paralela)"};
         modelComboBox = new JComboBox<>(models);
         modelPanel.add(modelComboBox);
         upperPanel.add(modelPanel);
@@ -148,6 +213,10 @@ public class FrontUI extends JFrame {
         rbfUseCGDFied = new JTextField("1", 1);
         rbfPanel.add(rbfUseCGDFied);
 
+        rbfPanel.add(new JLabel("Centros k-means++? 1 | 0"));
+        rbfCentersField = new JTextField("0", 1);
+        rbfPanel.add(rbfCentersField);
+
         tuningPanel.add(rbfPanel, "RBF");
 
         configPanel.add(tuningPanel, BorderLayout.SOUTH);
@@ -158,18 +227,62 @@ public class FrontUI extends JFrame {
         evaluationTextArea.setEditable(false);
         evaluationTextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
         JScrollPane scrollPane = new JScrollPane(evaluationTextArea);
-        scrollPane.setBorder(BorderFactory.createTitledBorder("Métricas de Avaliação"));
-        add(scrollPane, BorderLayout.CENTER);
+
+        // Tempos por etapa do pipeline e por fold
+        timingTextArea = new JTextArea();
+        timingTextArea.setEditable(false);
+        timingTextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        printModelCheckBox = new JCheckBox("Imprimir modelo treinado no console", false);
+        classifier.setPrintModel(false);
+        collapseCheckBox = new JCheckBox("Agrupar linhas repetidas no treino", false);
+        streamingCheckBox = new JCheckBox("Avaliação em streaming", false);
+        featureSelectionCheckBox = new JCheckBox("Selecionar atributos", false);
+        exportMetricsButton = new JButton("Exportar Métricas (JSON)");
+        JPanel timingOptionsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        timingOptionsPanel.add(printModelCheckBox);
+        timingOptionsPanel.add(collapseCheckBox);
+        timingOptionsPanel.add(streamingCheckBox);
+        timingOptionsPanel.add(featureSelectionCheckBox);
+        timingOptionsPanel.add(exportMetricsButton);
+        JPanel timingPanel = new JPanel(new BorderLayout());
+        timingPanel.add(new JScrollPane(timingTextArea), BorderLayout.CENTER);
+        timingPanel.add(timingOptionsPanel, BorderLayout.SOUTH);
+
+        JTabbedPane resultTabs = new JTabbedPane();
+        resultTabs.addTab("Métricas de Avaliação", scrollPane);
+        resultTabs.addTab("Tempos", timingPanel);
+        add(resultTabs, BorderLayout.CENTER);
 
         // Painel inferior com botões
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         trainEvaluateButton = new JButton("Train & Evaluate");
         showModelSummaryButton = new JButton("Show Model Summary");
         evalMultipleCVButton = new JButton("Evaluate Multiple CV");
+        searchButton = new JButton("Buscar Hiperparâmetros");
+        searchAllModelsCheckBox = new JCheckBox("Todos os modelos");
+        saveModelButton = new JButton("Salvar Modelo");
+        loadModelButton = new JButton("Carregar Modelo");
+        updateModelButton = new JButton("Adicionar Observações");
+        cancelButton = new JButton("Cancelar");
+        cancelButton.setEnabled(false);
         buttonPanel.add(trainEvaluateButton);
         buttonPanel.add(showModelSummaryButton);
         buttonPanel.add(evalMultipleCVButton);
-        add(buttonPanel, BorderLayout.SOUTH);
+        buttonPanel.add(searchButton);
+        buttonPanel.add(searchAllModelsCheckBox);
+        buttonPanel.add(saveModelButton);
+        buttonPanel.add(loadModelButton);
+        buttonPanel.add(updateModelButton);
+        buttonPanel.add(cancelButton);
+
+        // Barra de progresso dos jobs em segundo plano
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setString("Pronto");
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(progressBar, BorderLayout.NORTH);
+        southPanel.add(buttonPanel, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
 
         // Atualiza painel de tuning conforme modelo selecionado
         modelComboBox.addActionListener(new ActionListener() {
@@ -199,15 +312,75 @@ public class FrontUI extends JFrame {
                 evaluateMultipleCVAction();
             }
         });
+        searchButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                searchHyperparametersAction();
+            }
+        });
+        saveModelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveModelAction();
+            }
+        });
+        loadModelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                loadModelAction();
+            }
+        });
+        updateModelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateModelAction();
+            }
+        });
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                classifier.cancelJobs();
+            }
+        });
+        printModelCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                classifier.setPrintModel(printModelCheckBox.isSelected());
+            }
+        });
+        collapseCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                classifier.setCollapseDuplicates(collapseCheckBox.isSelected());
+            }
+        });
+        streamingCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                classifier.setStreamingEvaluation(streamingCheckBox.isSelected());
+            }
+        });
+        featureSelectionCheckBox.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                classifier.setFeatureSelection(featureSelectionCheckBox.isSelected());
+            }
+        });
+        exportMetricsButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportMetricsAction();
+            }
+        });
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(850, 650);
+        setSize(1200, 650);
         setLocationRelativeTo(null);
     }
 
     private void updateTuningPanel() {
         int index = modelComboBox.getSelectedIndex();
-        // Mapeia o índice para o nome da carta: 0->"SVM", 1->"J48", 2->"AdaBoost", 3->"RandomForest", 4->"IBk", 5->"RBF"
+        // Mapeia o índice para o nome da carta: 0->"SVM", 1->"J48", 2->"AdaBoost", 3->"RandomForest", 4->"IBk", 5 e 6->"RBF"
         switch (index) {
             case 0:
                 tuningCardLayout.show(tuningPanel, "SVM");
@@ -225,6 +398,7 @@ public class FrontUI extends JFrame {
                 tuningCardLayout.show(tuningPanel, "IBk");
                 break;
             case 5:
+            case 6:
                 tuningCardLayout.show(tuningPanel, "RBF");
                 break;
             default:
@@ -232,129 +406,395 @@ public class FrontUI extends JFrame {
         }
     }
 
+    /**
+     * Retorna os textos dos campos de tuning do modelo, na ordem de setClassifier.
+     *
+     * @param modelOption opção do modelo (1 a 7).
+     * @return textos dos campos.
+     */
+    private String[] tuningTexts(int modelOption) {
+        switch (modelOption) {
+            case 1: // SVM
+                return new String[]{svmCField.getText(), svmKernelExpField.getText()};
+            case 2: // J48
+                return new String[]{j48ConfidenceField.getText(), j48MinNumField.getText()};
+            case 3: // AdaBoost
+                return new String[]{adaBoostIterationsField.getText()};
+            case 4: // RandomForest
+                return new String[]{rfNumTreesField.getText()};
+            case 5: // IBk
+                return new String[]{ibkKField.getText()};
+            case 6: // RBF
+            case 7: // RBF paralela
+                return new String[]{rbfHiddenField.getText(), rbfSeedField.getText(), rbfUseCGDFied.getText(),
+                        rbfCentersField.getText()};
+            default:
+                throw new IllegalArgumentException("Seleção de modelo inválida.");
+        }
+    }
+
+    /**
+     * Lê os parâmetros de tuning do painel correspondente ao modelo.
+     *
+     * @param modelOption opção do modelo (1 a 7).
+     * @return vetor com os parâmetros de tuning.
+     */
+    private double[] readTuningParams(int modelOption) {
+        String[] texts = tuningTexts(modelOption);
+        double[] tuningParams = new double[texts.length];
+        for (int i = 0; i < texts.length; i++) {
+            tuningParams[i] = Double.parseDouble(texts[i].trim());
+        }
+        return tuningParams;
+    }
+
+    /**
+     * Monta os candidatos da busca de um modelo. Campos com valores separados por
+     * vírgula (ex.: "5, 10, 20") definem a grade; se nenhum campo tiver lista, usa
+     * o espaço padrão do modelo.
+     *
+     * @param modelOption opção do modelo (1 a 7).
+     * @return candidatos da busca.
+     */
+    private List<HyperparameterSearch.Candidate> readSearchCandidates(int modelOption) {
+        String[] texts = tuningTexts(modelOption);
+        boolean hasList = false;
+        for (String text : texts) {
+            hasList |= text.contains(",");
+        }
+        if (!hasList) {
+            return HyperparameterSearch.SearchSpace.defaultFor(modelOption).grid();
+        }
+        HyperparameterSearch.SearchSpace space = new HyperparameterSearch.SearchSpace(modelOption);
+        for (int i = 0; i < texts.length; i++) {
+            String[] parts = texts[i].split(",");
+            double[] values = new double[parts.length];
+            for (int j = 0; j < parts.length; j++) {
+                values[j] = Double.parseDouble(parts[j].trim());
+            }
+            space.values("parâmetro " + (i + 1), values);
+        }
+        return space.grid();
+    }
+
     private void trainAndEvaluate() {
         try {
-            // Carrega a base de dados (ex.: Iris normalizada e balanceada)
-            classifier.loadData("data/Iris.csv");
-
-            // Determina a opção de modelo (1 a 6)
-            int modelOption = modelComboBox.getSelectedIndex() + 1;
-            double[] tuningParams;
-            switch (modelOption) {
-                case 1: // SVM
-                    tuningParams = new double[2];
-                    tuningParams[0] = Double.parseDouble(svmCField.getText());
-                    tuningParams[1] = Double.parseDouble(svmKernelExpField.getText());
-                    break;
-                case 2: // J48
-                    tuningParams = new double[2];
-                    tuningParams[0] = Double.parseDouble(j48ConfidenceField.getText());
-                    tuningParams[1] = Double.parseDouble(j48MinNumField.getText());
-                    break;
-                case 3: // AdaBoost
-                    tuningParams = new double[1];
-                    tuningParams[0] = Double.parseDouble(adaBoostIterationsField.getText());
-                    break;
-                case 4: // RandomForest
-                    tuningParams = new double[1];
-                    tuningParams[0] = Double.parseDouble(rfNumTreesField.getText());
-                    break;
-                case 5: // IBk
-                    tuningParams = new double[1];
-                    tuningParams[0] = Double.parseDouble(ibkKField.getText());
-                    break;
-                case 6: // RBF
-                    tuningParams = new double[3];
-                    tuningParams[0] = Double.parseDouble(rbfHiddenField.getText());
-                    tuningParams[1] = Double.parseDouble(rbfSeedField.getText());
-                    tuningParams[2] = Double.parseDouble(rbfUseCGDFied.getText());
-                    break;
-                default:
-                    throw new IllegalArgumentException("Seleção de modelo inválida.");
+            // Lê a configuração na EDT; o trabalho pesado roda no job.
+            final int modelOption = modelComboBox.getSelectedIndex() + 1;
+            final double[] tuningParams = readTuningParams(modelOption);
+            final boolean useTrainTest = trainTestRadio.isSelected();
+            final double trainPercentage = Double.parseDouble(trainPercentageField.getText());
+            final int folds = Integer.parseInt(foldsField.getText());
+            if (plantSelected()) {
+                diagnosePlant(modelOption, tuningParams);
+                return;
             }
-            // Configura o classificador com os parâmetros
-            classifier.setClassifier(modelOption, tuningParams);
-
-            // Executa avaliação conforme método selecionado
-            if (trainTestRadio.isSelected()) {
-                double trainPercentage = Double.parseDouble(trainPercentageField.getText());
-                classifier.trainTestSplit(trainPercentage);
-                classifier.trainClassifier();
-                classifier.evaluateModel();
-            } else {
-                // Para CV, treina com os dados completos e avalia com o número de folds informado
-                classifier.trainClassifier();
-                int folds = Integer.parseInt(foldsField.getText());
-                classifier.evaluateModelCV(folds);
+            final String dataPath = selectedDataPath();
+
+            submitJob(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    // Carrega a base de dados (ex.: Iris normalizada e balanceada)
+                    classifier.loadData(dataPath);
+                    // Configura o classificador com os parâmetros
+                    classifier.setClassifier(modelOption, tuningParams);
+
+                    // Executa avaliação conforme método selecionado
+                    if (useTrainTest) {
+                        classifier.trainTestSplit(trainPercentage);
+                        classifier.trainClassifier();
+                        classifier.evaluateModel();
+                    } else {
+                        // Para CV, treina com os dados completos e avalia com o número de folds informado
+                        classifier.trainClassifier();
+                        classifier.evaluateModelCV(folds);
+                    }
+
+                    // Monta o texto com os resultados da avaliação
+                    String text = classifier.evaluationText("\nResultados\n======\n");
+                    FeatureSelector.Selection selection = classifier.getFeatureSelection();
+                    return selection == null ? text
+                            : text + "\nSeleção de Atributos\n======\n" + selection + "\n";
+                }
+            });
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Erro: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private boolean plantSelected() {
+        return datasetComboBox.getSelectedIndex() == MultiOrganDiagnosis.ORGANS.length + 1;
+    }
+
+    /**
+     * @return arquivo da base selecionada.
+     * @throws IllegalArgumentException se a seleção for a planta (três órgãos).
+     */
+    private String selectedDataPath() {
+        int index = datasetComboBox.getSelectedIndex();
+        if (index == 0) {
+            return DATA_DIR + "/Iris.csv";
+        }
+        if (index <= MultiOrganDiagnosis.ORGANS.length) {
+            String organ = MultiOrganDiagnosis.ORGANS[index - 1];
+            return MultiOrganDiagnosis.defaultDatasets(new File(DATA_DIR)).get(organ).getPath();
+        }
+        throw new IllegalArgumentException("Selecione uma base individual para esta ação.");
+    }
+
+    /**
+     * Treina um modelo por órgão ao mesmo tempo e diagnostica em lote as plantas das bases
+     * (a linha i de cada base é a mesma planta).
+     */
+    private void diagnosePlant(final int modelOption, final double[] tuningParams) {
+        plantDiagnosis.setFusion(fusionComboBox.getSelectedIndex() == 0
+                ? MultiOrganDiagnosis.Fusion.AVERAGE : MultiOrganDiagnosis.Fusion.PRODUCT);
+        submitJob(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                Map<String, File> datasets = MultiOrganDiagnosis.defaultDatasets(new File(DATA_DIR));
+                long start = System.nanoTime();
+                plantDiagnosis.train(datasets, modelOption, tuningParams);
+                double trainMillis = (System.nanoTime() - start) / 1e6;
+
+                StringBuilder sb = new StringBuilder("Diagnóstico combinado (fusão: ")
+                        .append(plantDiagnosis.getFusion()).append(")\n\n");
+                sb.append(String.format("%-8s %11s %12s%n", "Órgão", "Instâncias", "Treino (ms)"));
+                double serialMillis = 0;
+                for (MultiOrganDiagnosis.OrganModel organ : plantDiagnosis.getOrgans()) {
+                    serialMillis += organ.getTrainNanos() / 1e6;
+                    sb.append(String.format("%-8s %11d %12.1f%n", organ.getName(), organ.getNumInstances(),
+                            organ.getTrainNanos() / 1e6));
+                }
+                sb.append(String.format("%nTreino concorrente: %.1f ms (soma dos órgãos: %.1f ms)%n",
+                        trainMillis, serialMillis));
+
+                Map<String, double[][]> rows = new LinkedHashMap<>();
+                int plants = Integer.MAX_VALUE;
+                for (Map.Entry<String, File> dataset : datasets.entrySet()) {
+                    Instances raw = PlantDiseaseClassifier.readData(dataset.getValue().getPath());
+                    double[][] organRows = new double[raw.numInstances()][];
+                    for (int i = 0; i < organRows.length; i++) {
+                        organRows[i] = raw.instance(i).toDoubleArray();
+                    }
+                    rows.put(dataset.getKey(), organRows);
+                    plants = Math.min(plants, organRows.length);
+                }
+                String[] labels = plantDiagnosis.getLabels();
+                int[] diagnoses = new int[plants];
+                start = System.nanoTime();
+                plantDiagnosis.diagnoseBatch(rows, plants, diagnoses, null);
+                double diagnoseMillis = (System.nanoTime() - start) / 1e6;
+                int[] counts = new int[labels.length];
+                for (int diagnosis : diagnoses) {
+                    if (diagnosis >= 0) {
+                        counts[diagnosis]++;
+                    }
+                }
+                sb.append(String.format("Diagnóstico em lote de %d plantas: %.1f ms%n%n", plants, diagnoseMillis));
+                for (int l = 0; l < labels.length; l++) {
+                    sb.append("Classe ").append(labels[l]).append(": ").append(counts[l]).append(" planta(s)\n");
+                }
+                return sb.toString();
             }
+        });
+    }
 
-            // Exibe resultados da avaliação
-            Evaluation eval = classifier.getEvaluation();
-            String evalText = eval.toSummaryString("\nResultados\n======\n", true)
-                    + "\n" + eval.toClassDetailsString()
-                    + "\n" + eval.toMatrixString();
-            evaluationTextArea.setText(evalText);
+    private void evaluateMultipleCVAction() {
+        try {
+            // Determina a opção de modelo e os parâmetros (como no método anterior)
+            final int modelOption = modelComboBox.getSelectedIndex() + 1;
+            final double[] tuningParams = readTuningParams(modelOption);
+            final String dataPath = selectedDataPath();
+
+            submitJob(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    // Carrega a base de dados (normalizada e balanceada)
+                    classifier.loadData(dataPath);
+                    // Configura o classificador
+                    classifier.setClassifier(modelOption, tuningParams);
+                    // Para avaliação múltipla, usamos validação cruzada para os k: 5, 10, 15, 20, 25
+                    int[] foldsArray = {5, 10, 15, 20, 25};
+                    return classifier.evaluateMultipleCV(foldsArray);
+                }
+            });
         } catch (Exception ex) {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Erro: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    private void evaluateMultipleCVAction() {
+    private void searchHyperparametersAction() {
         try {
-            // Carrega a base de dados (normalizada e balanceada)
-            classifier.loadData("data/Iris.csv");
-
-            // Determina a opção de modelo e configura parâmetros (como no método anterior)
-            int modelOption = modelComboBox.getSelectedIndex() + 1;
-            double[] tuningParams;
-            switch (modelOption) {
-                case 1:
-                    tuningParams = new double[2];
-                    tuningParams[0] = Double.parseDouble(svmCField.getText());
-                    tuningParams[1] = Double.parseDouble(svmKernelExpField.getText());
-                    break;
-                case 2:
-                    tuningParams = new double[2];
-                    tuningParams[0] = Double.parseDouble(j48ConfidenceField.getText());
-                    tuningParams[1] = Double.parseDouble(j48MinNumField.getText());
-                    break;
-                case 3:
-                    tuningParams = new double[1];
-                    tuningParams[0] = Double.parseDouble(adaBoostIterationsField.getText());
-                    break;
-                case 4:
-                    tuningParams = new double[1];
-                    tuningParams[0] = Double.parseDouble(rfNumTreesField.getText());
-                    break;
-                case 5:
-                    tuningParams = new double[1];
-                    tuningParams[0] = Double.parseDouble(ibkKField.getText());
-                    break;
-                case 6:
-                    tuningParams = new double[1];
-                    tuningParams[0] = Double.parseDouble(rbfHiddenField.getText());
-                    break;
-                default:
-                    throw new IllegalArgumentException("Seleção de modelo inválida.");
+            final int modelOption = modelComboBox.getSelectedIndex() + 1;
+            final int folds = Integer.parseInt(foldsField.getText());
+            final String dataPath = selectedDataPath();
+            final List<HyperparameterSearch.Candidate> candidates = new ArrayList<>();
+            if (searchAllModelsCheckBox.isSelected()) {
+                for (int option = 1; option <= 6; option++) {
+                    // As duas RBF são o mesmo modelo: entra só a selecionada (ou a sequencial).
+                    int current = option == 6 && modelOption == 7 ? 7 : option;
+                    candidates.addAll(current == modelOption
+                            ? readSearchCandidates(current)
+                            : HyperparameterSearch.SearchSpace.defaultFor(current).grid());
+                }
+            } else {
+                candidates.addAll(readSearchCandidates(modelOption));
             }
-            // Configura o classificador
-            classifier.setClassifier(modelOption, tuningParams);
-            // Para avaliação múltipla, usamos validação cruzada para os k: 5, 10, 15, 20, 25
-            int[] foldsArray = {5, 10, 15, 20, 25};
-            String table = classifier.evaluateMultipleCV(foldsArray);
-            evaluationTextArea.setText(table);
+
+            submitJob(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    classifier.loadData(dataPath);
+                    List<HyperparameterSearch.Candidate> leaderboard =
+                            classifier.searchHyperparameters(candidates, folds);
+                    HyperparameterSearch.Candidate best = leaderboard.get(0);
+                    return "Busca de hiperparâmetros: " + candidates.size() + " candidatos, "
+                            + folds + " folds (successive halving)\n"
+                            + "Melhor: modelo " + best.getModelOption() + " "
+                            + Arrays.toString(best.getParams()) + "\n\n"
+                            + HyperparameterSearch.leaderboard(leaderboard, 0);
+                }
+            });
         } catch (Exception ex) {
             ex.printStackTrace();
             JOptionPane.showMessageDialog(this, "Erro: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    private void saveModelAction() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("modelo.pdcm"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = chooser.getSelectedFile();
+        // Entra na fila depois de um treino pendente, que é o modelo a salvar.
+        submitJob(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                classifier.saveModel(file.getPath());
+                return "Modelo salvo em " + file.getAbsolutePath() + " (" + file.length() + " bytes).";
+            }
+        });
+    }
+
+    private void loadModelAction() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = chooser.getSelectedFile();
+        submitJob(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                long start = System.nanoTime();
+                classifier.loadModel(file.getPath());
+                double millis = (System.nanoTime() - start) / 1e6;
+                return "Modelo carregado de " + file.getAbsolutePath()
+                        + String.format(" em %.1f ms", millis) + ", sem retreinar.";
+            }
+        });
+    }
+
+    private void updateModelAction() {
+        JFileChooser chooser = new JFileChooser("data");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = chooser.getSelectedFile();
+        // Entra na fila depois do treino pendente, que é o modelo a atualizar.
+        submitJob(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                long start = System.nanoTime();
+                Instances observations = PlantDiseaseClassifier.readData(file.getPath());
+                IncrementalUpdater.Mode mode = classifier.updateModel(observations);
+                double millis = (System.nanoTime() - start) / 1e6;
+                return observations.numInstances() + " observações de " + file.getName() + " adicionadas ("
+                        + mode + String.format(") em %.1f ms.", millis)
+                        + "\nBase atual: " + classifier.getData().numInstances() + " instâncias."
+                        + "\nA avaliação exibida anteriormente não foi recalculada.";
+            }
+        });
+    }
+
+    private void exportMetricsAction() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("metricas.json"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        try {
+            classifier.getMetrics().writeJson(file);
+        } catch (Exception ex) {
+            ex.printStackTrace();
+            JOptionPane.showMessageDialog(this, "Erro: " + ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Enfileira um job no classificador e exibe o texto resultante na área de métricas.
+     * Os botões continuam ativos: um novo clique entra na fila.
+     *
+     * @param task tarefa que produz o texto a exibir.
+     */
+    private void submitJob(Callable<String> task) {
+        cancelButton.setEnabled(true);
+        progressBar.setValue(0);
+        progressBar.setString("Na fila (" + (classifier.pendingJobs() + 1) + " job(s))");
+        classifier.submitJob(task, new JobEngine.JobListener<String>() {
+            @Override
+            public void onSuccess(final String result) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        evaluationTextArea.setText(result);
+                        jobFinished("Concluído");
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(final Exception error) {
+                error.printStackTrace();
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        jobFinished("Erro");
+                        JOptionPane.showMessageDialog(FrontUI.this, "Erro: " + error.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            }
+
+            @Override
+            public void onCancelled() {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        jobFinished("Cancelado");
+                    }
+                });
+            }
+        });
+    }
+
+    private void jobFinished(String status) {
+        int pending = classifier.pendingJobs();
+        cancelButton.setEnabled(pending > 0);
+        progressBar.setString(pending > 0 ? status + " - " + pending + " job(s) na fila" : status);
+        timingTextArea.setText(classifier.getMetrics().formatTable());
+    }
+
     private void showModelSummary() {
         try {
-            String summary = (classifier.getEvaluation() != null)
-                    ? classifier.getEvaluation().toSummaryString()
-                    : "Modelo não treinado ainda.";
+            String summary = classifier.evaluationText("");
+            if (summary == null) {
+                summary = "Modelo não treinado ainda.";
+            }
             JOptionPane.showMessageDialog(this, summary, "Resumo do Modelo", JOptionPane.INFORMATION_MESSAGE);
         } catch (Exception ex) {
             ex.printStackTrace();
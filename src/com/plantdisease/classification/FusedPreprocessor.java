@@ -0,0 +1,157 @@
+package com.plantdisease.classification;
+
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+
+/**
+ * Normalize + ClassBalancer numa passada de estatísticas e uma de escrita.
+ *
+ * Com Filter.useFilter cada filtro materializa uma cópia completa da base (bruta,
+ * normalizada e balanceada ao mesmo tempo no pico). Aqui mínimos, máximos e soma de
+ * pesos por classe são calculados juntos numa única leitura, e cada linha é escrita
+ * uma vez, já normalizada e com o peso balanceado, na base de saída. Lendo do CSV em
+ * colunas (ColumnarDataset), as estatísticas saem das colunas primitivas e a base bruta
+ * nunca vira Instances.
+ *
+ * As regras são as do Normalize (escala 1, translação 0, classe e atributos não
+ * numéricos intactos, atributo constante vira 0) e do ClassBalancer (cada classe passa
+ * a somar total / numClasses); o estado ajustado fica no PreprocessingModel, que
+ * aplica a mesma normalização na classificação, e nas somas por classe usadas por
+ * IncrementalUpdater.
+ */
+public class FusedPreprocessor {
+
+    private FusedPreprocessor() {
+    }
+
+    /**
+     * Pré-processa uma base já lida. A base de entrada não é alterada.
+     *
+     * @param raw base bruta com o atributo de classe definido.
+     * @return base normalizada e balanceada, com o estado ajustado.
+     */
+    public static PreparedDataset preprocess(Instances raw) {
+        Instances header = checkedHeader(raw);
+        int numAttributes = header.numAttributes();
+        int classIndex = header.classIndex();
+        boolean[] numeric = numericColumns(header);
+        double[] min = nanArray(numAttributes);
+        double[] max = nanArray(numAttributes);
+        double[] sums = new double[header.numClasses()];
+        for (int i = 0; i < raw.numInstances(); i++) {
+            Instance instance = raw.instance(i);
+            for (int j = 0; j < numAttributes; j++) {
+                if (numeric[j]) {
+                    accumulate(min, max, j, instance.value(j));
+                }
+            }
+            double c = instance.value(classIndex);
+            if (!Double.isNaN(c)) {
+                sums[(int) c] += instance.weight();
+            }
+        }
+        PreprocessingModel model = new PreprocessingModel(header, min, max, 1.0, 0.0);
+        double[] factors = IncrementalUpdater.balanceFactors(sums);
+        Instances result = new Instances(header, raw.numInstances());
+        for (int i = 0; i < raw.numInstances(); i++) {
+            Instance instance = raw.instance(i);
+            double[] values = instance.toDoubleArray();
+            model.normalize(values, values);
+            result.add(new DenseInstance(balancedWeight(instance.weight(), values[classIndex], factors), values));
+        }
+        return new PreparedDataset(result, model, sums);
+    }
+
+    /**
+     * Pré-processa direto das colunas lidas do CSV (todas as linhas com peso 1).
+     *
+     * @param columns base em colunas.
+     * @param classIndex índice da coluna de classe.
+     * @return base normalizada e balanceada, com o estado ajustado.
+     */
+    public static PreparedDataset preprocess(ColumnarDataset columns, int classIndex) {
+        Instances header = checkedHeader(columns.header(classIndex));
+        int numAttributes = header.numAttributes();
+        int numRows = columns.numRows();
+        boolean[] numeric = numericColumns(header);
+        double[] min = nanArray(numAttributes);
+        double[] max = nanArray(numAttributes);
+        for (int j = 0; j < numAttributes; j++) {
+            if (numeric[j]) {
+                double[] column = columns.column(j);
+                for (int i = 0; i < numRows; i++) {
+                    accumulate(min, max, j, column[i]);
+                }
+            }
+        }
+        double[] sums = new double[header.numClasses()];
+        double[] classColumn = columns.column(classIndex);
+        for (int i = 0; i < numRows; i++) {
+            if (!Double.isNaN(classColumn[i])) {
+                sums[(int) classColumn[i]] += 1.0;
+            }
+        }
+        PreprocessingModel model = new PreprocessingModel(header, min, max, 1.0, 0.0);
+        double[] factors = IncrementalUpdater.balanceFactors(sums);
+        double[][] source = new double[numAttributes][];
+        for (int j = 0; j < numAttributes; j++) {
+            source[j] = columns.column(j);
+        }
+        Instances result = new Instances(header, numRows);
+        for (int i = 0; i < numRows; i++) {
+            double[] values = new double[numAttributes];
+            for (int j = 0; j < numAttributes; j++) {
+                values[j] = source[j][i];
+            }
+            model.normalize(values, values);
+            result.add(new DenseInstance(balancedWeight(1.0, values[classIndex], factors), values));
+        }
+        return new PreparedDataset(result, model, sums);
+    }
+
+    private static Instances checkedHeader(Instances data) {
+        if (data.classIndex() < 0) {
+            throw new IllegalArgumentException("Atributo de classe não definido.");
+        }
+        if (!data.classAttribute().isNominal()) {
+            throw new IllegalArgumentException("O balanceamento de classes requer classe nominal.");
+        }
+        return new Instances(data, 0);
+    }
+
+    private static boolean[] numericColumns(Instances header) {
+        boolean[] numeric = new boolean[header.numAttributes()];
+        for (int j = 0; j < numeric.length; j++) {
+            numeric[j] = j != header.classIndex() && header.attribute(j).isNumeric();
+        }
+        return numeric;
+    }
+
+    private static double[] nanArray(int length) {
+        double[] array = new double[length];
+        Arrays.fill(array, Double.NaN);
+        return array;
+    }
+
+    private static void accumulate(double[] min, double[] max, int j, double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (Double.isNaN(min[j])) {
+            min[j] = value;
+            max[j] = value;
+        } else if (value < min[j]) {
+            min[j] = value;
+        } else if (value > max[j]) {
+            max[j] = value;
+        }
+    }
+
+    // Linhas sem classe ficam com o peso original, como no ClassBalancer.
+    private static double balancedWeight(double weight, double classValue, double[] factors) {
+        return Double.isNaN(classValue) ? weight : weight * factors[(int) classValue];
+    }
+}
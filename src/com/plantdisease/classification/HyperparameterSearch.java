@@ -0,0 +1,486 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Busca de hiperparâmetros com successive halving sobre subconjuntos de folds.
+ *
+ * Todos os candidatos usam o mesmo plano de validação cruzada (mesmo Random e mesma
+ * estratificação). Na primeira rodada cada candidato é avaliado em poucos folds; só a
+ * melhor fração (1/eta) segue para a rodada seguinte, que acrescenta folds até chegar
+ * ao total. Os folds já avaliados são reaproveitados, e os pares (candidato, fold) de
+ * uma rodada são treinados juntos no pool do ParallelCrossValidator.
+ *
+ * Os candidatos são montados com PlantDiseaseClassifier.createClassifier, então
+ * podem misturar as seis opções de modelo numa mesma busca.
+ */
+public class HyperparameterSearch {
+
+    private static final int RANGE_GRID_POINTS = 5;
+
+    private final ParallelCrossValidator cvEngine;
+    private int folds = 10;
+    private int minFolds = 2;
+    private int eta = 3;
+    private long seed = 1;
+
+    public HyperparameterSearch() {
+        this(new ParallelCrossValidator());
+    }
+
+    /**
+     * @param cvEngine motor de validação cruzada (define o pool usado).
+     */
+    public HyperparameterSearch(ParallelCrossValidator cvEngine) {
+        this.cvEngine = cvEngine;
+    }
+
+    /**
+     * @param folds número total de folds da validação cruzada final (padrão 10).
+     */
+    public void setFolds(int folds) {
+        this.folds = folds;
+    }
+
+    /**
+     * @param minFolds folds avaliados por candidato na primeira rodada (padrão 2).
+     */
+    public void setMinFolds(int minFolds) {
+        this.minFolds = minFolds;
+    }
+
+    /**
+     * @param eta fator de redução: a cada rodada restam 1/eta dos candidatos e o
+     *            número de folds é multiplicado por eta (padrão 3).
+     */
+    public void setEta(int eta) {
+        this.eta = eta;
+    }
+
+    /**
+     * @param seed semente do plano de folds (padrão 1, como nas demais avaliações).
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Espaço de busca de uma opção de modelo. Cada dimensão corresponde a uma posição
+     * de tuningParams em setClassifier: uma lista de valores ou um intervalo.
+     */
+    public static class SearchSpace {
+        private final int modelOption;
+        private final List<Dimension> dimensions = new ArrayList<>();
+
+        /**
+         * @param modelOption opção do modelo (1 a 7).
+         */
+        public SearchSpace(int modelOption) {
+            this.modelOption = modelOption;
+        }
+
+        public int getModelOption() {
+            return modelOption;
+        }
+
+        /**
+         * Acrescenta uma dimensão com valores fixos.
+         *
+         * @param name nome do parâmetro (usado nas mensagens de erro).
+         * @param values valores possíveis.
+         * @return este espaço.
+         */
+        public SearchSpace values(String name, double... values) {
+            if (values.length == 0) {
+                throw new IllegalArgumentException("Parâmetro " + name + " sem valores.");
+            }
+            dimensions.add(new Dimension(values.clone(), 0, 0, false, false));
+            return this;
+        }
+
+        /**
+         * Acrescenta uma dimensão contínua ou inteira.
+         *
+         * @param name nome do parâmetro.
+         * @param min limite inferior.
+         * @param max limite superior.
+         * @param integer arredonda os valores para inteiros.
+         * @param logScale amostra em escala logarítmica (min deve ser positivo).
+         * @return este espaço.
+         */
+        public SearchSpace range(String name, double min, double max, boolean integer, boolean logScale) {
+            if (min > max || (logScale && min <= 0)) {
+                throw new IllegalArgumentException("Intervalo inválido para " + name + ".");
+            }
+            dimensions.add(new Dimension(null, min, max, integer, logScale));
+            return this;
+        }
+
+        /**
+         * Produto cartesiano das dimensões. Intervalos viram pontos igualmente espaçados.
+         *
+         * @return candidatos, sem repetição.
+         */
+        public List<Candidate> grid() {
+            List<double[]> combinations = new ArrayList<>();
+            combinations.add(new double[0]);
+            for (Dimension dimension : dimensions) {
+                double[] values = dimension.gridValues();
+                List<double[]> next = new ArrayList<>(combinations.size() * values.length);
+                for (double[] prefix : combinations) {
+                    for (double value : values) {
+                        double[] params = Arrays.copyOf(prefix, prefix.length + 1);
+                        params[prefix.length] = value;
+                        next.add(params);
+                    }
+                }
+                combinations = next;
+            }
+            return toCandidates(combinations);
+        }
+
+        /**
+         * Amostragem aleatória do espaço.
+         *
+         * @param count número de amostras.
+         * @param seed semente.
+         * @return candidatos, sem repetição (pode haver menos que count).
+         */
+        public List<Candidate> sample(int count, long seed) {
+            Random random = new Random(seed);
+            List<double[]> combinations = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                double[] params = new double[dimensions.size()];
+                for (int d = 0; d < params.length; d++) {
+                    params[d] = dimensions.get(d).sample(random);
+                }
+                combinations.add(params);
+            }
+            return toCandidates(combinations);
+        }
+
+        private List<Candidate> toCandidates(List<double[]> combinations) {
+            Set<String> seen = new LinkedHashSet<>();
+            List<Candidate> candidates = new ArrayList<>(combinations.size());
+            for (double[] params : combinations) {
+                if (seen.add(Arrays.toString(params))) {
+                    candidates.add(new Candidate(modelOption, params));
+                }
+            }
+            return candidates;
+        }
+
+        /**
+         * Espaço padrão de cada modelo, na ordem dos parâmetros de setClassifier.
+         * RandomForest ignora o número de árvores em setClassifier, então só tem um ponto.
+         *
+         * @param modelOption opção do modelo (1 a 7).
+         * @return espaço de busca.
+         */
+        public static SearchSpace defaultFor(int modelOption) {
+            SearchSpace space = new SearchSpace(modelOption);
+            switch (modelOption) {
+                case 1:
+                    return space.values("C", 0.1, 1, 10, 100).values("Expoente", 1, 2, 3);
+                case 2:
+                    return space.values("Confiança", 0.05, 0.1, 0.25, 0.4).values("MinNumObj", 1, 2, 5, 10);
+                case 3:
+                    return space.values("Iterações", 10, 25, 50, 100);
+                case 4:
+                    return space.values("Árvores", 100);
+                case 5:
+                    return space.values("k", 1, 3, 5, 7, 9, 15);
+                case 6:
+                case 7:
+                    return space.values("Neurônios", 2, 5, 10, 20).values("Seed", 1, 42).values("CGD", 0, 1);
+                default:
+                    throw new IllegalArgumentException("Opção de modelo inválida. Use 1 a 7.");
+            }
+        }
+    }
+
+    private static class Dimension {
+        final double[] values;
+        final double min;
+        final double max;
+        final boolean integer;
+        final boolean logScale;
+
+        Dimension(double[] values, double min, double max, boolean integer, boolean logScale) {
+            this.values = values;
+            this.min = min;
+            this.max = max;
+            this.integer = integer;
+            this.logScale = logScale;
+        }
+
+        double[] gridValues() {
+            if (values != null) {
+                return values;
+            }
+            double[] points = new double[RANGE_GRID_POINTS];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = at((double) i / (points.length - 1));
+            }
+            return points;
+        }
+
+        double sample(Random random) {
+            if (values != null) {
+                return values[random.nextInt(values.length)];
+            }
+            return at(random.nextDouble());
+        }
+
+        // Ponto na fração t (0..1) do intervalo.
+        private double at(double t) {
+            double value = logScale
+                    ? Math.exp(Math.log(min) + t * (Math.log(max) - Math.log(min)))
+                    : min + t * (max - min);
+            return integer ? Math.rint(value) : value;
+        }
+    }
+
+    /**
+     * Uma configuração avaliada: opção de modelo, parâmetros e resultado parcial.
+     */
+    public static class Candidate {
+        private final int modelOption;
+        private final double[] params;
+        private final List<ForkJoinTask<double[][]>> foldTasks = new ArrayList<>();
+        private Evaluation evaluation;
+        private String error;
+        private int rank;
+
+        public Candidate(int modelOption, double[] params) {
+            this.modelOption = modelOption;
+            this.params = params.clone();
+        }
+
+        public int getModelOption() {
+            return modelOption;
+        }
+
+        public double[] getParams() {
+            return params.clone();
+        }
+
+        /**
+         * @return folds em que o candidato foi avaliado.
+         */
+        public int getFoldsEvaluated() {
+            return evaluation == null ? 0 : foldTasks.size();
+        }
+
+        /**
+         * @return taxa de acerto (%) nos folds avaliados, ou NaN se não avaliado ou com erro.
+         */
+        public double getAccuracy() {
+            return evaluation == null ? Double.NaN : evaluation.pctCorrect();
+        }
+
+        /**
+         * @return kappa nos folds avaliados, ou NaN.
+         */
+        public double getKappa() {
+            return evaluation == null ? Double.NaN : evaluation.kappa();
+        }
+
+        /**
+         * @return avaliação acumulada dos folds avaliados (null se não avaliado).
+         */
+        public Evaluation getEvaluation() {
+            return evaluation;
+        }
+
+        /**
+         * @return mensagem de erro do treino, ou null.
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return posição no ranking (1 = melhor).
+         */
+        public int getRank() {
+            return rank;
+        }
+
+        /**
+         * @return descrição curta, ex.: "6 [10.0, 42.0, 1.0]".
+         */
+        public String describe() {
+            return modelOption + " " + Arrays.toString(params);
+        }
+    }
+
+    /**
+     * Executa o successive halving sobre os candidatos.
+     *
+     * @param data base de dados (não é modificada).
+     * @param candidates candidatos (podem ser de opções de modelo diferentes).
+     * @param listener progresso por fold treinado (pode ser null).
+     * @return candidatos ordenados do melhor para o pior.
+     * @throws Exception se a busca for interrompida ou nenhum candidato puder ser treinado.
+     */
+    public List<Candidate> run(Instances data, List<Candidate> candidates, ProgressListener listener) throws Exception {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum candidato para avaliar.");
+        }
+        if (folds < 2 || minFolds < 1 || eta < 2) {
+            throw new IllegalArgumentException("Configuração inválida: folds >= 2, minFolds >= 1 e eta >= 2.");
+        }
+        ParallelCrossValidator.FoldPlan plan = ParallelCrossValidator.plan(data, folds, new Random(seed));
+        ParallelCrossValidator.Progress progress =
+                new ParallelCrossValidator.Progress(listener, 0, scheduledFolds(candidates.size()));
+        List<Candidate> alive = new ArrayList<>(candidates);
+        int rungFolds = Math.min(minFolds, folds);
+        while (true) {
+            evaluateRung(plan, alive, rungFolds, progress);
+            List<Candidate> ranked = rank(alive);
+            if (rungFolds == folds) {
+                break;
+            }
+            int keep = Math.max(1, (int) Math.ceil((double) alive.size() / eta));
+            alive = new ArrayList<>(ranked.subList(0, keep));
+            rungFolds = Math.min(folds, rungFolds * eta);
+        }
+        List<Candidate> leaderboard = rank(candidates);
+        if (leaderboard.get(0).getError() != null) {
+            throw new Exception("Nenhum candidato pôde ser treinado: " + leaderboard.get(0).getError());
+        }
+        for (int i = 0; i < leaderboard.size(); i++) {
+            leaderboard.get(i).rank = i + 1;
+        }
+        return leaderboard;
+    }
+
+    // Treina os folds que faltam a cada candidato, todos juntos no pool, e atualiza as avaliações.
+    private void evaluateRung(ParallelCrossValidator.FoldPlan plan, List<Candidate> alive, int rungFolds,
+                              ParallelCrossValidator.Progress progress) throws Exception {
+        List<ForkJoinTask<double[][]>> submitted = new ArrayList<>();
+        try {
+            for (Candidate candidate : alive) {
+                if (candidate.error != null) {
+                    continue;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Execução cancelada.");
+                }
+                Classifier template;
+                try {
+                    template = PlantDiseaseClassifier.createClassifier(candidate.modelOption, candidate.params);
+                } catch (Exception e) {
+                    candidate.error = e.getMessage();
+                    continue;
+                }
+                List<ForkJoinTask<double[][]>> tasks =
+                        cvEngine.submit(plan, template, candidate.foldTasks.size(), rungFolds, progress);
+                candidate.foldTasks.addAll(tasks);
+                submitted.addAll(tasks);
+            }
+            for (Candidate candidate : alive) {
+                if (candidate.error != null) {
+                    continue;
+                }
+                try {
+                    candidate.evaluation = cvEngine.merge(plan, candidate.foldTasks);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    // Parâmetros inválidos para o modelo: o candidato sai da disputa.
+                    candidate.evaluation = null;
+                    candidate.error = String.valueOf(e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            ParallelCrossValidator.cancel(submitted);
+            throw e;
+        }
+    }
+
+    // Folds que serão treinados no total, para dimensionar o progresso.
+    private int scheduledFolds(int numCandidates) {
+        int total = 0;
+        int alive = numCandidates;
+        int previous = 0;
+        int rungFolds = Math.min(minFolds, folds);
+        while (true) {
+            total += alive * (rungFolds - previous);
+            if (rungFolds == folds) {
+                return total;
+            }
+            alive = Math.max(1, (int) Math.ceil((double) alive / eta));
+            previous = rungFolds;
+            rungFolds = Math.min(folds, rungFolds * eta);
+        }
+    }
+
+    // Mais folds avaliados primeiro, depois maior acerto e maior kappa; empates mantêm a ordem original.
+    private static List<Candidate> rank(List<Candidate> candidates) {
+        List<Candidate> ranked = new ArrayList<>(candidates);
+        Collections.sort(ranked, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate a, Candidate b) {
+                boolean aFailed = a.error != null;
+                boolean bFailed = b.error != null;
+                if (aFailed != bFailed) {
+                    return aFailed ? 1 : -1;
+                }
+                if (aFailed) {
+                    return 0;
+                }
+                int byFolds = Integer.compare(b.getFoldsEvaluated(), a.getFoldsEvaluated());
+                if (byFolds != 0) {
+                    return byFolds;
+                }
+                int byAccuracy = Double.compare(b.getAccuracy(), a.getAccuracy());
+                if (byAccuracy != 0) {
+                    return byAccuracy;
+                }
+                return Double.compare(b.getKappa(), a.getKappa());
+            }
+        });
+        return ranked;
+    }
+
+    /**
+     * Monta a tabela do ranking no mesmo formato CSV de evaluateMultipleCV.
+     *
+     * @param leaderboard candidatos ordenados por run.
+     * @param limit número máximo de linhas (0 = todas).
+     * @return tabela em texto.
+     */
+    public static String leaderboard(List<Candidate> leaderboard, int limit) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Posição,Modelo,Parâmetros,Folds,Taxa de Acerto,Kappa\n");
+        int rows = limit > 0 ? Math.min(limit, leaderboard.size()) : leaderboard.size();
+        for (int i = 0; i < rows; i++) {
+            Candidate c = leaderboard.get(i);
+            sb.append(c.getRank()).append(",")
+                    .append(c.getModelOption()).append(",")
+                    .append(Arrays.toString(c.params).replace(",", ";")).append(",");
+            if (c.getError() != null) {
+                sb.append("-,erro: ").append(c.getError().replace(",", ";")).append(",-\n");
+            } else {
+                sb.append(c.getFoldsEvaluated()).append(",")
+                        .append(String.format("%.2f", c.getAccuracy())).append(",")
+                        .append(String.format("%.4f", c.getKappa())).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+}
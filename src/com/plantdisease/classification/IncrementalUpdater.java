@@ -0,0 +1,252 @@
+package com.plantdisease.classification;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Operações da atualização incremental (PlantDiseaseClassifier.updateModel).
+ *
+ * Mantém, sem reler o arquivo nem reaplicar os filtros, o estado que o Normalize e o
+ * ClassBalancer calculariam sobre a base acrescida das observações novas:
+ *
+ * - faixas do Normalize: mínimo e máximo por atributo só crescem; quando mudam, os
+ *   valores já normalizados são remapeados pela transformação afim equivalente;
+ * - pesos do ClassBalancer: a soma bruta de pesos por classe é mantida e cada instância
+ *   tem o peso multiplicado pela razão entre o fator novo e o antigo da sua classe.
+ *
+ * O resultado é o mesmo que loadData daria com as linhas novas no arquivo (até
+ * arredondamento), em O(instâncias x atributos).
+ */
+public class IncrementalUpdater {
+
+    /**
+     * Como o modelo absorveu as observações.
+     */
+    public enum Mode {
+        /** UpdateableClassifier.updateClassifier, sem retreinar. */
+        INCREMENTAL,
+        /** Otimização da RBF retomada dos parâmetros atuais. */
+        WARM_START,
+        /** buildClassifier completo sobre a base atualizada (sem reler nem refiltrar). */
+        REBUILD
+    }
+
+    /**
+     * Maior variação relativa dos fatores de balanceamento que ainda permite
+     * updateClassifier: as instâncias já guardadas no modelo ficam com o peso antigo.
+     */
+    public static final double BALANCE_TOLERANCE = 0.01;
+
+    private IncrementalUpdater() {
+    }
+
+    /**
+     * Converte observações brutas para a ordem de atributos do modelo. Os atributos são
+     * associados pelo nome e os rótulos nominais pelo texto, então o arquivo novo pode
+     * ter outra ordem de colunas ou só parte das classes.
+     *
+     * @param header cabeçalho do modelo.
+     * @param raw observações brutas, com a classe preenchida.
+     * @return uma linha por observação, na ordem do cabeçalho.
+     */
+    public static double[][] toModelRows(Instances header, Instances raw) {
+        int numAttributes = header.numAttributes();
+        int[] source = new int[numAttributes];
+        for (int j = 0; j < numAttributes; j++) {
+            Attribute attribute = raw.attribute(header.attribute(j).name());
+            if (attribute == null) {
+                throw new IllegalArgumentException("Atributo ausente nas observações: " + header.attribute(j).name() + ".");
+            }
+            if (attribute.isNominal() != header.attribute(j).isNominal()) {
+                throw new IllegalArgumentException("Tipo diferente do treino no atributo " + attribute.name() + ".");
+            }
+            source[j] = attribute.index();
+        }
+        double[][] rows = new double[raw.numInstances()][numAttributes];
+        for (int i = 0; i < rows.length; i++) {
+            Instance instance = raw.instance(i);
+            for (int j = 0; j < numAttributes; j++) {
+                double value = instance.value(source[j]);
+                if (header.attribute(j).isNominal() && !Double.isNaN(value)) {
+                    String label = raw.attribute(source[j]).value((int) value);
+                    int index = header.attribute(j).indexOfValue(label);
+                    if (index < 0) {
+                        throw new IllegalArgumentException("Valor \"" + label + "\" não existe no treino ("
+                                + header.attribute(j).name() + ").");
+                    }
+                    value = index;
+                }
+                rows[i][j] = value;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Soma bruta (antes do balanceamento) dos pesos por classe.
+     *
+     * @param data base com pesos originais.
+     * @return soma por classe.
+     */
+    public static double[] classWeightSums(Instances data) {
+        double[] sums = new double[data.numClasses()];
+        for (int i = 0; i < data.numInstances(); i++) {
+            Instance instance = data.instance(i);
+            if (!instance.classIsMissing()) {
+                sums[(int) instance.classValue()] += instance.weight();
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Fatores do ClassBalancer: cada classe passa a somar total / numClasses.
+     *
+     * @param sums soma bruta de pesos por classe.
+     * @return fator por classe (0 para classe sem instâncias).
+     */
+    public static double[] balanceFactors(double[] sums) {
+        double total = 0;
+        for (double sum : sums) {
+            total += sum;
+        }
+        double[] factors = new double[sums.length];
+        for (int c = 0; c < sums.length; c++) {
+            factors[c] = sums[c] > 0 ? total / (sums.length * sums[c]) : 0;
+        }
+        return factors;
+    }
+
+    /**
+     * @return maior |novo / antigo - 1| entre as classes que já tinham instâncias.
+     */
+    public static double maxFactorChange(double[] from, double[] to) {
+        double change = 0;
+        for (int c = 0; c < from.length; c++) {
+            if (from[c] > 0) {
+                change = Math.max(change, Math.abs(to[c] / from[c] - 1));
+            } else if (to[c] > 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Amplia as faixas do Normalize para cobrir as linhas novas.
+     *
+     * @param model pré-processamento atual.
+     * @param rows linhas brutas na ordem do cabeçalho.
+     * @return o próprio model, se nenhuma faixa mudou, ou um modelo novo.
+     */
+    public static PreprocessingModel extendRanges(PreprocessingModel model, double[][] rows) {
+        Instances header = model.getHeader();
+        double[] min = model.getMin();
+        double[] max = model.getMax();
+        boolean changed = false;
+        for (double[] row : rows) {
+            for (int j = 0; j < min.length; j++) {
+                double value = row[j];
+                if (j == header.classIndex() || Double.isNaN(value) || !header.attribute(j).isNumeric()) {
+                    continue;
+                }
+                if (Double.isNaN(min[j])) {
+                    min[j] = value;
+                    max[j] = value;
+                    changed = true;
+                } else if (value < min[j]) {
+                    min[j] = value;
+                    changed = true;
+                } else if (value > max[j]) {
+                    max[j] = value;
+                    changed = true;
+                }
+            }
+        }
+        return changed ? new PreprocessingModel(header, min, max, model.getScale(), model.getTranslation()) : model;
+    }
+
+    /**
+     * Reescreve valores normalizados com as faixas antigas como se tivessem sido
+     * normalizados com as novas.
+     *
+     * @param data base normalizada com from (alterada no lugar).
+     * @param from pré-processamento que produziu os valores.
+     * @param to pré-processamento novo.
+     */
+    public static void renormalize(Instances data, PreprocessingModel from, PreprocessingModel to) {
+        Instances header = from.getHeader();
+        double[] oldMin = from.getMin();
+        double[] oldMax = from.getMax();
+        double[] newMin = to.getMin();
+        double[] newMax = to.getMax();
+        double scale = from.getScale();
+        double translation = from.getTranslation();
+        for (int j = 0; j < oldMin.length; j++) {
+            if (j == header.classIndex() || !header.attribute(j).isNumeric()
+                    || (Double.compare(oldMin[j], newMin[j]) == 0 && Double.compare(oldMax[j], newMax[j]) == 0)) {
+                continue;
+            }
+            boolean oldConstant = Double.isNaN(oldMin[j]) || oldMax[j] == oldMin[j];
+            boolean newConstant = newMax[j] == newMin[j];
+            for (int i = 0; i < data.numInstances(); i++) {
+                Instance instance = data.instance(i);
+                double value = instance.value(j);
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                // Atributo constante no treino: todos os valores brutos eram o mínimo.
+                double raw = oldConstant ? oldMin[j]
+                        : (value - translation) / scale * (oldMax[j] - oldMin[j]) + oldMin[j];
+                instance.setValue(j, newConstant ? 0 : (raw - newMin[j]) / (newMax[j] - newMin[j]) * scale + translation);
+            }
+        }
+    }
+
+    /**
+     * Troca os fatores de balanceamento aplicados aos pesos.
+     *
+     * @param data base balanceada com from (alterada no lugar).
+     * @param from fatores aplicados.
+     * @param to fatores novos.
+     */
+    public static void rebalance(Instances data, double[] from, double[] to) {
+        for (int i = 0; i < data.numInstances(); i++) {
+            Instance instance = data.instance(i);
+            if (instance.classIsMissing()) {
+                continue;
+            }
+            int c = (int) instance.classValue();
+            if (from[c] > 0 && to[c] != from[c]) {
+                instance.setWeight(instance.weight() * to[c] / from[c]);
+            }
+        }
+    }
+
+    /**
+     * Normaliza e balanceia observações novas. Linhas sem classe são descartadas, como
+     * no treino.
+     *
+     * @param rows linhas brutas (toModelRows).
+     * @param weights peso original de cada linha.
+     * @param model pré-processamento (já com as faixas ampliadas).
+     * @param factors fatores de balanceamento (já com as linhas novas).
+     * @return instâncias prontas para o classificador, com o cabeçalho do modelo.
+     */
+    public static Instances prepare(double[][] rows, double[] weights, PreprocessingModel model, double[] factors) {
+        Instances header = model.getHeader();
+        int classIndex = header.classIndex();
+        Instances prepared = new Instances(header, rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            if (Double.isNaN(rows[i][classIndex])) {
+                continue;
+            }
+            double[] values = new double[rows[i].length];
+            model.normalize(rows[i], values);
+            prepared.add(new DenseInstance(weights[i] * factors[(int) values[classIndex]], values));
+        }
+        return prepared;
+    }
+}
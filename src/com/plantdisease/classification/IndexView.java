@@ -0,0 +1,218 @@
+package com.plantdisease.classification;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Random;
+
+/**
+ * Visão de um subconjunto ordenado das linhas de uma base, guardado como um array de
+ * índices. A base não é copiada nem alterada.
+ *
+ * randomize, stratify, trainCV e testCV reproduzem as operações de mesmo nome de
+ * Instances (mesma sequência de números aleatórios, mesmas trocas), então as linhas de
+ * cada fold e a ordem delas são exatamente as de Evaluation.crossValidateModel. Um plano
+ * de validação cruzada guarda só índices; as linhas de treino de um fold viram Instances
+ * (materialize) apenas enquanto o fold é treinado.
+ */
+public class IndexView {
+
+    private final Instances data;
+    private final int[] rows;
+
+    /**
+     * @param data base de origem.
+     * @param rows índices das linhas, na ordem da visão (não é copiado).
+     */
+    public IndexView(Instances data, int[] rows) {
+        this.data = data;
+        this.rows = rows;
+    }
+
+    /**
+     * @param data base de origem.
+     * @return visão com todas as linhas, na ordem da base.
+     */
+    public static IndexView all(Instances data) {
+        int[] rows = new int[data.numInstances()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = i;
+        }
+        return new IndexView(data, rows);
+    }
+
+    public Instances getData() {
+        return data;
+    }
+
+    public int numInstances() {
+        return rows.length;
+    }
+
+    /**
+     * @param i posição na visão.
+     * @return índice da linha na base de origem.
+     */
+    public int row(int i) {
+        return rows[i];
+    }
+
+    /**
+     * @param i posição na visão.
+     * @return instância da base de origem (compartilhada; não altere).
+     */
+    public Instance instance(int i) {
+        return data.instance(rows[i]);
+    }
+
+    /**
+     * Embaralha a visão como Instances.randomize.
+     *
+     * @param random gerador.
+     * @return esta visão.
+     */
+    public IndexView randomize(Random random) {
+        for (int j = rows.length - 1; j > 0; j--) {
+            swap(rows, j, random.nextInt(j + 1));
+        }
+        return this;
+    }
+
+    /**
+     * Estratifica a visão como Instances.stratify: agrupa por classe com as mesmas
+     * trocas e intercala os grupos de numFolds em numFolds. Sem efeito para classe
+     * numérica.
+     *
+     * @param numFolds número de folds (> 1).
+     * @return esta visão.
+     */
+    public IndexView stratify(int numFolds) {
+        if (numFolds <= 1) {
+            throw new IllegalArgumentException("Número de folds deve ser maior que 1.");
+        }
+        if (data.classIndex() < 0) {
+            throw new IllegalStateException("Atributo de classe não definido.");
+        }
+        if (!data.classAttribute().isNominal()) {
+            return this;
+        }
+        int n = rows.length;
+        double[] classes = new double[n];
+        for (int i = 0; i < n; i++) {
+            classes[i] = data.instance(rows[i]).classValue();
+        }
+        int index = 1;
+        while (index < n) {
+            double class1 = classes[index - 1];
+            for (int j = index; j < n; j++) {
+                double class2 = classes[j];
+                if (class1 == class2 || (Double.isNaN(class1) && Double.isNaN(class2))) {
+                    swap(rows, index, j);
+                    swap(classes, index, j);
+                    index++;
+                }
+            }
+            index++;
+        }
+        int[] stratified = new int[n];
+        int k = 0;
+        for (int start = 0; k < n; start++) {
+            for (int j = start; j < n; j += numFolds) {
+                stratified[k++] = rows[j];
+            }
+        }
+        System.arraycopy(stratified, 0, rows, 0, n);
+        return this;
+    }
+
+    /**
+     * Linhas de teste de um fold, como Instances.testCV.
+     *
+     * @param numFolds número de folds.
+     * @param numFold fold (a partir de 0).
+     * @return nova visão.
+     */
+    public IndexView testCV(int numFolds, int numFold) {
+        checkFolds(numFolds);
+        int count = foldSize(numFolds, numFold);
+        int first = foldStart(numFolds, numFold);
+        int[] test = new int[count];
+        System.arraycopy(rows, first, test, 0, count);
+        return new IndexView(data, test);
+    }
+
+    /**
+     * Linhas de treino de um fold, como Instances.trainCV(numFolds, numFold, random):
+     * todas menos as do teste, embaralhadas com random.
+     *
+     * @param numFolds número de folds.
+     * @param numFold fold (a partir de 0).
+     * @param random gerador.
+     * @return nova visão.
+     */
+    public IndexView trainCV(int numFolds, int numFold, Random random) {
+        checkFolds(numFolds);
+        int count = foldSize(numFolds, numFold);
+        int first = foldStart(numFolds, numFold);
+        int[] train = new int[rows.length - count];
+        System.arraycopy(rows, 0, train, 0, first);
+        System.arraycopy(rows, first + count, train, first, rows.length - first - count);
+        return new IndexView(data, train).randomize(random);
+    }
+
+    /**
+     * @param from primeira posição.
+     * @param count número de linhas.
+     * @return nova visão com as posições [from, from + count).
+     */
+    public IndexView range(int from, int count) {
+        int[] range = new int[count];
+        System.arraycopy(rows, from, range, 0, count);
+        return new IndexView(data, range);
+    }
+
+    /**
+     * Cria uma Instances com as linhas da visão. As instâncias são cópias rasas (o
+     * vetor de valores é compartilhado com a base até ser alterado).
+     *
+     * @return Instances com o cabeçalho da base.
+     */
+    public Instances materialize() {
+        Instances result = new Instances(data, rows.length);
+        for (int row : rows) {
+            result.add(data.instance(row));
+        }
+        return result;
+    }
+
+    private void checkFolds(int numFolds) {
+        if (numFolds < 2) {
+            throw new IllegalArgumentException("Número de folds deve ser pelo menos 2.");
+        }
+        if (numFolds > rows.length) {
+            throw new IllegalArgumentException("Mais folds que instâncias.");
+        }
+    }
+
+    private int foldSize(int numFolds, int numFold) {
+        int size = rows.length / numFolds;
+        return numFold < rows.length % numFolds ? size + 1 : size;
+    }
+
+    private int foldStart(int numFolds, int numFold) {
+        int offset = numFold < rows.length % numFolds ? numFold : rows.length % numFolds;
+        return numFold * (rows.length / numFolds) + offset;
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+
+    private static void swap(double[] array, int i, int j) {
+        double t = array[i];
+        array[i] = array[j];
+        array[j] = t;
+    }
+}
@@ -0,0 +1,385 @@
+package com.plantdisease.classification;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import weka.core.Instances;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Serviço HTTP local de classificação com um modelo salvo (ModelStore).
+ *
+ * Endpoints (só em localhost):
+ * <pre>
+ *   POST /classify  {"values": [1, 0, 1, ...]}          uma amostra
+ *                   {"values": [[1, 0, ...], [0, 1, ...]]} várias amostras
+ *   GET  /health    estado do serviço e do modelo
+ * </pre>
+ * Os valores são brutos, um por atributo na ordem do cabeçalho do modelo (a posição
+ * da classe pode ser omitida ou null). A resposta traz a classe, as probabilidades e
+ * os tempos de fila e de classificação. Pedidos concorrentes são agrupados pelo
+ * MicroBatcher. Os handlers rodam em virtual threads quando a JVM oferece
+ * (Java 21+); em JVMs anteriores usam um pool de threads em cache.
+ */
+public class InferenceServer {
+
+    public static final int DEFAULT_PORT = 8085;
+    public static final int DEFAULT_MAX_BATCH = 64;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 2;
+    private static final long REQUEST_TIMEOUT_SECONDS = 30;
+
+    private final StoredModel model;
+    private final Instances header;
+    private final MicroBatcher batcher;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    /**
+     * @param model modelo carregado.
+     * @param port porta em localhost (0 = qualquer porta livre).
+     * @param maxBatchSize tamanho máximo do micro-lote.
+     * @param maxDelayMillis espera máxima para completar um micro-lote.
+     * @throws IOException se a porta não puder ser aberta.
+     */
+    public InferenceServer(StoredModel model, int port, int maxBatchSize, long maxDelayMillis) throws IOException {
+        this.model = model;
+        this.header = model.getPreprocessing().getHeader();
+        this.batcher = new MicroBatcher(new BatchScorer(model.getClassifier(), model.getPreprocessing()),
+                maxBatchSize, maxDelayMillis);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/classify", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleClassify(exchange);
+            }
+        });
+        server.createContext("/health", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleHealth(exchange);
+            }
+        });
+    }
+
+    /**
+     * Inicia o atendimento.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Encerra o servidor e o batcher.
+     */
+    public void stop() {
+        server.stop(0);
+        batcher.shutdown();
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return porta efetiva.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Linha de comando: serve MODELO [porta] [lote máximo] [espera máxima em ms].
+     *
+     * @param args argumentos depois de "serve".
+     * @throws Exception se o modelo não puder ser carregado ou a porta aberta.
+     */
+    public static void run(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Uso: serve MODELO [porta] [lote máximo] [espera máxima em ms]");
+            System.exit(2);
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        int maxBatch = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_BATCH;
+        long maxDelay = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_MAX_DELAY_MILLIS;
+        long start = System.nanoTime();
+        StoredModel model = ModelStore.load(new File(args[0]));
+        final InferenceServer server = new InferenceServer(model, port, maxBatch, maxDelay);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                server.stop();
+            }
+        }));
+        System.out.printf(Locale.ROOT, "Modelo %s carregado em %.1f ms. Servindo em http://localhost:%d/classify (%s)%n",
+                args[0], (System.nanoTime() - start) / 1e6, server.getPort(),
+                server.usesVirtualThreads() ? "virtual threads" : "pool de threads");
+    }
+
+    private void handleClassify(HttpExchange exchange) throws IOException {
+        long received = System.nanoTime();
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                send(exchange, 405, "{\"error\":\"Use POST.\"}");
+                return;
+            }
+            boolean[] multiple = new boolean[1];
+            List<double[]> rows = parseRows(readBody(exchange.getRequestBody()), multiple);
+            List<CompletableFuture<MicroBatcher.Prediction>> futures = new ArrayList<>(rows.size());
+            for (double[] row : rows) {
+                futures.add(batcher.submit(row));
+            }
+            StringBuilder json = new StringBuilder();
+            if (!multiple[0]) {
+                appendPrediction(json, futures.get(0).get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            } else {
+                json.append("{\"predictions\":[");
+                for (int i = 0; i < futures.size(); i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    appendPrediction(json, futures.get(i).get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                }
+                json.append("]}");
+            }
+            json.insert(json.length() - 1, String.format(Locale.ROOT, ",\"totalMs\":%.3f",
+                    (System.nanoTime() - received) / 1e6));
+            send(exchange, 200, json.toString());
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, errorJson(e.getMessage()));
+        } catch (ExecutionException e) {
+            send(exchange, 500, errorJson(String.valueOf(e.getCause().getMessage())));
+        } catch (TimeoutException e) {
+            send(exchange, 503, errorJson("Tempo esgotado aguardando a classificação."));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, errorJson("Serviço encerrando."));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try {
+            String json = String.format(Locale.ROOT,
+                    "{\"status\":\"ok\",\"modelOption\":%d,\"attributes\":%d,\"classes\":%d,"
+                            + "\"queued\":%d,\"virtualThreads\":%b}",
+                    model.getModelOption(), header.numAttributes(), header.numClasses(),
+                    batcher.queued(), virtualThreads);
+            send(exchange, 200, json);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void appendPrediction(StringBuilder json, MicroBatcher.Prediction p) {
+        int c = p.getClassIndex();
+        json.append("{\"class\":");
+        if (c < 0) {
+            json.append("null");
+        } else {
+            appendString(json, header.classAttribute().value(c));
+        }
+        json.append(",\"classIndex\":").append(c).append(",\"probabilities\":{");
+        double[] dist = p.getDistribution();
+        for (int k = 0; k < dist.length; k++) {
+            if (k > 0) {
+                json.append(',');
+            }
+            appendString(json, header.classAttribute().value(k));
+            json.append(':').append(String.format(Locale.ROOT, "%.6f", dist[k]));
+        }
+        json.append(String.format(Locale.ROOT, "},\"batchSize\":%d,\"queueMs\":%.3f,\"scoreMs\":%.3f}",
+                p.getBatchSize(), p.getQueueNanos() / 1e6, p.getScoreNanos() / 1e6));
+    }
+
+    /**
+     * Lê {"values": [...]} ou {"values": [[...], ...]}. A classe pode faltar no fim ou vir null.
+     *
+     * @param body corpo JSON.
+     * @param multiple multiple[0] recebe true se o corpo trouxe uma lista de amostras.
+     * @return linhas com um valor por atributo.
+     */
+    List<double[]> parseRows(String body, boolean[] multiple) {
+        int key = body.indexOf("\"values\"");
+        if (key < 0) {
+            throw new IllegalArgumentException("Campo \"values\" ausente.");
+        }
+        JsonNumbers parser = new JsonNumbers(body, body.indexOf(':', key) + 1);
+        List<double[]> rows = new ArrayList<>();
+        parser.expect('[');
+        multiple[0] = parser.peek() == '[';
+        if (multiple[0]) {
+            do {
+                rows.add(toRow(parser.readArray()));
+            } while (parser.comma());
+            parser.expect(']');
+        } else {
+            rows.add(toRow(parser.readArrayBody()));
+        }
+        return rows;
+    }
+
+    private double[] toRow(List<Double> values) {
+        int numAttributes = header.numAttributes();
+        int classIndex = header.classIndex();
+        boolean withoutClass = classIndex == numAttributes - 1 && values.size() == numAttributes - 1;
+        if (values.size() != numAttributes && !withoutClass) {
+            throw new IllegalArgumentException("Esperados " + numAttributes + " valores (ou "
+                    + (numAttributes - 1) + " sem a classe), recebidos " + values.size() + ".");
+        }
+        double[] row = new double[numAttributes];
+        for (int j = 0; j < numAttributes; j++) {
+            row[j] = j < values.size() ? values.get(j) : Double.NaN;
+        }
+        return row;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String errorJson(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message == null ? "erro" : message);
+        return json.append('}').toString();
+    }
+
+    static void appendString(StringBuilder json, String s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Leitor mínimo de arrays de números JSON (aceita null como valor ausente).
+     */
+    private static final class JsonNumbers {
+        private final String s;
+        private int pos;
+
+        JsonNumbers(String s, int pos) {
+            this.s = s;
+            this.pos = pos;
+        }
+
+        char peek() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+            return pos < s.length() ? s.charAt(pos) : 0;
+        }
+
+        void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("JSON inválido: esperado '" + c + "' na posição " + pos + ".");
+            }
+            pos++;
+        }
+
+        boolean comma() {
+            if (peek() == ',') {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        List<Double> readArray() {
+            expect('[');
+            return readArrayBody();
+        }
+
+        // Lê até o ']' que fecha o array cujo '[' já foi consumido.
+        List<Double> readArrayBody() {
+            List<Double> values = new ArrayList<>();
+            if (peek() == ']') {
+                pos++;
+                return values;
+            }
+            do {
+                values.add(readNumber());
+            } while (comma());
+            expect(']');
+            return values;
+        }
+
+        private double readNumber() {
+            peek();
+            if (s.startsWith("null", pos)) {
+                pos += 4;
+                return Double.NaN;
+            }
+            int start = pos;
+            while (pos < s.length() && "+-.0123456789eE".indexOf(s.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IllegalArgumentException("JSON inválido: número esperado na posição " + pos + ".");
+            }
+            try {
+                return Double.parseDouble(s.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Número inválido: " + s.substring(start, pos) + ".");
+            }
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() existe a partir do Java 21; o projeto compila para Java 8.
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
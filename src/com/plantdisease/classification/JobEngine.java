@@ -0,0 +1,150 @@
+package com.plantdisease.classification;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa jobs de treinamento e avaliação fora da thread da interface.
+ * Os jobs ficam em fila (FIFO) e são processados pelas threads de trabalho;
+ * um job pode ser cancelado, o que interrompe a thread que o executa.
+ */
+public class JobEngine {
+
+    /**
+     * Recebe o resultado de um job. As chamadas acontecem na thread de trabalho.
+     *
+     * @param <T> tipo do resultado.
+     */
+    public interface JobListener<T> {
+        void onSuccess(T result);
+
+        void onFailure(Exception error);
+
+        void onCancelled();
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Set<Runnable> running = Collections.newSetFromMap(new ConcurrentHashMap<Runnable, Boolean>());
+
+    /**
+     * @param name prefixo do nome das threads de trabalho.
+     * @param workers número de threads de trabalho. Use 1 quando os jobs
+     *                compartilham estado (ex.: o mesmo PlantDiseaseClassifier).
+     */
+    public JobEngine(final String name, int workers) {
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), factory);
+    }
+
+    /**
+     * Enfileira um job.
+     *
+     * @param task tarefa a executar.
+     * @param listener recebe o resultado (pode ser null).
+     * @return Future que permite cancelar o job (cancel(true) interrompe a execução).
+     */
+    public <T> Future<T> submit(Callable<T> task, JobListener<T> listener) {
+        JobTask<T> job = new JobTask<>(task, listener);
+        pending.incrementAndGet();
+        executor.execute(job);
+        return job;
+    }
+
+    /**
+     * Retorna o número de jobs na fila ou em execução.
+     *
+     * @return jobs pendentes.
+     */
+    public int pendingJobs() {
+        return pending.get();
+    }
+
+    /**
+     * Cancela todos os jobs enfileirados e interrompe o que estiver em execução.
+     */
+    public void cancelAll() {
+        for (Runnable r : executor.getQueue().toArray(new Runnable[0])) {
+            ((Future<?>) r).cancel(false);
+        }
+        executor.getQueue().clear();
+        for (Runnable r : running) {
+            ((Future<?>) r).cancel(true);
+        }
+    }
+
+    /**
+     * Encerra as threads de trabalho após os jobs já enfileirados.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private class JobTask<T> extends FutureTask<T> {
+        private final JobListener<T> listener;
+
+        JobTask(Callable<T> task, JobListener<T> listener) {
+            super(task);
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            running.add(this);
+            try {
+                super.run();
+            } finally {
+                running.remove(this);
+                // Limpa uma interrupção tardia para não contaminar o próximo job.
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        protected void done() {
+            pending.decrementAndGet();
+            if (listener == null) {
+                return;
+            }
+            if (isCancelled()) {
+                listener.onCancelled();
+                return;
+            }
+            try {
+                listener.onSuccess(get());
+            } catch (CancellationException | InterruptedException e) {
+                listener.onCancelled();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof InterruptedException) {
+                    listener.onCancelled();
+                } else if (cause instanceof Exception) {
+                    listener.onFailure((Exception) cause);
+                } else {
+                    listener.onFailure(new Exception(cause));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.plantdisease.classification;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Centros iniciais da RBF por k-means++ seguido de k-means em mini-lotes.
+ *
+ * - Semeadura k-means++: o primeiro centro é sorteado pelo peso das instâncias e cada
+ *   seguinte com probabilidade proporcional a peso × distância quadrática ao centro mais
+ *   próximo já escolhido. Os centros começam espalhados, então poucas iterações bastam e
+ *   o resultado varia pouco entre sementes.
+ * - Refinamento: com até batchSize instâncias, iterações de Lloyd sobre a base inteira
+ *   (médias ponderadas); acima disso, k-means em mini-lotes (Sculley, 2010): a cada
+ *   iteração um lote sorteado atualiza só os centros atribuídos, com passo 1 / peso
+ *   acumulado do centro. Para quando nenhum centro se move mais que tolerance.
+ *
+ * A atribuição de cada ponto ao centro mais próximo usa uma árvore k-d sobre os centros
+ * quando há muitos centros, e as distâncias (atualização das distâncias do k-means++ e
+ * atribuições) são calculadas em partições fixas no pool compartilhado. As partições e a
+ * ordem das atualizações não dependem do número de threads: a mesma semente dá sempre
+ * os mesmos centros.
+ */
+public class KMeansCenterInitializer implements CenteredRBFClassifier.CenterInitializer {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Pontos por tarefa no pool. */
+    private static final int PARTITION_SIZE = 1024;
+    /** A partir deste número de centros a atribuição usa a árvore k-d. */
+    private static final int TREE_THRESHOLD = 16;
+
+    private int batchSize = 1024;
+    private int maxIterations = 100;
+    private double tolerance = 1e-6;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize instâncias por mini-lote; bases menores usam Lloyd completo.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Tamanho do lote deve ser >= 1.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * @param maxIterations máximo de iterações do refinamento (0 para só k-means++).
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @param tolerance maior deslocamento quadrático de um centro que encerra o refinamento.
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public double[][] centers(double[][] points, double[] weights, int k, Random random) throws Exception {
+        double[][] centers = seed(points, weights, k, random);
+        if (centers.length > 1) {
+            if (points.length <= batchSize) {
+                lloyd(points, weights, centers);
+            } else {
+                miniBatch(points, weights, centers, random);
+            }
+        }
+        return centers;
+    }
+
+    /**
+     * Semeadura k-means++. Devolve menos de k centros se a base tiver menos pontos
+     * distintos (com peso) que isso.
+     */
+    double[][] seed(final double[][] points, double[] weights, int k, Random random) throws Exception {
+        int n = points.length;
+        double[][] centers = new double[Math.min(k, n)][];
+        if (n == 0) {
+            return centers;
+        }
+        centers[0] = points[sample(weights, null, random)].clone();
+        final double[] nearest = new double[n];
+        Arrays.fill(nearest, Double.MAX_VALUE);
+        int count = 1;
+        while (count < centers.length) {
+            final double[] last = centers[count - 1];
+            forEachPartition(n, new Partition() {
+                @Override
+                public void run(int lo, int hi) {
+                    for (int i = lo; i < hi; i++) {
+                        nearest[i] = Math.min(nearest[i], CenteredRBFClassifier.squaredDistance(points[i], last));
+                    }
+                }
+            });
+            int next = sample(weights, nearest, random);
+            if (next < 0) {
+                break;
+            }
+            centers[count++] = points[next].clone();
+        }
+        return count == centers.length ? centers : Arrays.copyOf(centers, count);
+    }
+
+    // Índice sorteado com probabilidade proporcional a weights[i] * factor[i] (factor null = 1);
+    // -1 se a soma for 0.
+    private static int sample(double[] weights, double[] factor, Random random) {
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i] * (factor == null ? 1 : factor[i]);
+        }
+        if (!(total > 0)) {
+            return factor == null ? random.nextInt(weights.length) : -1;
+        }
+        double target = random.nextDouble() * total;
+        int last = -1;
+        for (int i = 0; i < weights.length; i++) {
+            double mass = weights[i] * (factor == null ? 1 : factor[i]);
+            if (mass > 0) {
+                last = i;
+                target -= mass;
+                if (target < 0) {
+                    return i;
+                }
+            }
+        }
+        return last;
+    }
+
+    private void lloyd(double[][] points, double[] weights, double[][] centers) throws Exception {
+        int n = points.length;
+        int d = centers[0].length;
+        int[] assignment = new int[n];
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            assign(points, identity(n), centers, assignment);
+            double[][] sums = new double[centers.length][d];
+            double[] mass = new double[centers.length];
+            for (int i = 0; i < n; i++) {
+                int c = assignment[i];
+                mass[c] += weights[i];
+                for (int j = 0; j < d; j++) {
+                    sums[c][j] += weights[i] * points[i][j];
+                }
+            }
+            double moved = 0;
+            for (int c = 0; c < centers.length; c++) {
+                if (mass[c] <= 0) {
+                    continue; // centro sem pontos fica onde está
+                }
+                for (int j = 0; j < d; j++) {
+                    sums[c][j] /= mass[c];
+                }
+                moved = Math.max(moved, CenteredRBFClassifier.squaredDistance(sums[c], centers[c]));
+                centers[c] = sums[c];
+            }
+            if (moved <= tolerance) {
+                break;
+            }
+        }
+    }
+
+    private void miniBatch(double[][] points, double[] weights, double[][] centers, Random random) throws Exception {
+        int n = points.length;
+        int d = centers[0].length;
+        double[] mass = new double[centers.length];
+        int[] batch = new int[batchSize];
+        int[] assignment = new int[batchSize];
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            for (int b = 0; b < batchSize; b++) {
+                batch[b] = random.nextInt(n);
+            }
+            double[][] before = new double[centers.length][];
+            for (int c = 0; c < centers.length; c++) {
+                before[c] = centers[c].clone();
+            }
+            assign(points, batch, centers, assignment);
+            for (int b = 0; b < batchSize; b++) {
+                int i = batch[b];
+                int c = assignment[b];
+                if (weights[i] <= 0) {
+                    continue;
+                }
+                mass[c] += weights[i];
+                double eta = weights[i] / mass[c];
+                for (int j = 0; j < d; j++) {
+                    centers[c][j] += eta * (points[i][j] - centers[c][j]);
+                }
+            }
+            double moved = 0;
+            for (int c = 0; c < centers.length; c++) {
+                moved = Math.max(moved, CenteredRBFClassifier.squaredDistance(before[c], centers[c]));
+            }
+            if (moved <= tolerance) {
+                break;
+            }
+        }
+    }
+
+    // Centro mais próximo de cada ponto indicado em rows (assignment[r] para points[rows[r]]).
+    private static void assign(final double[][] points, final int[] rows, final double[][] centers,
+                               final int[] assignment) throws Exception {
+        final CenterTree tree = centers.length >= TREE_THRESHOLD ? new CenterTree(centers) : null;
+        forEachPartition(rows.length, new Partition() {
+            @Override
+            public void run(int lo, int hi) {
+                for (int r = lo; r < hi; r++) {
+                    double[] point = points[rows[r]];
+                    assignment[r] = tree != null ? tree.nearest(point) : linearNearest(centers, point);
+                }
+            }
+        });
+    }
+
+    private static int linearNearest(double[][] centers, double[] point) {
+        int best = 0;
+        double bestDistance = Double.MAX_VALUE;
+        for (int c = 0; c < centers.length; c++) {
+            double distance = CenteredRBFClassifier.squaredDistance(point, centers[c]);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    private static int[] identity(int n) {
+        int[] rows = new int[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+
+    private interface Partition {
+        void run(int lo, int hi);
+    }
+
+    // Partições de PARTITION_SIZE pontos no pool; uma só partição roda na própria thread.
+    private static void forEachPartition(int n, final Partition partition) throws Exception {
+        int parts = (n + PARTITION_SIZE - 1) / PARTITION_SIZE;
+        if (parts <= 1) {
+            partition.run(0, n);
+            return;
+        }
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ForkJoinTask<Void>[] tasks = new ForkJoinTask[parts];
+        for (int p = 0; p < parts; p++) {
+            final int lo = p * PARTITION_SIZE;
+            final int hi = Math.min(n, lo + PARTITION_SIZE);
+            tasks[p] = ParallelRBFClassifier.fork(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    partition.run(lo, hi);
+                    return null;
+                }
+            });
+        }
+        for (ForkJoinTask<Void> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * Árvore k-d sobre os centros: cada nó divide pela dimensão de maior amplitude, na
+     * mediana. A busca do mais próximo só desce no outro lado quando a distância ao plano
+     * de corte é menor que a melhor encontrada; empates ficam com o menor índice, como na
+     * busca linear.
+     */
+    static final class CenterTree {
+        private final double[][] centers;
+        private final int[] order;
+        private final int[] splitDim;
+
+        CenterTree(double[][] centers) {
+            this.centers = centers;
+            this.order = identity(centers.length);
+            this.splitDim = new int[centers.length];
+            build(0, centers.length);
+        }
+
+        // O nó do intervalo [lo, hi) é order[(lo + hi) / 2]; os filhos são as metades.
+        private void build(int lo, int hi) {
+            if (hi - lo <= 1) {
+                return;
+            }
+            int d = centers[0].length;
+            int dim = 0;
+            double widest = -1;
+            for (int j = 0; j < d; j++) {
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for (int i = lo; i < hi; i++) {
+                    double v = centers[order[i]][j];
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                if (max - min > widest) {
+                    widest = max - min;
+                    dim = j;
+                }
+            }
+            final int axis = dim;
+            Integer[] slice = new Integer[hi - lo];
+            for (int i = lo; i < hi; i++) {
+                slice[i - lo] = order[i];
+            }
+            Arrays.sort(slice, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    int byValue = Double.compare(centers[a][axis], centers[b][axis]);
+                    return byValue != 0 ? byValue : Integer.compare(a, b);
+                }
+            });
+            for (int i = lo; i < hi; i++) {
+                order[i] = slice[i - lo];
+            }
+            int mid = (lo + hi) >>> 1;
+            splitDim[mid] = axis;
+            build(lo, mid);
+            build(mid + 1, hi);
+        }
+
+        int nearest(double[] point) {
+            double[] best = {Double.MAX_VALUE, -1};
+            search(point, 0, centers.length, best);
+            return (int) best[1];
+        }
+
+        private void search(double[] point, int lo, int hi, double[] best) {
+            if (lo >= hi) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            int c = order[mid];
+            double distance = CenteredRBFClassifier.squaredDistance(point, centers[c]);
+            if (distance < best[0] || (distance == best[0] && c < best[1])) {
+                best[0] = distance;
+                best[1] = c;
+            }
+            if (hi - lo == 1) {
+                return;
+            }
+            int axis = splitDim[mid];
+            double diff = point[axis] - centers[c][axis];
+            boolean left = diff <= 0;
+            search(point, left ? lo : mid + 1, left ? mid : hi, best);
+            if (diff * diff <= best[0]) {
+                search(point, left ? mid + 1 : lo, left ? hi : mid, best);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.plantdisease.classification;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matriz de Gram compartilhada entre folds, valores de k e candidatos da busca.
+ *
+ * Cada fold da validação cruzada treina um SMO novo sobre um subconjunto da mesma base,
+ * e o CachedKernel do Weka só guarda valores dentro de um treino: o mesmo par de
+ * instâncias é recalculado em todos os folds em que aparece, e de novo em cada k da
+ * varredura. Aqui as instâncias são identificadas pelos seus valores (sem a classe),
+ * não pela posição no fold, e o valor do kernel de cada par de padrões distintos é
+ * calculado uma vez e guardado num triângulo de double (linha p com as colunas 0..p).
+ *
+ * Há uma tabela por configuração do kernel (expoente, termos de ordem menor, formato
+ * dos atributos). Um padrão novo tem sua linha inteira calculada ao ser registrado;
+ * depois disso a linha não muda, então as leituras não precisam de sincronização. As
+ * tabelas menos usadas são descartadas quando o total passa do orçamento; um padrão
+ * que não cabe fica fora da tabela e é calculado pelo kernel normalmente.
+ */
+public class KernelMatrixCache {
+
+    /**
+     * Função de kernel sobre os valores dos atributos (sem a classe).
+     */
+    public interface KernelFunction {
+        double evaluate(double[] a, double[] b);
+    }
+
+    private static final long DEFAULT_BUDGET_BYTES = 128L * 1024 * 1024;
+    private static final KernelMatrixCache SHARED = new KernelMatrixCache(
+            Long.getLong("plantdisease.kernelcache.mb", DEFAULT_BUDGET_BYTES / (1024 * 1024)) * 1024 * 1024);
+
+    private final LinkedHashMap<String, Table> tables = new LinkedHashMap<>(16, 0.75f, true);
+    private long budgetBytes;
+    private long usedBytes;
+
+    /**
+     * @param budgetBytes orçamento de memória para todas as tabelas.
+     */
+    public KernelMatrixCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Retorna o cache compartilhado do processo. O orçamento padrão (128 MB) pode ser
+     * alterado com -Dplantdisease.kernelcache.mb.
+     *
+     * @return cache compartilhado.
+     */
+    public static KernelMatrixCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Valores do kernel entre os padrões registrados, como visto por um treino. Os
+     * padrões registrados depois não aparecem nesta visão.
+     */
+    public static final class View {
+        private final double[][] rows;
+
+        private View(double[][] rows) {
+            this.rows = rows;
+        }
+
+        /**
+         * @param p padrão (índice devolvido por register).
+         * @param q padrão.
+         * @return valor do kernel entre os dois padrões.
+         */
+        public double get(int p, int q) {
+            return p >= q ? rows[p][q] : rows[q][p];
+        }
+    }
+
+    private static final class Table {
+        final KernelFunction function;
+        final Map<Pattern, Integer> ids = new HashMap<>();
+        final List<double[]> patterns = new ArrayList<>();
+        final List<double[]> rows = new ArrayList<>();
+        long bytes;
+
+        Table(KernelFunction function) {
+            this.function = function;
+        }
+    }
+
+    private static final class Pattern {
+        final double[] values;
+        final int hash;
+
+        Pattern(double[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pattern && Arrays.equals(values, ((Pattern) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Registra os padrões de um conjunto de treino, calculando as linhas dos que ainda
+     * não estão na tabela.
+     *
+     * @param key configuração do kernel; chaves iguais devem ter a mesma função.
+     * @param function kernel usado para calcular linhas novas.
+     * @param patterns valores de cada instância do treino, sem a classe.
+     * @param ids saída: padrão de cada instância, ou -1 se não coube no orçamento.
+     * @return visão com as linhas registradas até agora.
+     */
+    public synchronized View register(String key, KernelFunction function, double[][] patterns, int[] ids) {
+        Table table = tables.get(key);
+        if (table == null) {
+            table = new Table(function);
+            tables.put(key, table);
+        }
+        for (int i = 0; i < patterns.length; i++) {
+            Pattern pattern = new Pattern(patterns[i]);
+            Integer id = table.ids.get(pattern);
+            if (id == null) {
+                int p = table.patterns.size();
+                long bytes = 8L * (p + 1) + 8L * patterns[i].length + 64;
+                if (!reserve(key, bytes)) {
+                    ids[i] = -1;
+                    continue;
+                }
+                double[] row = new double[p + 1];
+                for (int q = 0; q < p; q++) {
+                    row[q] = table.function.evaluate(patterns[i], table.patterns.get(q));
+                }
+                row[p] = table.function.evaluate(patterns[i], patterns[i]);
+                id = p;
+                table.ids.put(pattern, id);
+                table.patterns.add(patterns[i]);
+                table.rows.add(row);
+                table.bytes += bytes;
+            }
+            ids[i] = id;
+        }
+        return new View(table.rows.toArray(new double[0][]));
+    }
+
+    /**
+     * Esvazia o cache.
+     */
+    public synchronized void clear() {
+        tables.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Altera o orçamento de memória, descartando tabelas se necessário.
+     *
+     * @param budgetBytes novo orçamento em bytes.
+     */
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        reserve(null, 0);
+    }
+
+    /**
+     * @return número de padrões em todas as tabelas.
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Table table : tables.values()) {
+            size += table.patterns.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return memória estimada ocupada pelas tabelas, em bytes.
+     */
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    // Descarta as tabelas menos usadas (exceto keep) até caber; false se nem assim couber.
+    private boolean reserve(String keep, long bytes) {
+        Iterator<Map.Entry<String, Table>> it = tables.entrySet().iterator();
+        while (usedBytes + bytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Table> e = it.next();
+            if (e.getKey().equals(keep)) {
+                continue;
+            }
+            usedBytes -= e.getValue().bytes;
+            it.remove();
+        }
+        if (usedBytes + bytes > budgetBytes) {
+            return false;
+        }
+        usedBytes += bytes;
+        return true;
+    }
+}
@@ -1,13 +1,26 @@
 package com.plantdisease.classification;
 
 import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // "serve MODELO [porta]": serviço local de classificação, sem interface gráfica.
+        if (args.length > 0 && "serve".equals(args[0])) {
+            InferenceServer.run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // "--headless --data ... --model ...": experimento pela linha de comando (ExperimentRunner).
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (options.remove("--headless")) {
+            System.setProperty("java.awt.headless", "true");
+            System.exit(ExperimentRunner.run(options.toArray(new String[0])));
+        }
         SwingUtilities.invokeLater(() -> {
             FrontUI ui = new FrontUI();
             ui.setVisible(true);
         });
     }
 }
-
@@ -0,0 +1,213 @@
+package com.plantdisease.classification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupa pedidos de classificação concorrentes em pequenos lotes.
+ *
+ * Uma única thread consome a fila: espera o primeiro pedido e junta os que chegarem
+ * até completar maxBatchSize ou até maxDelayMillis depois do primeiro, o que vier
+ * antes. O lote é classificado de uma vez pelo BatchScorer (que não é thread-safe e
+ * por isso fica restrito a essa thread) e cada pedido recebe seu resultado.
+ */
+public class MicroBatcher {
+
+    /**
+     * Resultado de um pedido.
+     */
+    public static class Prediction {
+        private final int classIndex;
+        private final double[] distribution;
+        private final long queueNanos;
+        private final long scoreNanos;
+        private final int batchSize;
+
+        Prediction(int classIndex, double[] distribution, long queueNanos, long scoreNanos, int batchSize) {
+            this.classIndex = classIndex;
+            this.distribution = distribution;
+            this.queueNanos = queueNanos;
+            this.scoreNanos = scoreNanos;
+            this.batchSize = batchSize;
+        }
+
+        public int getClassIndex() {
+            return classIndex;
+        }
+
+        public double[] getDistribution() {
+            return distribution;
+        }
+
+        /**
+         * @return tempo entre o pedido entrar na fila e o lote começar a ser classificado.
+         */
+        public long getQueueNanos() {
+            return queueNanos;
+        }
+
+        /**
+         * @return tempo de classificação do lote inteiro.
+         */
+        public long getScoreNanos() {
+            return scoreNanos;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+    }
+
+    private static final class Request {
+        final double[] values;
+        final long enqueued = System.nanoTime();
+        final CompletableFuture<Prediction> result = new CompletableFuture<>();
+
+        Request(double[] values) {
+            this.values = values;
+        }
+    }
+
+    private final BatchScorer scorer;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param scorer classificador em lote (usado só pela thread do batcher).
+     * @param maxBatchSize tamanho máximo de um lote.
+     * @param maxDelayMillis espera máxima, depois do primeiro pedido, para completar o lote.
+     */
+    public MicroBatcher(BatchScorer scorer, int maxBatchSize, long maxDelayMillis) {
+        if (maxBatchSize < 1 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("Lote mínimo 1 e espera não negativa.");
+        }
+        this.scorer = scorer;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "plantdisease-batcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Enfileira uma amostra com valores brutos.
+     *
+     * @param values um valor por atributo, na ordem do cabeçalho do modelo.
+     * @return resultado futuro.
+     */
+    public CompletableFuture<Prediction> submit(double[] values) {
+        Request request = new Request(values);
+        if (!running) {
+            request.result.completeExceptionally(new IllegalStateException("Serviço encerrado."));
+            return request.result;
+        }
+        queue.add(request);
+        // A thread pode ter encerrado (shutdown ou Error no classificador) depois do teste
+        // acima e já esvaziado a fila: quem tirar o pedido da fila é quem responde.
+        if (!running && queue.remove(request)) {
+            request.result.completeExceptionally(new IllegalStateException("Serviço encerrado."));
+        }
+        return request.result;
+    }
+
+    /**
+     * @return pedidos aguardando na fila.
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Para a thread do batcher; pedidos pendentes falham.
+     */
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void loop() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        double[][] rows = new double[maxBatchSize][];
+        int[] classes = new int[maxBatchSize];
+        double[][] dist = new double[maxBatchSize][scorer.numClasses()];
+        try {
+            while (running) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    long wait = deadline - System.nanoTime();
+                    Request next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                score(batch, rows, classes, dist);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Também quando a thread morre por um Error do classificador: submit deixa de
+            // enfileirar e os pedidos pendentes falham em vez de esperar o timeout.
+            running = false;
+            IllegalStateException closed = new IllegalStateException("Serviço encerrado.");
+            for (Request request : batch) {
+                request.result.completeExceptionally(closed);
+            }
+            Request pending;
+            while ((pending = queue.poll()) != null) {
+                pending.result.completeExceptionally(closed);
+            }
+        }
+    }
+
+    private void score(List<Request> batch, double[][] rows, int[] classes, double[][] dist) {
+        int n = batch.size();
+        for (int i = 0; i < n; i++) {
+            rows[i] = batch.get(i).values;
+        }
+        long start = System.nanoTime();
+        try {
+            scorer.score(rows, 0, n, classes, dist);
+        } catch (Exception e) {
+            // Uma linha inválida não deve derrubar o lote: classifica uma a uma.
+            scoreIndividually(batch, rows, classes, dist);
+            return;
+        }
+        long scoreNanos = System.nanoTime() - start;
+        for (int i = 0; i < n; i++) {
+            Request request = batch.get(i);
+            request.result.complete(new Prediction(classes[i], dist[i].clone(),
+                    start - request.enqueued, scoreNanos, n));
+            rows[i] = null;
+        }
+    }
+
+    private void scoreIndividually(List<Request> batch, double[][] rows, int[] classes, double[][] dist) {
+        for (int i = 0; i < batch.size(); i++) {
+            Request request = batch.get(i);
+            long start = System.nanoTime();
+            try {
+                scorer.score(rows, i, 1, classes, dist);
+                request.result.complete(new Prediction(classes[0], dist[0].clone(),
+                        start - request.enqueued, System.nanoTime() - start, 1));
+            } catch (Exception e) {
+                request.result.completeExceptionally(e);
+            }
+            rows[i] = null;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Grava e lê modelos treinados num formato binário versionado.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   int    magic "PDCM"
+ *   short  versão do formato
+ *   long   CRC32 de todos os bytes seguintes (versão 3)
+ *   long   data de criação
+ *   int    opção do modelo, int n + n double parâmetros de tuning
+ *   cabeçalho: relação, índice da classe, atributos (nome, tipo, rótulos)
+ *   normalização: min[] e max[] por atributo, escala, translação
+ *   seleção de atributos (versão 2): int n (-1 sem seleção) + n índices mantidos
+ *   int    tamanho + bytes do classificador serializado (Java); nas versões 1 e 2
+ *          o CRC32 vinha aqui, entre o tamanho e os bytes, e cobria só o classificador
+ * </pre>
+ * Na leitura o checksum é conferido antes de interpretar o restante, e cada contagem
+ * é validada contra os bytes restantes: um arquivo corrompido ou truncado resulta
+ * em IOException.
+ * A leitura mapeia o arquivo em memória (FileChannel.map) e desserializa o
+ * classificador direto do buffer mapeado, sem cópia intermediária e sem retreinar.
+ */
+public class ModelStore {
+
+    private static final int MAGIC = 0x5044434D; // "PDCM"
+    private static final short VERSION = 3;
+    private static final byte NUMERIC = 0;
+    private static final byte NOMINAL = 1;
+
+    private ModelStore() {
+    }
+
+    /**
+     * Grava o modelo. O arquivo é escrito ao lado e movido no final (de forma atômica
+     * quando o sistema de arquivos permite), para que uma gravação interrompida não
+     * deixe um modelo truncado no lugar do anterior. Em caso de falha o temporário é
+     * apagado.
+     *
+     * @param file arquivo de destino.
+     * @param model modelo treinado.
+     * @throws IOException se a gravação falhar.
+     */
+    public static void save(File file, StoredModel model) throws IOException {
+        byte[] classifierBytes = serialize(model.getClassifier());
+        byte[] metadata = metadata(model, classifierBytes.length);
+        CRC32 crc = new CRC32();
+        crc.update(metadata);
+        crc.update(classifierBytes);
+
+        File tmp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        boolean moved = false;
+        try {
+            write(tmp, metadata, classifierBytes, crc.getValue());
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private static void write(File tmp, byte[] metadata, byte[] classifierBytes, long crc) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(crc);
+            out.write(metadata);
+            out.write(classifierBytes);
+        }
+    }
+
+    // Tudo entre o CRC e os bytes do classificador, terminando no tamanho deles.
+    private static byte[] metadata(StoredModel model, int classifierLength) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(model.getCreatedMillis());
+            out.writeInt(model.getModelOption());
+            double[] params = model.getTuningParams();
+            out.writeInt(params.length);
+            for (double p : params) {
+                out.writeDouble(p);
+            }
+            PreprocessingModel pre = model.getPreprocessing();
+            writeHeader(out, pre.getHeader());
+            writeDoubles(out, pre.getMin());
+            writeDoubles(out, pre.getMax());
+            out.writeDouble(pre.getScale());
+            out.writeDouble(pre.getTranslation());
+            int[] selected = pre.getSelected();
+            out.writeInt(selected == null ? -1 : selected.length);
+            if (selected != null) {
+                for (int j : selected) {
+                    out.writeInt(j);
+                }
+            }
+            out.writeInt(classifierLength);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Lê um modelo gravado por save.
+     *
+     * @param file arquivo do modelo.
+     * @return modelo pronto para classificar.
+     * @throws IOException se o arquivo for inválido, de outra versão ou estiver corrompido.
+     */
+    public static StoredModel load(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 6 || buffer.getInt() != MAGIC) {
+                throw new IOException(file + " não é um modelo salvo por esta aplicação.");
+            }
+            short version = buffer.getShort();
+            // A versão 1 é a 2 sem a seleção de atributos; a 3 move o CRC para o início.
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Versão de modelo não suportada: " + version + " (esperada " + VERSION + ").");
+            }
+            if (version >= 3) {
+                long expectedCrc = buffer.getLong();
+                CRC32 crc = new CRC32();
+                crc.update(buffer.duplicate());
+                if (crc.getValue() != expectedCrc) {
+                    throw new IOException("Checksum inválido no modelo " + file + ".");
+                }
+            }
+            long created = buffer.getLong();
+            int modelOption = buffer.getInt();
+            double[] params = new double[readCount(buffer, 8)];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = buffer.getDouble();
+            }
+            Instances header = readHeader(buffer);
+            double[] min = readDoubles(buffer);
+            double[] max = readDoubles(buffer);
+            if (min.length != header.numAttributes() || max.length != header.numAttributes()) {
+                throw new IOException("Faixas de normalização incompatíveis com o cabeçalho no modelo " + file + ".");
+            }
+            double scale = buffer.getDouble();
+            double translation = buffer.getDouble();
+            int[] selected = null;
+            if (version >= 2) {
+                int count = buffer.getInt();
+                if (count < -1 || 4L * count > buffer.remaining()) {
+                    throw new IOException("Contagem inválida no modelo: " + count + ".");
+                }
+                if (count >= 0) {
+                    selected = new int[count];
+                    for (int k = 0; k < count; k++) {
+                        selected[k] = buffer.getInt();
+                    }
+                }
+            }
+            int length = buffer.getInt();
+            long expectedCrc = version >= 3 ? 0 : buffer.getLong();
+            if (length != buffer.remaining()) {
+                throw new IOException("Modelo truncado ou corrompido: " + file + ".");
+            }
+            ByteBuffer classifierBytes = buffer.slice();
+            if (version < 3) {
+                CRC32 crc = new CRC32();
+                crc.update(classifierBytes.duplicate());
+                if (crc.getValue() != expectedCrc) {
+                    throw new IOException("Checksum inválido no modelo " + file + ".");
+                }
+            }
+            Classifier classifier = deserialize(classifierBytes);
+            PreprocessingModel pre = new PreprocessingModel(header, min, max, scale, translation);
+            if (selected != null) {
+                try {
+                    pre = pre.withSelection(selected);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Seleção de atributos inválida no modelo " + file + ".", e);
+                }
+            }
+            return new StoredModel(modelOption, params, pre, classifier, created);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Modelo truncado ou corrompido: " + file + ".", e);
+        }
+    }
+
+    private static byte[] serialize(Classifier classifier) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(classifier);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Classifier deserialize(ByteBuffer bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(bytes))) {
+            return (Classifier) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Classificador salvo não pode ser carregado: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, Instances header) throws IOException {
+        out.writeUTF(header.relationName());
+        out.writeInt(header.classIndex());
+        out.writeInt(header.numAttributes());
+        for (int j = 0; j < header.numAttributes(); j++) {
+            Attribute attribute = header.attribute(j);
+            out.writeUTF(attribute.name());
+            if (attribute.isNominal()) {
+                out.writeByte(NOMINAL);
+                out.writeInt(attribute.numValues());
+                for (int v = 0; v < attribute.numValues(); v++) {
+                    out.writeUTF(attribute.value(v));
+                }
+            } else if (attribute.isNumeric()) {
+                out.writeByte(NUMERIC);
+            } else {
+                throw new IOException("Tipo de atributo não suportado: " + attribute.name() + ".");
+            }
+        }
+    }
+
+    private static Instances readHeader(ByteBuffer in) throws IOException {
+        String relation = readUTF(in);
+        int classIndex = in.getInt();
+        // Cada atributo ocupa ao menos o nome vazio (2 bytes) e o tipo (1 byte).
+        int numAttributes = readCount(in, 3);
+        if (classIndex < -1 || classIndex >= numAttributes) {
+            throw new IOException("Índice da classe inválido no modelo: " + classIndex + ".");
+        }
+        ArrayList<Attribute> attributes = new ArrayList<>(numAttributes);
+        for (int j = 0; j < numAttributes; j++) {
+            String name = readUTF(in);
+            byte type = in.get();
+            if (type == NOMINAL) {
+                int numValues = readCount(in, 2);
+                ArrayList<String> values = new ArrayList<>(numValues);
+                for (int v = 0; v < numValues; v++) {
+                    values.add(readUTF(in));
+                }
+                attributes.add(new Attribute(name, values));
+            } else if (type == NUMERIC) {
+                attributes.add(new Attribute(name));
+            } else {
+                throw new IOException("Tipo de atributo desconhecido no modelo: " + type + ".");
+            }
+        }
+        try {
+            Instances header = new Instances(relation, attributes, 0);
+            header.setClassIndex(classIndex);
+            return header;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Cabeçalho inválido no modelo: " + e.getMessage(), e);
+        }
+    }
+
+    // Contagem seguida de elementos de pelo menos minBytes cada: negativa ou maior que
+    // o restante do buffer indica arquivo corrompido.
+    private static int readCount(ByteBuffer in, int minBytes) throws IOException {
+        int count = in.getInt();
+        if (count < 0 || (long) count * minBytes > in.remaining()) {
+            throw new IOException("Contagem inválida no modelo: " + count + ".");
+        }
+        return count;
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (double v : values) {
+            out.writeDouble(v);
+        }
+    }
+
+    private static double[] readDoubles(ByteBuffer in) throws IOException {
+        double[] values = new double[readCount(in, 8)];
+        in.asDoubleBuffer().get(values);
+        in.position(in.position() + 8 * values.length);
+        return values;
+    }
+
+    // UTF-8 modificado de DataOutputStream.writeUTF (NUL e caracteres fora do BMP diferem do UTF-8).
+    private static String readUTF(ByteBuffer in) throws IOException {
+        return new DataInputStream(new ByteBufferInputStream(in)).readUTF();
+    }
+
+    /**
+     * InputStream sobre um ByteBuffer (ex.: região mapeada do arquivo).
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
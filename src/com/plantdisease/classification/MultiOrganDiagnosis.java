@@ -0,0 +1,469 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Diagnóstico da planta a partir de um modelo por órgão (folha, caule, fruto).
+ *
+ * Cada órgão tem sua base, seu pré-processamento (Normalize + ClassBalancer, via
+ * DatasetCache) e seu classificador. Leitura, pré-processamento e treino dos órgãos
+ * rodam ao mesmo tempo no pool compartilhado (ParallelCrossValidator.sharedPool), e as
+ * distribuições de cada órgão são combinadas numa distribuição única da planta,
+ * associando as classes pelo rótulo.
+ *
+ * Regras de fusão:
+ * - AVERAGE: média das probabilidades, ponderada pelo peso de cada órgão;
+ * - PRODUCT: produto das probabilidades (média geométrica ponderada, renormalizada),
+ *   com piso EPSILON para que um único órgão não zere uma classe.
+ *
+ * Órgãos sem observação (linha null) ficam fora da fusão daquela planta.
+ */
+public class MultiOrganDiagnosis {
+
+    /** Bases do repositório, na ordem dos órgãos. */
+    public static final String[] ORGANS = {"Folha", "Caule", "Fruto"};
+
+    static final double EPSILON = 1e-6;
+
+    /**
+     * Regra de combinação das distribuições dos órgãos.
+     */
+    public enum Fusion {
+        AVERAGE,
+        PRODUCT
+    }
+
+    /**
+     * Modelo treinado de um órgão.
+     */
+    public static class OrganModel {
+        private final String name;
+        private final Classifier classifier;
+        private final PreprocessingModel preprocessing;
+        private final BatchScorer scorer;
+        private final int numInstances;
+        private final long trainNanos;
+        private int[] labelIndex;
+        private double weight = 1;
+
+        OrganModel(String name, Classifier classifier, PreprocessingModel preprocessing, int numInstances,
+                   long trainNanos) {
+            this.name = name;
+            this.classifier = classifier;
+            this.preprocessing = preprocessing;
+            this.scorer = new BatchScorer(classifier, preprocessing);
+            this.numInstances = numInstances;
+            this.trainNanos = trainNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Classifier getClassifier() {
+            return classifier;
+        }
+
+        public PreprocessingModel getPreprocessing() {
+            return preprocessing;
+        }
+
+        public int getNumInstances() {
+            return numInstances;
+        }
+
+        /**
+         * @return tempo de leitura, pré-processamento e treino do órgão.
+         */
+        public long getTrainNanos() {
+            return trainNanos;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+    /**
+     * Diagnóstico de uma planta.
+     */
+    public static class Diagnosis {
+        private final String[] labels;
+        private final double[] distribution;
+        private final Map<String, double[]> organDistributions;
+
+        Diagnosis(String[] labels, double[] distribution, Map<String, double[]> organDistributions) {
+            this.labels = labels;
+            this.distribution = distribution;
+            this.organDistributions = organDistributions;
+        }
+
+        /**
+         * @return rótulo mais provável, ou null se a distribuição for toda zero.
+         */
+        public String getLabel() {
+            int best = BatchScorer.argMax(distribution);
+            return best < 0 ? null : labels[best];
+        }
+
+        /**
+         * @return distribuição combinada, na ordem de getLabels().
+         */
+        public double[] getDistribution() {
+            return distribution;
+        }
+
+        public String[] getLabels() {
+            return labels;
+        }
+
+        /**
+         * @return distribuição de cada órgão usado, nos rótulos do próprio órgão.
+         */
+        public Map<String, double[]> getOrganDistributions() {
+            return organDistributions;
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final Map<String, OrganModel> organs = new LinkedHashMap<>();
+    private String[] labels = new String[0];
+    private Fusion fusion = Fusion.AVERAGE;
+    private PipelineMetrics metrics;
+
+    /**
+     * Usa o pool compartilhado do processo.
+     */
+    public MultiOrganDiagnosis() {
+        this(ParallelCrossValidator.sharedPool());
+    }
+
+    /**
+     * @param pool pool onde os órgãos são treinados e classificados.
+     */
+    public MultiOrganDiagnosis(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Bases dos três órgãos no diretório de dados do repositório.
+     *
+     * @param dataDir diretório "data".
+     * @return órgão -> arquivo CSV, na ordem de ORGANS.
+     */
+    public static Map<String, File> defaultDatasets(File dataDir) {
+        Map<String, File> datasets = new LinkedHashMap<>();
+        for (String organ : ORGANS) {
+            datasets.put(organ, new File(dataDir, "Dataset/Diagnostico Murfa de Fitoftora - " + organ + ".csv"));
+        }
+        return datasets;
+    }
+
+    public void setFusion(Fusion fusion) {
+        this.fusion = fusion;
+    }
+
+    public Fusion getFusion() {
+        return fusion;
+    }
+
+    /**
+     * Define o peso de um órgão na fusão (padrão 1).
+     *
+     * @param organ nome do órgão.
+     * @param weight peso (>= 0).
+     */
+    public void setWeight(String organ, double weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Peso deve ser >= 0.");
+        }
+        organ(organ).weight = weight;
+    }
+
+    /**
+     * Define onde registrar o tempo de cada órgão (etapa "organ:NOME") e da fusão.
+     *
+     * @param metrics métricas (pode ser null).
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Lê, pré-processa e treina um modelo por órgão, todos ao mesmo tempo. Substitui os
+     * modelos anteriores.
+     *
+     * @param datasets órgão -> arquivo CSV ou ARFF.
+     * @param modelOption opção do modelo (ver PlantDiseaseClassifier.setClassifier).
+     * @param tuningParams parâmetros do modelo.
+     * @throws Exception se algum órgão falhar (os demais são descartados).
+     */
+    public void train(Map<String, File> datasets, final int modelOption, final double[] tuningParams)
+            throws Exception {
+        List<Future<OrganModel>> tasks = new ArrayList<>();
+        for (final Map.Entry<String, File> dataset : datasets.entrySet()) {
+            tasks.add(pool.submit(new Callable<OrganModel>() {
+                @Override
+                public OrganModel call() throws Exception {
+                    long start = System.nanoTime();
+                    final File file = dataset.getValue();
+                    DatasetCache.Loader loader = new DatasetCache.Loader() {
+                        @Override
+                        public PreparedDataset load() throws Exception {
+                            return PlantDiseaseClassifier.loadPrepared(file.getPath(), null);
+                        }
+                    };
+                    PreparedDataset prepared = DatasetCache.shared().get(file, PlantDiseaseClassifier.PREPROCESSING_KEY,
+                            loader);
+                    Classifier classifier = PlantDiseaseClassifier.createClassifier(modelOption, tuningParams);
+                    Instances training = prepared.getData();
+                    classifier.buildClassifier(training);
+                    long nanos = System.nanoTime() - start;
+                    PipelineMetrics m = metrics;
+                    if (m != null) {
+                        m.record("organ:" + dataset.getKey(), nanos, training.numInstances(), -1);
+                    }
+                    return new OrganModel(dataset.getKey(), classifier, prepared.getPreprocessing(),
+                            training.numInstances(), nanos);
+                }
+            }));
+        }
+        Map<String, OrganModel> trained = new LinkedHashMap<>();
+        try {
+            for (Future<OrganModel> task : tasks) {
+                OrganModel model = task.get();
+                trained.put(model.getName(), model);
+            }
+        } catch (ExecutionException e) {
+            for (Future<OrganModel> task : tasks) {
+                task.cancel(true);
+            }
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+        synchronized (this) {
+            organs.clear();
+            organs.putAll(trained);
+            labels = unionLabels(trained);
+        }
+    }
+
+    /**
+     * @return órgãos treinados, na ordem de treino.
+     */
+    public synchronized List<OrganModel> getOrgans() {
+        return new ArrayList<>(organs.values());
+    }
+
+    /**
+     * @return rótulos da distribuição combinada (união dos rótulos dos órgãos).
+     */
+    public synchronized String[] getLabels() {
+        return labels.clone();
+    }
+
+    /**
+     * Diagnóstico de uma planta.
+     *
+     * @param rawByOrgan órgão -> valores brutos, na ordem da base do órgão (a classe é
+     *        ignorada); órgãos ausentes ficam fora da fusão.
+     * @return diagnóstico combinado.
+     * @throws Exception se a classificação falhar ou nenhum órgão for informado.
+     */
+    public Diagnosis diagnose(Map<String, double[]> rawByOrgan) throws Exception {
+        Map<String, double[][]> rows = new LinkedHashMap<>();
+        for (Map.Entry<String, double[]> entry : rawByOrgan.entrySet()) {
+            rows.put(entry.getKey(), entry.getValue() == null ? new double[][]{null} : new double[][]{entry.getValue()});
+        }
+        String[] currentLabels = getLabels();
+        double[][] dist = new double[1][currentLabels.length];
+        Map<String, double[][]> organDist = scoreOrgans(rows, 1);
+        fuse(organDist, 1, null, dist);
+        Map<String, double[]> perOrgan = new LinkedHashMap<>();
+        for (Map.Entry<String, double[][]> entry : organDist.entrySet()) {
+            if (entry.getValue()[0] != null) {
+                perOrgan.put(entry.getKey(), entry.getValue()[0]);
+            }
+        }
+        return new Diagnosis(currentLabels, dist[0], perOrgan);
+    }
+
+    /**
+     * Diagnóstico em lote: a linha i de cada órgão é a mesma planta. Os órgãos são
+     * classificados em paralelo (cada um pelo seu BatchScorer) e combinados linha a linha.
+     *
+     * @param rowsByOrgan órgão -> linhas brutas (uma linha null exclui o órgão daquela planta).
+     * @param count número de plantas.
+     * @param outLabels recebe o índice do rótulo combinado em getLabels() (-1 se indefinido); pode ser null.
+     * @param outDist recebe as distribuições combinadas; pode ser null.
+     * @throws Exception se a classificação falhar.
+     */
+    public void diagnoseBatch(Map<String, double[][]> rowsByOrgan, int count, int[] outLabels, double[][] outDist)
+            throws Exception {
+        long start = System.nanoTime();
+        Map<String, double[][]> organDist = scoreOrgans(rowsByOrgan, count);
+        double[][] dist = outDist != null ? outDist : new double[count][getLabels().length];
+        fuse(organDist, count, outLabels, dist);
+        PipelineMetrics m = metrics;
+        if (m != null) {
+            m.record("diagnoseBatch", System.nanoTime() - start, count, -1);
+        }
+    }
+
+    private Map<String, double[][]> scoreOrgans(Map<String, double[][]> rowsByOrgan, final int count)
+            throws Exception {
+        Map<String, Future<double[][]>> tasks = new LinkedHashMap<>();
+        for (Map.Entry<String, double[][]> entry : rowsByOrgan.entrySet()) {
+            final OrganModel model = organ(entry.getKey());
+            final double[][] rows = entry.getValue();
+            if (rows.length < count) {
+                throw new IllegalArgumentException("Órgão " + model.getName() + ": esperadas " + count
+                        + " linhas, recebidas " + rows.length + ".");
+            }
+            tasks.put(model.getName(), pool.submit(new Callable<double[][]>() {
+                @Override
+                public double[][] call() throws Exception {
+                    return scoreOrgan(model, rows, count);
+                }
+            }));
+        }
+        Map<String, double[][]> result = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, Future<double[][]>> task : tasks.entrySet()) {
+                result.put(task.getKey(), task.getValue().get());
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+        return result;
+    }
+
+    // Linhas null ficam com distribuição null. O BatchScorer não é thread-safe: um órgão por vez.
+    private static double[][] scoreOrgan(OrganModel model, double[][] rows, int count) throws Exception {
+        double[][] dist = new double[count][];
+        synchronized (model.scorer) {
+            int i = 0;
+            while (i < count) {
+                if (rows[i] == null) {
+                    i++;
+                    continue;
+                }
+                int end = i;
+                while (end < count && rows[end] != null) {
+                    end++;
+                }
+                double[][] block = new double[end - i][model.scorer.numClasses()];
+                model.scorer.score(rows, i, end - i, null, block);
+                System.arraycopy(block, 0, dist, i, end - i);
+                i = end;
+            }
+        }
+        return dist;
+    }
+
+    private void fuse(Map<String, double[][]> organDist, int count, int[] outLabels, double[][] outDist) {
+        String[] currentLabels;
+        List<OrganModel> models = new ArrayList<>();
+        synchronized (this) {
+            currentLabels = labels;
+            for (String name : organDist.keySet()) {
+                models.add(organs.get(name));
+            }
+        }
+        int numLabels = currentLabels.length;
+        List<double[][]> dists = new ArrayList<>(organDist.values());
+        for (int i = 0; i < count; i++) {
+            double[] fused = outDist[i];
+            Arrays.fill(fused, 0);
+            double totalWeight = 0;
+            for (int o = 0; o < models.size(); o++) {
+                double[] dist = dists.get(o)[i];
+                OrganModel model = models.get(o);
+                if (dist == null || model.weight == 0) {
+                    continue;
+                }
+                totalWeight += model.weight;
+                if (fusion == Fusion.AVERAGE) {
+                    for (int c = 0; c < dist.length; c++) {
+                        fused[model.labelIndex[c]] += model.weight * dist[c];
+                    }
+                } else {
+                    // Rótulos que o órgão não conhece recebem o piso.
+                    double[] organ = new double[numLabels];
+                    Arrays.fill(organ, EPSILON);
+                    for (int c = 0; c < dist.length; c++) {
+                        organ[model.labelIndex[c]] = Math.max(dist[c], EPSILON);
+                    }
+                    for (int l = 0; l < numLabels; l++) {
+                        fused[l] += model.weight * Math.log(organ[l]);
+                    }
+                }
+            }
+            if (totalWeight == 0) {
+                throw new IllegalArgumentException("Planta " + i + ": nenhum órgão informado.");
+            }
+            if (fusion == Fusion.AVERAGE) {
+                for (int l = 0; l < numLabels; l++) {
+                    fused[l] /= totalWeight;
+                }
+            } else {
+                double max = Double.NEGATIVE_INFINITY;
+                for (int l = 0; l < numLabels; l++) {
+                    fused[l] /= totalWeight;
+                    max = Math.max(max, fused[l]);
+                }
+                double sum = 0;
+                for (int l = 0; l < numLabels; l++) {
+                    fused[l] = Math.exp(fused[l] - max);
+                    sum += fused[l];
+                }
+                for (int l = 0; l < numLabels; l++) {
+                    fused[l] /= sum;
+                }
+            }
+            if (outLabels != null) {
+                outLabels[i] = BatchScorer.argMax(fused);
+            }
+        }
+    }
+
+    private synchronized OrganModel organ(String name) {
+        OrganModel model = organs.get(name);
+        if (model == null) {
+            throw new IllegalArgumentException("Órgão não treinado: " + name + ".");
+        }
+        return model;
+    }
+
+    // União dos rótulos, na ordem em que aparecem; guarda em cada órgão a posição dos seus rótulos.
+    private static String[] unionLabels(Map<String, OrganModel> models) {
+        List<String> union = new ArrayList<>();
+        for (OrganModel model : models.values()) {
+            Instances header = model.preprocessing.getHeader();
+            model.labelIndex = new int[header.numClasses()];
+            for (int c = 0; c < header.numClasses(); c++) {
+                String label = header.classAttribute().value(c);
+                int index = union.indexOf(label);
+                if (index < 0) {
+                    index = union.size();
+                    union.add(label);
+                }
+                model.labelIndex[c] = index;
+            }
+        }
+        return union.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,446 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.classifiers.Evaluation;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Validação cruzada com os folds treinados em paralelo num ForkJoinPool.
+ *
+ * Os folds são planejados na thread chamadora com exatamente a mesma sequência de
+ * Evaluation.crossValidateModel (randomize, stratify, trainCV com o mesmo Random), mas
+ * sobre índices (IndexView): o plano não copia linhas, e o treino de um fold só vira
+ * Instances enquanto o fold é treinado. Etapas ajustadas aos dados (agrupamento de
+ * repetidas, seleção de atributos) rodam dentro de cada fold, só sobre o seu treino.
+ * Cada fold treina uma cópia do classificador e calcula as distribuições do seu
+ * conjunto de teste; depois as distribuições são registradas numa única Evaluation
+ * na ordem dos folds, de modo que as métricas são idênticas às do caminho sequencial.
+ */
+public class ParallelCrossValidator {
+
+    private static ForkJoinPool sharedPool;
+
+    private final ForkJoinPool pool;
+    private volatile PipelineMetrics metrics;
+    private volatile boolean collapseDuplicates;
+    private volatile boolean featureSelection;
+
+    /**
+     * Usa o pool compartilhado do processo.
+     */
+    public ParallelCrossValidator() {
+        this(sharedPool());
+    }
+
+    /**
+     * @param pool pool onde os folds serão treinados.
+     */
+    public ParallelCrossValidator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Define onde registrar o tempo de treino e teste de cada fold.
+     *
+     * @param metrics métricas (pode ser null).
+     */
+    public void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Define se o treino de cada fold agrupa as linhas repetidas (DuplicateCollapser).
+     * Os folds continuam sendo planejados sobre as linhas originais.
+     *
+     * @param collapseDuplicates true para agrupar.
+     */
+    public void setCollapseDuplicates(boolean collapseDuplicates) {
+        this.collapseDuplicates = collapseDuplicates;
+    }
+
+    /**
+     * Define se cada fold seleciona atributos (FeatureSelector) sobre as suas linhas de
+     * treino e reduz treino e teste às colunas mantidas. As linhas de teste do fold não
+     * influenciam a seleção.
+     *
+     * @param featureSelection true para selecionar atributos em cada fold.
+     */
+    public void setFeatureSelection(boolean featureSelection) {
+        this.featureSelection = featureSelection;
+    }
+
+    /**
+     * Retorna o pool compartilhado, com um nível de paralelismo por processador.
+     *
+     * @return ForkJoinPool compartilhado.
+     */
+    public static synchronized ForkJoinPool sharedPool() {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Linhas de treino e teste de cada fold, na ordem de crossValidateModel.
+     */
+    public static class FoldPlan {
+        private final Instances data;
+        private final int folds;
+        private final IndexView[] train;
+        private final IndexView[] test;
+
+        FoldPlan(Instances data, int folds, IndexView[] train, IndexView[] test) {
+            this.data = data;
+            this.folds = folds;
+            this.train = train;
+            this.test = test;
+        }
+
+        public int getFolds() {
+            return folds;
+        }
+
+        public Instances getData() {
+            return data;
+        }
+    }
+
+    /**
+     * Acompanha o progresso de um ou mais planos submetidos juntos.
+     */
+    public static class Progress {
+        private final ProgressListener listener;
+        private final AtomicInteger completed;
+        private final int total;
+
+        /**
+         * @param listener ouvinte (pode ser null).
+         * @param completed passos já concluídos antes destes folds.
+         * @param total total de passos.
+         */
+        public Progress(ProgressListener listener, int completed, int total) {
+            this.listener = listener;
+            this.completed = new AtomicInteger(completed);
+            this.total = total;
+        }
+
+        void step(String message) {
+            int done = completed.incrementAndGet();
+            if (listener != null) {
+                listener.onProgress(done, total, message);
+            }
+        }
+    }
+
+    /**
+     * Planeja os folds como Evaluation.crossValidateModel faria.
+     *
+     * @param data conjunto de dados (não é modificado nem copiado).
+     * @param folds número de folds.
+     * @param random gerador usado para embaralhar e para cada trainCV.
+     * @return plano com os índices de cada fold.
+     */
+    public static FoldPlan plan(Instances data, int folds, Random random) {
+        IndexView cvData = IndexView.all(data).randomize(random);
+        if (data.classAttribute().isNominal()) {
+            cvData.stratify(folds);
+        }
+        IndexView[] train = new IndexView[folds];
+        IndexView[] test = new IndexView[folds];
+        for (int i = 0; i < folds; i++) {
+            train[i] = cvData.trainCV(folds, i, random);
+            test[i] = cvData.testCV(folds, i);
+        }
+        return new FoldPlan(data, folds, train, test);
+    }
+
+    /**
+     * Submete o treino de todos os folds do plano ao pool.
+     * As cópias do classificador são feitas aqui, na thread chamadora.
+     *
+     * @param plan plano de folds.
+     * @param template classificador configurado.
+     * @param progress progresso (pode ser null).
+     * @return uma tarefa por fold, com as distribuições do conjunto de teste.
+     * @throws Exception se a cópia do classificador falhar.
+     */
+    public List<ForkJoinTask<double[][]>> submit(FoldPlan plan, Classifier template, Progress progress)
+            throws Exception {
+        return submit(plan, template, 0, plan.folds, progress);
+    }
+
+    /**
+     * Submete apenas os folds [fromFold, toFold) do plano. Permite avaliar um
+     * subconjunto de folds e continuar depois com os seguintes (busca de hiperparâmetros).
+     *
+     * @param plan plano de folds.
+     * @param template classificador configurado.
+     * @param fromFold primeiro fold (inclusive).
+     * @param toFold último fold (exclusive).
+     * @param progress progresso (pode ser null).
+     * @return uma tarefa por fold, na ordem dos folds.
+     * @throws Exception se a cópia do classificador falhar.
+     */
+    public List<ForkJoinTask<double[][]>> submit(final FoldPlan plan, Classifier template, int fromFold, int toFold,
+                                                 final Progress progress) throws Exception {
+        if (fromFold < 0 || toFold > plan.folds || fromFold > toFold) {
+            throw new IllegalArgumentException("Intervalo de folds inválido: [" + fromFold + ", " + toFold + ").");
+        }
+        Classifier[] copies = AbstractClassifier.makeCopies(template, toFold - fromFold);
+        List<ForkJoinTask<double[][]>> tasks = new ArrayList<>(toFold - fromFold);
+        for (int i = fromFold; i < toFold; i++) {
+            final int fold = i;
+            final Classifier model = copies[i - fromFold];
+            tasks.add(pool.submit(new Callable<double[][]>() {
+                @Override
+                public double[][] call() throws Exception {
+                    double[][] distributions = trainFold(model, plan, fold, null);
+                    if (progress != null) {
+                        progress.step("k = " + plan.folds + ", fold " + (fold + 1) + "/" + plan.folds);
+                    }
+                    return distributions;
+                }
+            }));
+        }
+        return tasks;
+    }
+
+    /**
+     * Como submit, mas cada fold acumula suas predições numa StreamingEvaluation própria
+     * (com as probabilidades a priori do seu treino), sem guardar distribuições.
+     *
+     * @param plan plano de folds.
+     * @param template classificador configurado.
+     * @param reservoirSize predições amostradas por fold para ROC/PRC.
+     * @param progress progresso (pode ser null).
+     * @return uma tarefa por fold, na ordem dos folds.
+     * @throws Exception se a cópia do classificador falhar.
+     */
+    public List<ForkJoinTask<StreamingEvaluation>> submitStreaming(final FoldPlan plan, Classifier template,
+                                                                   final int reservoirSize, final Progress progress)
+            throws Exception {
+        Classifier[] copies = AbstractClassifier.makeCopies(template, plan.folds);
+        List<ForkJoinTask<StreamingEvaluation>> tasks = new ArrayList<>(plan.folds);
+        for (int i = 0; i < plan.folds; i++) {
+            final int fold = i;
+            final Classifier model = copies[i];
+            tasks.add(pool.submit(new Callable<StreamingEvaluation>() {
+                @Override
+                public StreamingEvaluation call() throws Exception {
+                    StreamingEvaluation eval = new StreamingEvaluation(plan.data, reservoirSize, fold);
+                    eval.setPriors(plan.train[fold]);
+                    trainFold(model, plan, fold, eval);
+                    if (progress != null) {
+                        progress.step("k = " + plan.folds + ", fold " + (fold + 1) + "/" + plan.folds);
+                    }
+                    return eval;
+                }
+            }));
+        }
+        return tasks;
+    }
+
+    /**
+     * Junta as avaliações parciais dos folds, na ordem dos folds.
+     *
+     * @param tasks tarefas devolvidas por submitStreaming.
+     * @return avaliação com todos os folds.
+     * @throws Exception se algum fold falhar ou a espera for interrompida.
+     */
+    public StreamingEvaluation mergeStreaming(List<ForkJoinTask<StreamingEvaluation>> tasks) throws Exception {
+        StreamingEvaluation eval = null;
+        try {
+            for (ForkJoinTask<StreamingEvaluation> task : tasks) {
+                StreamingEvaluation fold = task.get();
+                if (eval == null) {
+                    eval = fold;
+                } else {
+                    eval.merge(fold);
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            throw e;
+        } catch (ExecutionException e) {
+            cancel(tasks);
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+        return eval;
+    }
+
+    /**
+     * Validação cruzada completa com avaliação em streaming (memória independente do
+     * número de predições).
+     *
+     * @param template classificador configurado.
+     * @param data conjunto de dados.
+     * @param folds número de folds.
+     * @param random gerador (use new Random(1) para reproduzir crossValidateModel).
+     * @param reservoirSize predições amostradas por fold para ROC/PRC.
+     * @param progress progresso (pode ser null).
+     * @return avaliação com todos os folds.
+     * @throws Exception se ocorrer erro.
+     */
+    public StreamingEvaluation crossValidateStreaming(Classifier template, Instances data, int folds, Random random,
+                                                      int reservoirSize, Progress progress) throws Exception {
+        FoldPlan plan = plan(data, folds, random);
+        return mergeStreaming(submitStreaming(plan, template, reservoirSize, progress));
+    }
+
+    /**
+     * Aguarda os folds e junta os resultados numa Evaluation, na ordem dos folds.
+     * Se a thread for interrompida ou um fold falhar, as tarefas restantes são canceladas.
+     * A lista pode cobrir só os primeiros folds do plano (tasks.get(i) é o fold i).
+     *
+     * @param plan plano de folds.
+     * @param tasks tarefas devolvidas por submit.
+     * @return avaliação com todos os folds.
+     * @throws Exception se algum fold falhar ou a espera for interrompida.
+     */
+    public Evaluation merge(FoldPlan plan, List<ForkJoinTask<double[][]>> tasks) throws Exception {
+        Evaluation eval = new Evaluation(plan.data);
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                double[][] distributions = tasks.get(i).get();
+                // Cópia rasa temporária: setPriors só aceita Instances.
+                eval.setPriors(plan.train[i].materialize());
+                IndexView foldTest = plan.test[i];
+                for (int j = 0; j < foldTest.numInstances(); j++) {
+                    eval.evaluateModelOnceAndRecordPrediction(distributions[j], foldTest.instance(j));
+                }
+            }
+        } catch (InterruptedException e) {
+            cancel(tasks);
+            throw e;
+        } catch (ExecutionException e) {
+            cancel(tasks);
+            Throwable cause = e.getCause();
+            throw (cause instanceof Exception) ? (Exception) cause : e;
+        }
+        return eval;
+    }
+
+    /**
+     * Validação cruzada completa: planeja, treina os folds em paralelo e junta.
+     *
+     * @param template classificador configurado.
+     * @param data conjunto de dados.
+     * @param folds número de folds.
+     * @param random gerador (use new Random(1) para reproduzir crossValidateModel).
+     * @param progress progresso (pode ser null).
+     * @return avaliação com todos os folds.
+     * @throws Exception se ocorrer erro.
+     */
+    public Evaluation crossValidate(Classifier template, Instances data, int folds, Random random, Progress progress)
+            throws Exception {
+        FoldPlan plan = plan(data, folds, random);
+        return merge(plan, submit(plan, template, progress));
+    }
+
+    /**
+     * Varredura de vários k como um único grafo de tarefas: os planos de todos os k
+     * são montados primeiro e todos os pares (k, fold) vão juntos para o pool.
+     * Cada k usa seu próprio new Random(seed), como chamadas independentes de
+     * crossValidateModel.
+     *
+     * @param template classificador configurado.
+     * @param data conjunto de dados.
+     * @param foldsArray valores de k.
+     * @param seed semente de cada validação cruzada.
+     * @param progress progresso (pode ser null).
+     * @return uma avaliação por k, na ordem de foldsArray.
+     * @throws Exception se algum fold falhar ou a espera for interrompida.
+     */
+    public Evaluation[] crossValidateSweep(Classifier template, Instances data, int[] foldsArray, long seed,
+                                           Progress progress) throws Exception {
+        FoldPlan[] plans = new FoldPlan[foldsArray.length];
+        List<List<ForkJoinTask<double[][]>>> tasks = new ArrayList<>(foldsArray.length);
+        List<ForkJoinTask<double[][]>> allTasks = new ArrayList<>();
+        Evaluation[] evaluations = new Evaluation[foldsArray.length];
+        try {
+            for (int i = 0; i < foldsArray.length; i++) {
+                plans[i] = plan(data, foldsArray[i], new Random(seed));
+                List<ForkJoinTask<double[][]>> planTasks = submit(plans[i], template, progress);
+                tasks.add(planTasks);
+                allTasks.addAll(planTasks);
+            }
+            for (int i = 0; i < foldsArray.length; i++) {
+                evaluations[i] = merge(plans[i], tasks.get(i));
+            }
+        } catch (Exception e) {
+            cancel(allTasks);
+            throw e;
+        }
+        return evaluations;
+    }
+
+    /**
+     * Cancela tarefas ainda não concluídas.
+     *
+     * @param tasks tarefas a cancelar.
+     */
+    public static void cancel(List<? extends ForkJoinTask<?>> tasks) {
+        for (ForkJoinTask<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    // Com sink, as predições vão direto para a avaliação do fold e o retorno é null.
+    private double[][] trainFold(Classifier model, FoldPlan plan, int fold, StreamingEvaluation sink)
+            throws Exception {
+        long allocated = PipelineMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        Instances foldTrain = plan.train[fold].materialize();
+        IndexView foldTest = plan.test[fold];
+        FeatureSelector.Selection selection = null;
+        if (featureSelection) {
+            selection = new FeatureSelector(pool).select(foldTrain);
+            if (selection.dropsAttributes()) {
+                foldTrain = selection.reduce(foldTrain);
+            } else {
+                selection = null;
+            }
+        }
+        if (collapseDuplicates) {
+            foldTrain = DuplicateCollapser.forTraining(model, foldTrain);
+        }
+        model.buildClassifier(foldTrain);
+        long trained = System.nanoTime();
+        double[][] distributions = sink == null ? new double[foldTest.numInstances()][] : null;
+        for (int j = 0; j < foldTest.numInstances(); j++) {
+            // Mesmo tratamento de Evaluation.evaluateModelOnceAndRecordPrediction: classe ausente.
+            Instance classMissing = (Instance) foldTest.instance(j).copy();
+            classMissing.setDataset(plan.data);
+            classMissing.setClassMissing();
+            if (selection != null) {
+                classMissing = selection.reduce(classMissing);
+            }
+            double[] distribution = model.distributionForInstance(classMissing);
+            if (sink == null) {
+                distributions[j] = distribution;
+            } else {
+                sink.record(distribution, foldTest.instance(j));
+            }
+        }
+        PipelineMetrics m = metrics;
+        if (m != null) {
+            long end = System.nanoTime();
+            m.recordFold(plan.folds, fold, trained - start, end - trained, foldTrain.numInstances(),
+                    foldTest.numInstances(), allocated < 0 ? -1 : PipelineMetrics.allocatedBytes() - allocated);
+        }
+        return distributions;
+    }
+}
@@ -0,0 +1,242 @@
+package com.plantdisease.classification;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.unsupervised.attribute.Normalize;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * RBFClassifier com o erro e o gradiente calculados em paralelo no pool compartilhado
+ * (ParallelCrossValidator.sharedPool).
+ *
+ * O RBFModel já divide as instâncias entre m_numThreads tarefas, mas soma os resultados
+ * na ordem de um HashSet de Futures: a ordem das somas (e portanto o modelo final)
+ * muda de uma execução para outra. Aqui as instâncias são divididas em partições
+ * fixas, que dependem só do número de instâncias e de numPartitions (não do número de
+ * processadores), e as parciais são somadas na ordem das partições. Com a mesma
+ * semente e os mesmos dados, o modelo é sempre o mesmo, em qualquer máquina.
+ *
+ * A inicialização (k-means ou o CenterInitializer de CenteredRBFClassifier, filtros) e
+ * o otimizador (BFGS ou CGD) são os do RBFClassifier; só calculateSE e
+ * calculateGradient mudam. Com warmStart, um novo
+ * buildClassifier parte dos parâmetros do treino anterior em vez dos do k-means
+ * (ver PlantDiseaseClassifier.updateModel).
+ */
+public class ParallelRBFClassifier extends CenteredRBFClassifier {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Menor partição que vale uma tarefa no pool. */
+    private static final int MIN_PARTITION_SIZE = 32;
+
+    private int numPartitions = 64;
+    private boolean warmStart;
+
+    /**
+     * @return número máximo de partições das instâncias.
+     */
+    public int getNumPartitions() {
+        return numPartitions;
+    }
+
+    /**
+     * Define o número máximo de partições. Faz parte da definição do modelo: outro valor
+     * muda a ordem das somas e, portanto, os últimos dígitos dos parâmetros.
+     *
+     * @param numPartitions partições (>= 1).
+     */
+    public void setNumPartitions(int numPartitions) {
+        if (numPartitions < 1) {
+            throw new IllegalArgumentException("Número de partições deve ser >= 1.");
+        }
+        this.numPartitions = numPartitions;
+    }
+
+    public String numPartitionsTipText() {
+        return "Número máximo de partições das instâncias no cálculo do erro e do gradiente.";
+    }
+
+    public boolean getWarmStart() {
+        return warmStart;
+    }
+
+    /**
+     * Se true, o próximo buildClassifier parte dos parâmetros atuais (centros remapeados
+     * para a normalização interna nova, larguras e pesos como estão), desde que a
+     * estrutura da rede seja a mesma: mesmos atributos, classes e número de neurônios.
+     * Caso contrário, inicializa normalmente.
+     *
+     * @param warmStart true para retomar a otimização.
+     */
+    public void setWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    public String warmStartTipText() {
+        return "Retoma a otimização a partir dos parâmetros do treino anterior.";
+    }
+
+    @Override
+    public String globalInfo() {
+        return super.globalInfo() + "\n\nErro e gradiente calculados em paralelo, com redução determinística.";
+    }
+
+    @Override
+    protected Instances initializeClassifier(Instances data) throws Exception {
+        double[] previous = warmStart ? m_RBFParameters : null;
+        Normalize oldNormalize = m_Filter instanceof Normalize ? (Normalize) m_Filter : null;
+        Instances oldFormat = m_NominalToBinary == null ? null : m_NominalToBinary.getOutputFormat();
+        int oldUnits = m_numUnits;
+        int oldAttributes = m_numAttributes;
+        int oldClassIndex = m_classIndex;
+        int oldCenters = OFFSET_CENTERS;
+        int oldScales = OFFSET_SCALES;
+
+        Instances result = super.initializeClassifier(data);
+
+        if (previous == null || oldNormalize == null || oldFormat == null || m_ZeroR != null
+                || !(m_Filter instanceof Normalize) || previous.length != m_RBFParameters.length
+                || oldUnits != m_numUnits || oldAttributes != m_numAttributes || oldClassIndex != m_classIndex
+                || oldCenters != OFFSET_CENTERS || oldScales != OFFSET_SCALES
+                || !sameAttributes(oldFormat, m_NominalToBinary.getOutputFormat())) {
+            return result;
+        }
+        Normalize newNormalize = (Normalize) m_Filter;
+        double[] parameters = previous.clone();
+        double[] oldMin = oldNormalize.getMinArray();
+        double[] oldMax = oldNormalize.getMaxArray();
+        double[] newMin = newNormalize.getMinArray();
+        double[] newMax = newNormalize.getMaxArray();
+        double scale = newNormalize.getScale();
+        double translation = newNormalize.getTranslation();
+        for (int u = 0; u < m_numUnits; u++) {
+            for (int j = 0; j < m_numAttributes; j++) {
+                if (j == m_classIndex) {
+                    continue;
+                }
+                int k = OFFSET_CENTERS + u * m_numAttributes + j;
+                double raw = Double.isNaN(oldMin[j]) || oldMax[j] == oldMin[j] ? oldMin[j]
+                        : (previous[k] - translation) / scale * (oldMax[j] - oldMin[j]) + oldMin[j];
+                if (Double.isNaN(raw)) {
+                    parameters[k] = m_RBFParameters[k];
+                } else if (Double.isNaN(newMin[j]) || newMax[j] == newMin[j]) {
+                    parameters[k] = 0;
+                } else {
+                    parameters[k] = (raw - newMin[j]) / (newMax[j] - newMin[j]) * scale + translation;
+                }
+            }
+        }
+        m_RBFParameters = parameters;
+        return result;
+    }
+
+    private static boolean sameAttributes(Instances a, Instances b) {
+        if (a.numAttributes() != b.numAttributes()) {
+            return false;
+        }
+        for (int j = 0; j < a.numAttributes(); j++) {
+            if (!a.attribute(j).name().equals(b.attribute(j).name())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected double calculateSE() {
+        final Instances data = m_data;
+        int[] bounds = partitionBounds(data.numInstances());
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ForkJoinTask<Double>[] tasks = new ForkJoinTask[bounds.length - 1];
+        for (int p = 0; p < tasks.length; p++) {
+            final int lo = bounds[p];
+            final int hi = bounds[p + 1];
+            tasks[p] = fork(new Callable<Double>() {
+                @Override
+                public Double call() {
+                    double[] outputs = new double[m_numUnits];
+                    double se = 0;
+                    for (int i = lo; i < hi; i++) {
+                        Instance instance = data.instance(i);
+                        calculateOutputs(instance, outputs, null);
+                        se += calculateError(outputs, instance);
+                    }
+                    return se;
+                }
+            });
+        }
+        double se = 0;
+        for (ForkJoinTask<Double> task : tasks) {
+            se += task.join();
+        }
+        return postprocessError(0.5 * se);
+    }
+
+    @Override
+    protected double[] calculateGradient() {
+        final Instances data = m_data;
+        final int numParameters = m_RBFParameters.length;
+        int[] bounds = partitionBounds(data.numInstances());
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ForkJoinTask<double[]>[] tasks = new ForkJoinTask[bounds.length - 1];
+        for (int p = 0; p < tasks.length; p++) {
+            final int lo = bounds[p];
+            final int hi = bounds[p + 1];
+            tasks[p] = fork(new Callable<double[]>() {
+                @Override
+                public double[] call() {
+                    // Mesmos buffers da tarefa do RBFModel, um conjunto por partição.
+                    double[] outputs = new double[m_numUnits];
+                    double[] deltaHidden = new double[m_numUnits];
+                    double[] sigmoidDerivative = new double[1];
+                    double[] derivativesHidden = new double[m_numUnits];
+                    double[] gradient = new double[numParameters];
+                    for (int i = lo; i < hi; i++) {
+                        Instance instance = data.instance(i);
+                        calculateOutputs(instance, outputs, derivativesHidden);
+                        updateGradient(gradient, instance, outputs, sigmoidDerivative, deltaHidden);
+                        updateGradientForHiddenUnits(gradient, instance, derivativesHidden, deltaHidden);
+                    }
+                    return gradient;
+                }
+            });
+        }
+        double[] gradient = new double[numParameters];
+        for (ForkJoinTask<double[]> task : tasks) {
+            double[] partial = task.join();
+            for (int k = 0; k < numParameters; k++) {
+                gradient[k] += partial[k];
+            }
+        }
+        postprocessGradient(gradient);
+        return gradient;
+    }
+
+    /**
+     * Limites das partições: partição p cobre [bounds[p], bounds[p + 1]).
+     */
+    int[] partitionBounds(int numInstances) {
+        int partitions = Math.max(1, Math.min(numPartitions, numInstances / MIN_PARTITION_SIZE));
+        int[] bounds = new int[partitions + 1];
+        for (int p = 0; p <= partitions; p++) {
+            bounds[p] = (int) ((long) numInstances * p / partitions);
+        }
+        return bounds;
+    }
+
+    // Dentro de um worker do pool (ex.: fold da validação cruzada) a tarefa vai para a
+    // fila local e join a executa ou ajuda; fora dele, entra no pool normalmente.
+    static <T> ForkJoinTask<T> fork(Callable<T> callable) {
+        ForkJoinPool pool = ParallelCrossValidator.sharedPool();
+        ForkJoinTask<T> task = ForkJoinTask.adapt(callable);
+        if (ForkJoinTask.getPool() == pool) {
+            task.fork();
+        } else {
+            pool.execute(task);
+        }
+        return task;
+    }
+}
@@ -0,0 +1,351 @@
+package com.plantdisease.classification;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tempos, contagens de instâncias e alocação por etapa do pipeline.
+ *
+ * Cada etapa (leitura, normalização, balanceamento, treino, avaliação...) acumula
+ * número de execuções, tempo total, último e máximo, instâncias processadas e bytes
+ * alocados pela thread que a executou (quando a JVM oferece
+ * com.sun.management.ThreadMXBean). Os folds da validação cruzada são registrados
+ * individualmente, mantendo os últimos MAX_FOLDS. Thread-safe: os folds rodam em
+ * paralelo.
+ *
+ * As métricas podem ser lidas por JMX (registerMBean), exportadas em JSON (toJson,
+ * writeJson) ou formatadas como tabela (formatTable) para a interface.
+ */
+public class PipelineMetrics implements PipelineMetricsMBean {
+
+    private static final int MAX_FOLDS = 1000;
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private final Map<String, StageStats> stages = new LinkedHashMap<>();
+    private final Deque<FoldTiming> folds = new ArrayDeque<>();
+
+    /**
+     * Medição em andamento de uma etapa. Criada por start e encerrada por stop.
+     */
+    public final class Timer {
+        private final String stage;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Timer(String stage) {
+            this.stage = stage;
+            this.startAllocated = allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Encerra a medição.
+         *
+         * @param instances instâncias processadas na etapa (0 se não se aplica).
+         * @return duração em nanossegundos.
+         */
+        public long stop(int instances) {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = startAllocated < 0 ? -1 : allocatedBytes() - startAllocated;
+            record(stage, nanos, instances, allocated);
+            return nanos;
+        }
+    }
+
+    /**
+     * Tempo de um fold da validação cruzada.
+     */
+    public static class FoldTiming {
+        private final int folds;
+        private final int fold;
+        private final long trainNanos;
+        private final long testNanos;
+        private final int trainInstances;
+        private final int testInstances;
+        private final long allocatedBytes;
+
+        FoldTiming(int folds, int fold, long trainNanos, long testNanos, int trainInstances, int testInstances,
+                   long allocatedBytes) {
+            this.folds = folds;
+            this.fold = fold;
+            this.trainNanos = trainNanos;
+            this.testNanos = testNanos;
+            this.trainInstances = trainInstances;
+            this.testInstances = testInstances;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public int getFolds() {
+            return folds;
+        }
+
+        public int getFold() {
+            return fold;
+        }
+
+        public long getTrainNanos() {
+            return trainNanos;
+        }
+
+        public long getTestNanos() {
+            return testNanos;
+        }
+
+        public int getTrainInstances() {
+            return trainInstances;
+        }
+
+        public int getTestInstances() {
+            return testInstances;
+        }
+
+        /**
+         * @return bytes alocados pela thread do fold, ou -1 se não disponível.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    private static final class StageStats {
+        long count;
+        long totalNanos;
+        long lastNanos;
+        long maxNanos;
+        long instances;
+        long lastInstances;
+        long allocatedBytes = -1;
+    }
+
+    /**
+     * Inicia a medição de uma etapa na thread atual.
+     *
+     * @param stage nome da etapa.
+     * @return medição a encerrar com stop.
+     */
+    public Timer start(String stage) {
+        return new Timer(stage);
+    }
+
+    /**
+     * Registra uma execução de etapa medida externamente.
+     *
+     * @param stage nome da etapa.
+     * @param nanos duração.
+     * @param instances instâncias processadas.
+     * @param allocatedBytes bytes alocados, ou -1 se não medido.
+     */
+    public synchronized void record(String stage, long nanos, int instances, long allocatedBytes) {
+        StageStats stats = stages.get(stage);
+        if (stats == null) {
+            stats = new StageStats();
+            stages.put(stage, stats);
+        }
+        stats.count++;
+        stats.totalNanos += nanos;
+        stats.lastNanos = nanos;
+        stats.maxNanos = Math.max(stats.maxNanos, nanos);
+        stats.instances += instances;
+        stats.lastInstances = instances;
+        if (allocatedBytes >= 0) {
+            stats.allocatedBytes = Math.max(stats.allocatedBytes, 0) + allocatedBytes;
+        }
+    }
+
+    /**
+     * Registra o tempo de um fold.
+     */
+    public synchronized void recordFold(int numFolds, int fold, long trainNanos, long testNanos,
+                                        int trainInstances, int testInstances, long allocatedBytes) {
+        if (folds.size() == MAX_FOLDS) {
+            folds.removeFirst();
+        }
+        folds.addLast(new FoldTiming(numFolds, fold, trainNanos, testNanos, trainInstances, testInstances,
+                allocatedBytes));
+    }
+
+    /**
+     * @return cópia dos folds registrados, do mais antigo ao mais recente.
+     */
+    public synchronized List<FoldTiming> getFolds() {
+        return new ArrayList<>(folds);
+    }
+
+    @Override
+    public synchronized String[] getStageNames() {
+        return stages.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public synchronized String[] getStageSummaries() {
+        String[] lines = new String[stages.size()];
+        int i = 0;
+        for (Map.Entry<String, StageStats> e : stages.entrySet()) {
+            StageStats s = e.getValue();
+            lines[i++] = String.format(Locale.ROOT, "%s: %d exec, total %.1f ms, último %.1f ms, máx %.1f ms, "
+                            + "%d instâncias, %s alocados", e.getKey(), s.count, s.totalNanos / 1e6,
+                    s.lastNanos / 1e6, s.maxNanos / 1e6, s.lastInstances, formatBytes(s.allocatedBytes));
+        }
+        return lines;
+    }
+
+    @Override
+    public synchronized int getFoldCount() {
+        return folds.size();
+    }
+
+    @Override
+    public synchronized double totalMillis(String stage) {
+        StageStats stats = stages.get(stage);
+        return stats == null ? 0 : stats.totalNanos / 1e6;
+    }
+
+    @Override
+    public synchronized void reset() {
+        stages.clear();
+        folds.clear();
+    }
+
+    @Override
+    public String getJson() {
+        return toJson();
+    }
+
+    /**
+     * @return todas as métricas em JSON (tempos em milissegundos).
+     */
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{\"stages\":{");
+        boolean first = true;
+        for (Map.Entry<String, StageStats> e : stages.entrySet()) {
+            StageStats s = e.getValue();
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(e.getKey()).append("\":").append(String.format(Locale.ROOT,
+                    "{\"count\":%d,\"totalMs\":%.3f,\"lastMs\":%.3f,\"maxMs\":%.3f,\"instances\":%d,"
+                            + "\"lastInstances\":%d,\"allocatedBytes\":%d}",
+                    s.count, s.totalNanos / 1e6, s.lastNanos / 1e6, s.maxNanos / 1e6, s.instances,
+                    s.lastInstances, s.allocatedBytes));
+        }
+        json.append("},\"folds\":[");
+        first = true;
+        for (FoldTiming f : folds) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(String.format(Locale.ROOT,
+                    "{\"k\":%d,\"fold\":%d,\"trainMs\":%.3f,\"testMs\":%.3f,\"trainInstances\":%d,"
+                            + "\"testInstances\":%d,\"allocatedBytes\":%d}",
+                    f.folds, f.fold, f.trainNanos / 1e6, f.testNanos / 1e6, f.trainInstances,
+                    f.testInstances, f.allocatedBytes));
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Grava o JSON das métricas num arquivo.
+     *
+     * @param file destino.
+     * @throws IOException se a gravação falhar.
+     */
+    public void writeJson(File file) throws IOException {
+        try (Writer out = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            out.write(toJson());
+        }
+    }
+
+    /**
+     * Tabela de tempos por etapa e resumo dos folds, para exibição.
+     *
+     * @return texto formatado.
+     */
+    public synchronized String formatTable() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-14s %6s %12s %12s %12s %11s %12s%n",
+                "Etapa", "Exec", "Total (ms)", "Último (ms)", "Máx (ms)", "Instâncias", "Alocado"));
+        for (Map.Entry<String, StageStats> e : stages.entrySet()) {
+            StageStats s = e.getValue();
+            sb.append(String.format(Locale.ROOT, "%-14s %6d %12.1f %12.1f %12.1f %11d %12s%n",
+                    e.getKey(), s.count, s.totalNanos / 1e6, s.lastNanos / 1e6, s.maxNanos / 1e6,
+                    s.lastInstances, formatBytes(s.allocatedBytes)));
+        }
+        if (!folds.isEmpty()) {
+            sb.append(String.format(Locale.ROOT, "%nFolds (últimos %d)%n", folds.size()));
+            sb.append(String.format(Locale.ROOT, "%4s %5s %12s %12s %8s %8s %12s%n",
+                    "k", "Fold", "Treino (ms)", "Teste (ms)", "Treino", "Teste", "Alocado"));
+            for (FoldTiming f : folds) {
+                sb.append(String.format(Locale.ROOT, "%4d %5d %12.1f %12.1f %8d %8d %12s%n",
+                        f.folds, f.fold + 1, f.trainNanos / 1e6, f.testNanos / 1e6, f.trainInstances,
+                        f.testInstances, formatBytes(f.allocatedBytes)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Registra estas métricas no MBeanServer da plataforma como
+     * com.plantdisease:type=PipelineMetrics,name=NOME. Um registro anterior com o
+     * mesmo nome é substituído.
+     *
+     * @param name nome da instância.
+     * @throws Exception se o registro falhar.
+     */
+    public void registerMBean(String name) throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.plantdisease:type=PipelineMetrics,name=" + ObjectName.quote(name));
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+    }
+
+    /**
+     * @return bytes alocados até agora pela thread atual, ou -1 se não suportado.
+     */
+    static long allocatedBytes() {
+        return ALLOCATION == null ? -1 : ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+                if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                    return sunBean;
+                }
+            }
+        } catch (LinkageError | SecurityException e) {
+            // JVM sem a extensão com.sun.management: alocação não é medida.
+        }
+        return null;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 0) {
+            return "-";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,40 @@
+package com.plantdisease.classification;
+
+/**
+ * Interface JMX (MBean padrão) das métricas do pipeline.
+ */
+public interface PipelineMetricsMBean {
+
+    /**
+     * @return nomes das etapas registradas.
+     */
+    String[] getStageNames();
+
+    /**
+     * @return uma linha por etapa: nome, execuções, tempo total/último/máximo, instâncias e alocação.
+     */
+    String[] getStageSummaries();
+
+    /**
+     * @return número de folds com tempo registrado.
+     */
+    int getFoldCount();
+
+    /**
+     * @return todas as métricas em JSON.
+     */
+    String getJson();
+
+    /**
+     * Tempo total de uma etapa.
+     *
+     * @param stage nome da etapa.
+     * @return tempo total em milissegundos (0 se a etapa não existe).
+     */
+    double totalMillis(String stage);
+
+    /**
+     * Zera as métricas.
+     */
+    void reset();
+}
@@ -1,8 +1,8 @@
 package com.plantdisease.classification;
 
 import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
 import weka.classifiers.functions.SMO;
-import weka.classifiers.functions.supportVector.PolyKernel;
 import weka.classifiers.trees.J48;
 import weka.classifiers.meta.AdaBoostM1;
 import weka.classifiers.trees.RandomForest;
@@ -10,88 +10,403 @@ import weka.classifiers.lazy.IBk;
 import weka.classifiers.functions.RBFClassifier;
 import weka.classifiers.Evaluation;
 import weka.core.Instances;
-import weka.core.converters.CSVLoader;
 import weka.core.converters.ConverterUtils.DataSource;
 import weka.core.Instance;
+import weka.core.OptionHandler;
+import weka.core.Utils;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.Normalize;
 import weka.filters.supervised.instance.ClassBalancer;
 
 import java.io.File;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 public class PlantDiseaseClassifier {
+    // Configuração aplicada por preprocess; faz parte da chave do DatasetCache.
+    static final String PREPROCESSING_KEY = "Normalize+ClassBalancer";
+    // Versão dos resultados no ResultCache: incremente ao mudar o que uma validação
+    // cruzada calcula (createClassifier, classificadores, folds, seleção, agrupamento).
+    static final int RESULT_VERSION = 2;
+    // Predições amostradas para ROC/PRC na avaliação em streaming.
+    static final int STREAMING_RESERVOIR = 10000;
+
     private Instances data;
     private Instances train;
     private Instances test;
     private Classifier classifier;
-    private Evaluation evaluation;
+    private PreprocessingModel preprocessing;
+    private double[] classWeightSums;
+    // false enquanto data for a base compartilhada do DatasetCache.
+    private boolean ownsData;
+    private int modelOption;
+    private double[] tuningParams;
+    private boolean trained;
+    private BatchScorer batchScorer;
+    private volatile Evaluation evaluation;
+    private volatile StreamingEvaluation streamingEvaluation;
+    private volatile boolean streaming;
+    private volatile ProgressListener progressListener;
+    // Uma única thread de trabalho: os jobs compartilham o estado deste objeto.
+    private final JobEngine jobEngine = new JobEngine("plantdisease-job", 1);
+    private final ParallelCrossValidator cvEngine = new ParallelCrossValidator();
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private volatile boolean printModel = true;
+    private volatile boolean collapseDuplicates;
+    private volatile ResultCache resultCache;
+    private volatile boolean featureSelection;
+    private FeatureSelector.Selection selection;
+    // SHA-256 de data, calculado na primeira consulta ao ResultCache.
+    private String dataDigest;
+
+    public PlantDiseaseClassifier() {
+        cvEngine.setMetrics(metrics);
+    }
+
+    /**
+     * Enfileira um job (treino, avaliação...) para execução fora da thread chamadora.
+     * Jobs submetidos enquanto outro executa aguardam na fila.
+     *
+     * @param task tarefa a executar, normalmente chamando os métodos desta classe.
+     * @param listener recebe o resultado na thread de trabalho.
+     * @return Future do job; cancel(true) interrompe a avaliação entre folds.
+     */
+    public <T> Future<T> submitJob(Callable<T> task, JobEngine.JobListener<T> listener) {
+        return jobEngine.submit(task, listener);
+    }
+
+    /**
+     * Cancela o job em execução e os que estiverem na fila.
+     */
+    public void cancelJobs() {
+        jobEngine.cancelAll();
+    }
+
+    /**
+     * Retorna o número de jobs na fila ou em execução.
+     *
+     * @return jobs pendentes.
+     */
+    public int pendingJobs() {
+        return jobEngine.pendingJobs();
+    }
+
+    /**
+     * Define quem recebe o progresso por fold das avaliações.
+     *
+     * @param listener ouvinte de progresso (pode ser null).
+     */
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Métricas por etapa (leitura, normalização, balanceamento, treino, avaliação, folds).
+     *
+     * @return métricas acumuladas deste classificador.
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Define se trainClassifier imprime o modelo treinado (classifier.toString()).
+     * Para RandomForest e RBF grandes a impressão pode custar mais que o próprio treino.
+     *
+     * @param printModel true para imprimir (padrão).
+     */
+    public void setPrintModel(boolean printModel) {
+        this.printModel = printModel;
+    }
+
+    /**
+     * Define se o treino usa as linhas repetidas agrupadas em instâncias com peso
+     * (DuplicateCollapser). Vale para trainClassifier e para o treino de cada fold da
+     * validação cruzada e da busca; só tem efeito nos classificadores aceitos por
+     * DuplicateCollapser.supports.
+     *
+     * @param collapseDuplicates true para agrupar.
+     */
+    public void setCollapseDuplicates(boolean collapseDuplicates) {
+        this.collapseDuplicates = collapseDuplicates;
+        cvEngine.setCollapseDuplicates(collapseDuplicates);
+    }
+
+    /**
+     * Define se evaluateModel e evaluateModelCV usam StreamingEvaluation (matriz de
+     * confusão e somas, sem guardar cada predição) em vez da Evaluation do Weka. O
+     * resultado fica em getStreamingEvaluation e getEvaluation passa a ser null.
+     *
+     * @param streaming true para avaliar em streaming.
+     */
+    public void setStreamingEvaluation(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Define se o treino seleciona atributos (FeatureSelector). A seleção é sempre
+     * ajustada só às linhas de treino: trainTestSplit seleciona sobre o treino
+     * (selectFeatures) e reduz treino e teste; a validação cruzada e a busca selecionam
+     * dentro de cada fold. A base carregada (getData) mantém todos os atributos.
+     *
+     * @param featureSelection true para descartar atributos redundantes ou sem informação.
+     */
+    public void setFeatureSelection(boolean featureSelection) {
+        this.featureSelection = featureSelection;
+        cvEngine.setFeatureSelection(featureSelection);
+    }
+
+    /**
+     * Define o cache em disco das validações cruzadas (evaluateModelCV, evaluateSweepCV
+     * e evaluateMultipleCV). Por padrão não há cache: a interface e o ExperimentRunner
+     * ativam ResultCache.shared().
+     *
+     * @param resultCache cache de resultados, ou null para sempre recalcular.
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
 
     /**
      * Carrega o conjunto de dados (suporta CSV ou ARFF).
      * Após carregar, aplica normalização e balanceamento.
+     * O resultado fica no DatasetCache: carregar de novo o mesmo arquivo, sem alterações
+     * no disco e com a mesma configuração de pré-processamento, não relê nem refiltra.
      *
      * @param filePath caminho para o arquivo de dados.
      * @throws Exception se ocorrer erro na leitura.
      */
-    public void loadData(String filePath) throws Exception {
+    public void loadData(final String filePath) throws Exception {
+        PipelineMetrics.Timer timer = metrics.start("loadData");
+        DatasetCache.Loader loader = new DatasetCache.Loader() {
+            @Override
+            public PreparedDataset load() throws Exception {
+                // Leitura, normalização e balanceamento
+                return loadPrepared(filePath, metrics);
+            }
+        };
+        PreparedDataset prepared = DatasetCache.shared().get(new File(filePath), preprocessingKey(), loader);
+        data = prepared.sharedData();
+        dataDigest = null;
+        preprocessing = prepared.getPreprocessing();
+        classWeightSums = prepared.getClassWeightSums();
+        ownsData = false;
+        selection = null;
+        timer.stop(data.numInstances());
+    }
+
+    /**
+     * Lê o arquivo de dados sem pré-processamento.
+     *
+     * @param filePath caminho para o arquivo de dados.
+     * @return Instances com o atributo de classe definido.
+     * @throws Exception se ocorrer erro na leitura.
+     */
+    public static Instances readData(String filePath) throws Exception {
+        Instances raw;
         if (filePath.toLowerCase().endsWith(".csv")) {
-            CSVLoader loader = new CSVLoader();
-            loader.setSource(new File(filePath));
-            data = loader.getDataSet();
+            // Leitura em streaming para colunas primitivas; Instances só no final.
+            ColumnarDataset columns = ColumnarCsvReader.read(new File(filePath));
+            raw = columns.toInstances(columns.numColumns() - 1);
         } else if (filePath.toLowerCase().endsWith(".arff")) {
             DataSource source = new DataSource(filePath);
-            data = source.getDataSet();
+            raw = source.getDataSet();
         } else {
             throw new IllegalArgumentException("Formato não suportado. Use CSV ou ARFF.");
         }
         // Define o atributo de classe (último atributo) se ainda não estiver definido.
-        if (data.classIndex() == -1) {
-            data.setClassIndex(data.numAttributes() - 1);
+        if (raw.classIndex() == -1) {
+            raw.setClassIndex(raw.numAttributes() - 1);
         }
-        // Aplica normalização e balanceamento
-        preprocessData();
+        return raw;
+    }
+
+    /**
+     * Lê e pré-processa um arquivo, sem alterar o estado do objeto. O CSV vai das
+     * colunas primitivas direto para a base normalizada e balanceada, sem materializar
+     * a base bruta como Instances (FusedPreprocessor).
+     *
+     * @param filePath caminho para o arquivo de dados (CSV ou ARFF).
+     * @param metrics recebe os tempos das etapas (pode ser null).
+     * @return base pré-processada e o estado ajustado.
+     * @throws Exception se ocorrer erro na leitura.
+     */
+    public static PreparedDataset loadPrepared(String filePath, PipelineMetrics metrics) throws Exception {
+        PipelineMetrics.Timer timer = metrics == null ? null : metrics.start("read");
+        if (!filePath.toLowerCase().endsWith(".csv")) {
+            Instances raw = readData(filePath);
+            if (timer != null) {
+                timer.stop(raw.numInstances());
+            }
+            return preprocess(raw, metrics);
+        }
+        ColumnarDataset columns = ColumnarCsvReader.read(new File(filePath));
+        if (timer != null) {
+            timer.stop(columns.numRows());
+            timer = metrics.start("preprocess");
+        }
+        PreparedDataset prepared = FusedPreprocessor.preprocess(columns, columns.numColumns() - 1);
+        if (timer != null) {
+            timer.stop(columns.numRows());
+        }
+        return prepared;
+    }
+
+    /**
+     * Descreve a configuração de pré-processamento aplicada por loadData.
+     * Faz parte da chave do DatasetCache.
+     *
+     * @return identificação da configuração.
+     */
+    public String preprocessingKey() {
+        return PREPROCESSING_KEY;
     }
 
     /**
      * Aplica normalização e balanceamento à base de dados.
+     * As faixas do Normalize ficam guardadas em getPreprocessing().
      *
      * @throws Exception se ocorrer erro.
      */
     public void preprocessData() throws Exception {
+        PreparedDataset prepared = preprocess(data, metrics);
+        data = prepared.sharedData();
+        dataDigest = null;
+        preprocessing = prepared.getPreprocessing();
+        classWeightSums = prepared.getClassWeightSums();
+        ownsData = false;
+        selection = null;
+    }
+
+    /**
+     * Ranqueia os atributos binários do conjunto de treino (FeatureSelector) e mantém
+     * só os informativos e não repetidos, reduzindo treino e teste. Só as linhas de
+     * treino entram na seleção, e a base carregada não é alterada. A seleção fica no
+     * PreprocessingModel, então classifyRaw, classifyBatch e o modelo salvo continuam
+     * recebendo todos os atributos brutos.
+     *
+     * @return seleção aplicada (ranking e atributos mantidos).
+     * @throws Exception se o treino não estiver preparado ou já tiver seleção.
+     */
+    public FeatureSelector.Selection selectFeatures() throws Exception {
+        if (train == null || preprocessing == null) {
+            throw new IllegalStateException("Dados de treinamento não preparados. Chame trainTestSplit() primeiro.");
+        }
+        if (train.numAttributes() != preprocessing.getHeader().numAttributes()) {
+            throw new IllegalStateException("A seleção de atributos já foi aplicada a este treino.");
+        }
+        PipelineMetrics.Timer timer = metrics.start("selectFeatures");
+        FeatureSelector.Selection result = new FeatureSelector().select(train);
+        preprocessing = preprocessing.withSelection(result.getSelected());
+        if (result.dropsAttributes()) {
+            train = result.reduce(train);
+            test = test == null ? null : result.reduce(test);
+        }
+        selection = result;
+        trained = false;
+        timer.stop(train.numInstances());
+        return result;
+    }
+
+    /**
+     * @return última seleção de atributos aplicada ao treino, ou null.
+     */
+    public FeatureSelector.Selection getFeatureSelection() {
+        return selection;
+    }
+
+    /**
+     * Normalização e balanceamento de uma base bruta, sem alterar o estado do objeto.
+     *
+     * @param raw base lida do arquivo.
+     * @return base pré-processada e as faixas do Normalize.
+     * @throws Exception se ocorrer erro.
+     */
+    public static PreparedDataset preprocess(Instances raw) throws Exception {
+        return preprocess(raw, null);
+    }
+
+    /**
+     * Como preprocess(Instances), medindo o pré-processamento.
+     *
+     * @param raw base lida do arquivo.
+     * @param metrics recebe o tempo da etapa (pode ser null).
+     * @return base pré-processada e as faixas do Normalize.
+     * @throws Exception se ocorrer erro.
+     */
+    public static PreparedDataset preprocess(Instances raw, PipelineMetrics metrics) throws Exception {
+        // Normalização e balanceamento numa única passada (FusedPreprocessor)
+        PipelineMetrics.Timer timer = metrics == null ? null : metrics.start("preprocess");
+        PreparedDataset prepared = FusedPreprocessor.preprocess(raw);
+        if (timer != null) {
+            timer.stop(raw.numInstances());
+        }
+        return prepared;
+    }
+
+    /**
+     * Pré-processamento com os filtros do Weka (Normalize e depois ClassBalancer, cada
+     * um com Filter.useFilter). Mantido como referência para comparar com preprocess.
+     *
+     * @param raw base lida do arquivo.
+     * @return base pré-processada e as faixas do Normalize.
+     * @throws Exception se ocorrer erro.
+     */
+    public static PreparedDataset preprocessWithFilters(Instances raw) throws Exception {
         // Normalização
         Normalize normalize = new Normalize();
-        normalize.setInputFormat(data);
-        Instances normalizedData = Filter.useFilter(data, normalize);
+        normalize.setInputFormat(raw);
+        Instances normalizedData = Filter.useFilter(raw, normalize);
+        PreprocessingModel model = PreprocessingModel.fromNormalize(normalize, normalizedData);
 
         // Balanceamento com ClassBalancer (gera dados sintéticos para equidade)
         ClassBalancer balancer = new ClassBalancer();
         balancer.setInputFormat(normalizedData);
         Instances balancedData = Filter.useFilter(normalizedData, balancer);
 
-        data = balancedData;
+        return new PreparedDataset(balancedData, model, IncrementalUpdater.classWeightSums(normalizedData));
     }
 
     /**
-     * Retorna o conjunto de dados.
+     * Retorna o conjunto de dados. A base vem do DatasetCache e é compartilhada, por
+     * isso o retorno é uma cópia rasa (ver PreparedDataset.getData): alterá-la não
+     * afeta o cache nem este classificador.
      *
-     * @return Instances.
+     * @return Instances, ou null se nada foi carregado.
      */
     public Instances getData() {
-        return data;
+        return data == null ? null : new Instances(data);
     }
 
     /**
-     * Realiza a divisão Train/Test.
+     * Realiza a divisão Train/Test. Com setFeatureSelection(true), a seleção de
+     * atributos é feita em seguida, só sobre o treino.
      *
      * @param trainPercentage porcentagem para treinamento (ex: 70 para 70%).
+     * @throws Exception se a seleção de atributos falhar.
      */
-    public void trainTestSplit(double trainPercentage) {
-        data.randomize(new Random(1));
-        int trainSize = (int) Math.round(data.numInstances() * trainPercentage / 100);
-        int testSize = data.numInstances() - trainSize;
-        train = new Instances(data, 0, trainSize);
-        test = new Instances(data, trainSize, testSize);
+    public void trainTestSplit(double trainPercentage) throws Exception {
+        PipelineMetrics.Timer timer = metrics.start("split");
+        // Embaralha só os índices (mesma ordem de data.randomize): a base em cache não é alterada.
+        IndexView shuffled = IndexView.all(data).randomize(new Random(1));
+        int trainSize = (int) Math.round(shuffled.numInstances() * trainPercentage / 100);
+        int testSize = shuffled.numInstances() - trainSize;
+        train = shuffled.range(0, trainSize).materialize();
+        test = shuffled.range(trainSize, testSize).materialize();
+        timer.stop(shuffled.numInstances());
+        // O treino novo tem todos os atributos: a seleção do split anterior não vale mais.
+        if (preprocessing != null && preprocessing.getSelected() != null) {
+            preprocessing = preprocessing.withoutSelection();
+            selection = null;
+            trained = false;
+        }
+        if (featureSelection) {
+            selectFeatures();
+        }
     }
 
     /**
@@ -104,17 +419,36 @@ public class PlantDiseaseClassifier {
      *  4 – RandomForest: tuningParams[0] = Número de Árvores.
      *  5 – IBk (k-NN): tuningParams[0] = k.
      *  6 – Rede Neural RBF (RBFClassifier): tuningParams[0] = Número de neurônios ocultos (ex.: 10).
+     *  7 – Rede Neural RBF com treino paralelo (ParallelRBFClassifier): mesmos parâmetros da opção 6.
      *
-     * @param modelOption opção do modelo (1 a 6).
+     * @param modelOption opção do modelo (1 a 7).
      * @param tuningParams vetor com os parâmetros de tuning.
      * @throws Exception se opção inválida.
      */
     public void setClassifier(int modelOption, double[] tuningParams) throws Exception {
+        classifier = createClassifier(modelOption, tuningParams);
+        this.modelOption = modelOption;
+        this.tuningParams = tuningParams.clone();
+        trained = false;
+    }
+
+    /**
+     * Cria um classificador novo, sem treinar, com as mesmas opções de setClassifier.
+     * Usado também pela busca de hiperparâmetros, que precisa de uma instância por candidato.
+     *
+     * @param modelOption opção do modelo (1 a 7).
+     * @param tuningParams vetor com os parâmetros de tuning.
+     * @return classificador configurado.
+     * @throws Exception se opção inválida.
+     */
+    public static Classifier createClassifier(int modelOption, double[] tuningParams) throws Exception {
+        Classifier classifier;
         switch (modelOption) {
             case 1: // SVM (SMO)
                 SMO smo = new SMO();
                 smo.setC(tuningParams[0]);
-                PolyKernel pk = new PolyKernel();
+                // Valores do kernel compartilhados entre folds, k e candidatos (KernelMatrixCache).
+                CachedPolyKernel pk = new CachedPolyKernel();
                 pk.setExponent(tuningParams[1]);
                 smo.setKernel(pk);
                 classifier = smo;
@@ -138,10 +472,19 @@ public class PlantDiseaseClassifier {
             case 5: // IBk (k-NN)
                 IBk ibk = new IBk();
                 ibk.setKNN((int) tuningParams[0]);
+                // Mesma distância euclidiana, calculada por popcount quando os sintomas são 0/1.
+                ibk.setNearestNeighbourSearchAlgorithm(new BitPackedNNSearch());
                 classifier = ibk;
                 break;
             case 6: // Rede Neural RBF (RBFClassifier)
-                RBFClassifier rbf = new RBFClassifier();
+            case 7: // Rede Neural RBF com erro e gradiente calculados em paralelo
+                // Parâmetro opcional 4: centros iniciais (0 = k-means do RBFModel, 1 = k-means++ e mini-lotes).
+                boolean kMeansPlusPlus = tuningParams.length > 3 && tuningParams[3] >= 1;
+                RBFClassifier rbf = modelOption == 7 ? new ParallelRBFClassifier()
+                        : kMeansPlusPlus ? new CenteredRBFClassifier() : new RBFClassifier();
+                if (kMeansPlusPlus) {
+                    ((CenteredRBFClassifier) rbf).setCenterInitializer(new KMeansCenterInitializer());
+                }
                 // Define o número de neurônios ocultos (assumindo que o número de clusters corresponde aos neurônios ocultos)
                 rbf.setNumFunctions((int) tuningParams[0]);
                 rbf.setSeed((int) tuningParams[1]);
@@ -155,8 +498,9 @@ public class PlantDiseaseClassifier {
                 classifier = rbf;
                 break;
             default:
-                throw new IllegalArgumentException("Opção de modelo inválida. Use 1 a 6.");
+                throw new IllegalArgumentException("Opção de modelo inválida. Use 1 a 7.");
         }
+        return classifier;
     }
 
     /**
@@ -171,9 +515,24 @@ public class PlantDiseaseClassifier {
         if (train == null) {
             throw new IllegalStateException("Dados de treinamento não preparados. Chame trainTestSplit() se for usar Train/Test.");
         }
-        classifier.buildClassifier(train);
-        // Imprime os detalhes do modelo treinado (para portfólio)
-        System.out.println("Modelo Treinado:\n" + classifier.toString());
+        Instances trainData = train;
+        if (collapseDuplicates) {
+            PipelineMetrics.Timer collapse = metrics.start("collapse");
+            trainData = DuplicateCollapser.forTraining(classifier, train);
+            collapse.stop(train.numInstances());
+        }
+        PipelineMetrics.Timer timer = metrics.start("train");
+        classifier.buildClassifier(trainData);
+        timer.stop(trainData.numInstances());
+        trained = true;
+        // O BatchScorer pode ter compilado os parâmetros do treino anterior.
+        batchScorer = null;
+        if (printModel) {
+            // Imprime os detalhes do modelo treinado (para portfólio)
+            timer = metrics.start("printModel");
+            System.out.println("Modelo Treinado:\n" + classifier.toString());
+            timer.stop(0);
+        }
     }
 
     /**
@@ -185,8 +544,24 @@ public class PlantDiseaseClassifier {
         if (classifier == null) {
             throw new IllegalStateException("Classificador não configurado ou não treinado.");
         }
-        evaluation = new Evaluation(train);
-        evaluation.evaluateModel(classifier, test);
+        PipelineMetrics.Timer timer = metrics.start("evaluate");
+        if (streaming) {
+            StreamingEvaluation result = new StreamingEvaluation(train, STREAMING_RESERVOIR, 1);
+            result.setPriors(train);
+            for (int i = 0; i < test.numInstances(); i++) {
+                Instance classMissing = (Instance) test.instance(i).copy();
+                classMissing.setDataset(test);
+                classMissing.setClassMissing();
+                result.record(classifier.distributionForInstance(classMissing), test.instance(i));
+            }
+            evaluation = null;
+            streamingEvaluation = result;
+        } else {
+            evaluation = new Evaluation(train);
+            evaluation.evaluateModel(classifier, test);
+            streamingEvaluation = null;
+        }
+        timer.stop(test.numInstances());
     }
 
     /**
@@ -199,8 +574,100 @@ public class PlantDiseaseClassifier {
         if (classifier == null) {
             throw new IllegalStateException("Classificador não configurado ou não treinado.");
         }
-        evaluation = new Evaluation(data);
-        evaluation.crossValidateModel(classifier, data, folds, new Random(1));
+        String key = resultKey(streaming ? "cv-streaming" : "cv", folds);
+        Object cached = cachedResult(key);
+        if (streaming) {
+            StreamingEvaluation result;
+            if (cached instanceof StreamingEvaluation) {
+                result = (StreamingEvaluation) cached;
+            } else {
+                checkCancelled();
+                PipelineMetrics.Timer timer = metrics.start("crossValidate");
+                result = cvEngine.crossValidateStreaming(classifier, data, folds, new Random(1),
+                        STREAMING_RESERVOIR, new ParallelCrossValidator.Progress(progressListener, 0, folds));
+                timer.stop(data.numInstances());
+                storeResult(key, result);
+            }
+            evaluation = null;
+            streamingEvaluation = result;
+        } else {
+            Evaluation result;
+            if (cached instanceof Evaluation) {
+                result = (Evaluation) cached;
+            } else {
+                result = crossValidate(folds, 0, folds);
+                storeResult(key, result);
+            }
+            evaluation = result;
+            streamingEvaluation = null;
+        }
+    }
+
+    /**
+     * Chave do ResultCache para uma validação cruzada da base e do modelo atuais.
+     * O modelo entra pela classe e pelas opções completas do classificador configurado,
+     * além da opção e dos parâmetros. A semente é sempre 1 (new Random(1) em todas as
+     * validações).
+     */
+    private String resultKey(String mode, int folds) {
+        if (resultCache == null || data == null) {
+            return null;
+        }
+        if (dataDigest == null) {
+            PipelineMetrics.Timer timer = metrics.start("dataDigest");
+            dataDigest = ResultCache.digest(data);
+            timer.stop(data.numInstances());
+        }
+        String options = classifier instanceof OptionHandler
+                ? Utils.joinOptions(((OptionHandler) classifier).getOptions()) : "";
+        return ResultCache.key("version=" + RESULT_VERSION, dataDigest, preprocessingKey(),
+                String.valueOf(modelOption), Arrays.toString(tuningParams),
+                classifier.getClass().getName(), options, "collapse=" + collapseDuplicates,
+                "select=" + featureSelection, mode,
+                "folds=" + folds, "seed=1");
+    }
+
+    private Object cachedResult(String key) {
+        ResultCache cache = resultCache;
+        if (key == null || cache == null) {
+            return null;
+        }
+        PipelineMetrics.Timer timer = metrics.start("resultCache");
+        Object cached = cache.get(key);
+        timer.stop(cached == null ? 0 : 1);
+        return cached;
+    }
+
+    private void storeResult(String key, Serializable result) {
+        ResultCache cache = resultCache;
+        if (key != null && cache != null) {
+            cache.put(key, result);
+        }
+    }
+
+    /**
+     * Validação cruzada com os folds treinados em paralelo (ParallelCrossValidator),
+     * com o mesmo Random(1) e a mesma estratificação de Evaluation.crossValidateModel.
+     *
+     * @param folds número de folds.
+     * @param progressOffset passos já concluídos antes desta validação.
+     * @param progressTotal total de passos reportados ao ouvinte.
+     * @return avaliação acumulada de todos os folds.
+     * @throws Exception se ocorrer erro ou se o job for cancelado.
+     */
+    private Evaluation crossValidate(int folds, int progressOffset, int progressTotal) throws Exception {
+        checkCancelled();
+        PipelineMetrics.Timer timer = metrics.start("crossValidate");
+        Evaluation result = cvEngine.crossValidate(classifier, data, folds, new Random(1),
+                new ParallelCrossValidator.Progress(progressListener, progressOffset, progressTotal));
+        timer.stop(data.numInstances());
+        return result;
+    }
+
+    private void checkCancelled() throws InterruptedException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Execução cancelada.");
+        }
     }
 
     /**
@@ -221,9 +688,10 @@ public class PlantDiseaseClassifier {
         int worstK = -1;
         double totalAcc = 0;
         int count = 0;
-        for (int k : foldsArray) {
-            Evaluation eval = new Evaluation(data);
-            eval.crossValidateModel(classifier, data, k, new Random(1));
+        Evaluation[] evaluations = evaluateSweepCV(foldsArray);
+        for (int idx = 0; idx < foldsArray.length; idx++) {
+            int k = foldsArray[idx];
+            Evaluation eval = evaluations[idx];
             double acc = eval.pctCorrect();
             double avgPrec = 0;
             double avgRec = 0;
@@ -257,6 +725,285 @@ public class PlantDiseaseClassifier {
         return sb.toString();
     }
 
+    /**
+     * Validação cruzada para vários valores de k, com todos os (k, fold) treinados
+     * juntos no pool. Cada k usa new Random(1), como evaluateModelCV.
+     *
+     * @param foldsArray valores de k.
+     * @return uma avaliação por k, na ordem de foldsArray.
+     * @throws Exception se ocorrer erro ou se o job for cancelado.
+     */
+    public Evaluation[] evaluateSweepCV(int[] foldsArray) throws Exception {
+        if (classifier == null) {
+            throw new IllegalStateException("Classificador não configurado ou não treinado.");
+        }
+        int totalFolds = 0;
+        for (int k : foldsArray) {
+            totalFolds += k;
+        }
+        // Valores de k já no ResultCache não são retreinados; o resto vai junto no pool.
+        Evaluation[] evaluations = new Evaluation[foldsArray.length];
+        String[] keys = new String[foldsArray.length];
+        int missing = 0;
+        for (int i = 0; i < foldsArray.length; i++) {
+            keys[i] = resultKey("cv", foldsArray[i]);
+            Object cached = cachedResult(keys[i]);
+            if (cached instanceof Evaluation) {
+                evaluations[i] = (Evaluation) cached;
+            } else {
+                missing++;
+            }
+        }
+        if (missing == 0) {
+            return evaluations;
+        }
+        int[] pending = new int[missing];
+        int next = 0;
+        int pendingFolds = 0;
+        for (int i = 0; i < foldsArray.length; i++) {
+            if (evaluations[i] == null) {
+                pending[next++] = foldsArray[i];
+                pendingFolds += foldsArray[i];
+            }
+        }
+        checkCancelled();
+        PipelineMetrics.Timer timer = metrics.start("cvSweep");
+        Evaluation[] computed = cvEngine.crossValidateSweep(classifier, data, pending, 1,
+                new ParallelCrossValidator.Progress(progressListener, totalFolds - pendingFolds, totalFolds));
+        timer.stop(data.numInstances());
+        next = 0;
+        for (int i = 0; i < foldsArray.length; i++) {
+            if (evaluations[i] == null) {
+                evaluations[i] = computed[next++];
+                storeResult(keys[i], evaluations[i]);
+            }
+        }
+        return evaluations;
+    }
+
+    /**
+     * Busca de hiperparâmetros (successive halving em paralelo) sobre a base carregada.
+     * Ao final o melhor candidato fica configurado como classificador atual e sua
+     * validação cruzada completa fica em getEvaluation().
+     *
+     * @param candidates candidatos (ver HyperparameterSearch.SearchSpace).
+     * @param folds número de folds da validação cruzada completa.
+     * @return candidatos ordenados do melhor para o pior.
+     * @throws Exception se ocorrer erro ou se o job for cancelado.
+     */
+    public List<HyperparameterSearch.Candidate> searchHyperparameters(List<HyperparameterSearch.Candidate> candidates,
+                                                                      int folds) throws Exception {
+        if (data == null) {
+            throw new IllegalStateException("Dados não carregados. Chame loadData() primeiro.");
+        }
+        checkCancelled();
+        HyperparameterSearch search = new HyperparameterSearch(cvEngine);
+        search.setFolds(folds);
+        PipelineMetrics.Timer timer = metrics.start("search");
+        List<HyperparameterSearch.Candidate> leaderboard = search.run(data, candidates, progressListener);
+        timer.stop(data.numInstances());
+        HyperparameterSearch.Candidate best = leaderboard.get(0);
+        setClassifier(best.getModelOption(), best.getParams());
+        evaluation = best.getEvaluation();
+        streamingEvaluation = null;
+        return leaderboard;
+    }
+
+    /**
+     * Acrescenta observações rotuladas novas ao modelo treinado, sem reler a base nem
+     * refazer o pré-processamento (ver IncrementalUpdater):
+     *
+     * - faixas do Normalize e pesos do ClassBalancer são atualizados na base, no treino
+     *   e no teste, como se as linhas estivessem no arquivo original;
+     * - as observações entram na base e no conjunto de treino;
+     * - o modelo é atualizado com updateClassifier (IBk e outros UpdateableClassifier)
+     *   quando as faixas não mudam e os fatores de balanceamento variam no máximo
+     *   IncrementalUpdater.BALANCE_TOLERANCE; a RBF paralela (opção 7) retoma a otimização
+     *   dos parâmetros atuais; os demais modelos são retreinados na base atualizada.
+     *
+     * A avaliação anterior (getEvaluation) não é recalculada.
+     *
+     * @param observations observações brutas (não normalizadas), com a classe preenchida;
+     *        atributos e rótulos são associados pelo nome.
+     * @return como o modelo absorveu as observações.
+     * @throws Exception se o modelo não estiver treinado sobre uma base carregada.
+     */
+    public IncrementalUpdater.Mode updateModel(Instances observations) throws Exception {
+        if (!trained || data == null || classWeightSums == null) {
+            throw new IllegalStateException("Atualização requer um modelo treinado com loadData() e trainClassifier().");
+        }
+        if (preprocessing.getSelected() != null) {
+            throw new IllegalStateException("Atualização incremental não suportada com seleção de atributos; recarregue a base.");
+        }
+        PipelineMetrics.Timer timer = metrics.start("update");
+        double[][] rows = IncrementalUpdater.toModelRows(preprocessing.getHeader(), observations);
+        double[] weights = new double[rows.length];
+        double[] sums = classWeightSums.clone();
+        int classIndex = preprocessing.getHeader().classIndex();
+        for (int i = 0; i < rows.length; i++) {
+            weights[i] = observations.instance(i).weight();
+            if (!Double.isNaN(rows[i][classIndex])) {
+                sums[(int) rows[i][classIndex]] += weights[i];
+            }
+        }
+        PreprocessingModel updated = IncrementalUpdater.extendRanges(preprocessing, rows);
+        double[] oldFactors = IncrementalUpdater.balanceFactors(classWeightSums);
+        double[] newFactors = IncrementalUpdater.balanceFactors(sums);
+
+        if (!ownsData) {
+            // A base do DatasetCache é compartilhada: a partir daqui trabalha numa cópia.
+            data = new Instances(data);
+            ownsData = true;
+        }
+        for (Instances set : new Instances[]{data, train, test}) {
+            if (set == null) {
+                continue;
+            }
+            if (updated != preprocessing) {
+                IncrementalUpdater.renormalize(set, preprocessing, updated);
+            }
+            IncrementalUpdater.rebalance(set, oldFactors, newFactors);
+        }
+        Instances added = IncrementalUpdater.prepare(rows, weights, updated, newFactors);
+        for (int i = 0; i < added.numInstances(); i++) {
+            data.add(added.instance(i));
+            if (train != null) {
+                train.add(added.instance(i));
+            }
+        }
+        dataDigest = null;
+        boolean sameFeatures = updated == preprocessing;
+        preprocessing = updated;
+        classWeightSums = sums;
+        batchScorer = null;
+
+        IncrementalUpdater.Mode mode;
+        Instances trainingSet = train != null ? train : data;
+        if (classifier instanceof UpdateableClassifier && sameFeatures
+                && IncrementalUpdater.maxFactorChange(oldFactors, newFactors) <= IncrementalUpdater.BALANCE_TOLERANCE) {
+            for (int i = 0; i < added.numInstances(); i++) {
+                ((UpdateableClassifier) classifier).updateClassifier(added.instance(i));
+            }
+            mode = IncrementalUpdater.Mode.INCREMENTAL;
+        } else if (classifier instanceof ParallelRBFClassifier) {
+            ParallelRBFClassifier rbf = (ParallelRBFClassifier) classifier;
+            rbf.setWarmStart(true);
+            try {
+                rbf.buildClassifier(trainingSet);
+            } finally {
+                rbf.setWarmStart(false);
+            }
+            mode = IncrementalUpdater.Mode.WARM_START;
+        } else {
+            classifier.buildClassifier(trainingSet);
+            mode = IncrementalUpdater.Mode.REBUILD;
+        }
+        timer.stop(added.numInstances());
+        return mode;
+    }
+
+    /**
+     * Retorna o estado do pré-processamento da base carregada ou do modelo carregado.
+     *
+     * @return faixas de normalização e cabeçalho, ou null se nada foi carregado.
+     */
+    public PreprocessingModel getPreprocessing() {
+        return preprocessing;
+    }
+
+    /**
+     * Salva o classificador treinado e o pré-processamento (ver ModelStore).
+     *
+     * @param filePath arquivo de destino.
+     * @throws Exception se o classificador não foi treinado ou a gravação falhar.
+     */
+    public void saveModel(String filePath) throws Exception {
+        if (!trained || preprocessing == null) {
+            throw new IllegalStateException("Classificador não treinado. Chame trainClassifier() primeiro.");
+        }
+        PipelineMetrics.Timer timer = metrics.start("saveModel");
+        ModelStore.save(new File(filePath), new StoredModel(modelOption, tuningParams, preprocessing,
+                classifier, System.currentTimeMillis()));
+        timer.stop(0);
+    }
+
+    /**
+     * Carrega um modelo salvo, sem retreinar. Depois disso classifyRaw e
+     * classifyInstance usam o modelo e a normalização salvos.
+     *
+     * @param filePath arquivo do modelo.
+     * @throws Exception se o arquivo for inválido.
+     */
+    public void loadModel(String filePath) throws Exception {
+        PipelineMetrics.Timer timer = metrics.start("loadModel");
+        StoredModel model = ModelStore.load(new File(filePath));
+        timer.stop(0);
+        classifier = model.getClassifier();
+        preprocessing = model.getPreprocessing();
+        modelOption = model.getModelOption();
+        tuningParams = model.getTuningParams();
+        trained = true;
+        // Sem a base de treino não há como manter pesos e faixas: updateModel exige loadData.
+        classWeightSums = null;
+    }
+
+    /**
+     * Classifica uma amostra com valores brutos (não normalizados), aplicando a
+     * normalização ajustada no treino.
+     *
+     * @param rawValues um valor por atributo, na ordem da base (a classe pode ser NaN).
+     * @return distribuição de probabilidade das classes.
+     * @throws Exception se o modelo não estiver pronto.
+     */
+    public double[] classifyRaw(double[] rawValues) throws Exception {
+        if (!trained || preprocessing == null) {
+            throw new IllegalStateException("Classificador não configurado ou não treinado.");
+        }
+        return classifier.distributionForInstance(preprocessing.toInstance(rawValues));
+    }
+
+    /**
+     * Classifica um lote de amostras brutas (não normalizadas) sem criar objetos por
+     * linha: aplica a normalização do treino e grava os resultados nos arrays dados.
+     *
+     * @param rows uma linha por amostra, um valor por atributo (a classe é ignorada).
+     * @param outClasses recebe a classe prevista de cada linha (-1 se indefinida); pode ser null.
+     * @param outDist recebe a distribuição de cada linha; pode ser null.
+     * @throws Exception se o modelo não estiver pronto ou a classificação falhar.
+     */
+    public void classifyBatch(double[][] rows, int[] outClasses, double[][] outDist) throws Exception {
+        PipelineMetrics.Timer timer = metrics.start("classifyBatch");
+        batchScorer().score(rows, outClasses, outDist);
+        timer.stop(rows.length);
+    }
+
+    /**
+     * Classifica um bloco em colunas (ex.: levantamento lido com ColumnarCsvReader).
+     * As colunas são associadas aos atributos do modelo pelo nome.
+     *
+     * @param block bloco em colunas com valores brutos.
+     * @param outClasses classes previstas (pode ser null).
+     * @param outDist distribuições (pode ser null).
+     * @throws Exception se o modelo não estiver pronto ou a classificação falhar.
+     */
+    public void classifyBatch(ColumnarDataset block, int[] outClasses, double[][] outDist) throws Exception {
+        PipelineMetrics.Timer timer = metrics.start("classifyBatch");
+        batchScorer().score(block, outClasses, outDist);
+        timer.stop(block.numRows());
+    }
+
+    private BatchScorer batchScorer() {
+        if (!trained || preprocessing == null) {
+            throw new IllegalStateException("Classificador não configurado ou não treinado.");
+        }
+        BatchScorer scorer = batchScorer;
+        if (scorer == null || !scorer.uses(classifier, preprocessing)) {
+            scorer = new BatchScorer(classifier, preprocessing);
+            batchScorer = scorer;
+        }
+        return scorer;
+    }
+
     /**
      * Retorna o objeto Evaluation com os resultados.
      *
@@ -266,6 +1013,35 @@ public class PlantDiseaseClassifier {
         return evaluation;
     }
 
+    /**
+     * @return resultado da última avaliação em streaming, ou null.
+     */
+    public StreamingEvaluation getStreamingEvaluation() {
+        return streamingEvaluation;
+    }
+
+    /**
+     * Resumo, detalhes por classe e matriz de confusão da última avaliação, seja qual
+     * for o modo.
+     *
+     * @param title título do resumo.
+     * @return texto, ou null se ainda não houve avaliação.
+     * @throws Exception se a formatação falhar.
+     */
+    public String evaluationText(String title) throws Exception {
+        Evaluation eval = evaluation;
+        if (eval != null) {
+            return eval.toSummaryString(title, true) + "\n" + eval.toClassDetailsString()
+                    + "\n" + eval.toMatrixString();
+        }
+        StreamingEvaluation stream = streamingEvaluation;
+        if (stream != null) {
+            return stream.toSummaryString(title) + "\n" + stream.toClassDetailsString()
+                    + "\n" + stream.toMatrixString();
+        }
+        return null;
+    }
+
     /**
      * Classifica uma instância.
      *
@@ -0,0 +1,53 @@
+package com.plantdisease.classification;
+
+import weka.core.Instances;
+
+/**
+ * Base pré-processada junto com o estado do pré-processamento que a produziu.
+ */
+public class PreparedDataset {
+
+    private final Instances data;
+    private final PreprocessingModel preprocessing;
+    private final double[] classWeightSums;
+
+    /**
+     * @param data base pré-processada.
+     * @param preprocessing estado ajustado do pré-processamento.
+     * @param classWeightSums soma dos pesos por classe antes do balanceamento.
+     */
+    public PreparedDataset(Instances data, PreprocessingModel preprocessing, double[] classWeightSums) {
+        this.data = data;
+        this.preprocessing = preprocessing;
+        this.classWeightSums = classWeightSums.clone();
+    }
+
+    /**
+     * Cópia rasa da base: a lista de instâncias é nova e os valores só são copiados
+     * quando alterados (DenseInstance), então mudanças na cópia não chegam ao
+     * DatasetCache.
+     *
+     * @return base pré-processada.
+     */
+    public Instances getData() {
+        return new Instances(data);
+    }
+
+    /**
+     * @return a própria base, compartilhada pelo DatasetCache; somente leitura.
+     */
+    Instances sharedData() {
+        return data;
+    }
+
+    public PreprocessingModel getPreprocessing() {
+        return preprocessing;
+    }
+
+    /**
+     * @return soma dos pesos por classe antes do ClassBalancer (base da atualização incremental).
+     */
+    public double[] getClassWeightSums() {
+        return classWeightSums.clone();
+    }
+}
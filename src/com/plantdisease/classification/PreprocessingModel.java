@@ -0,0 +1,252 @@
+package com.plantdisease.classification;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.filters.unsupervised.attribute.Normalize;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Estado ajustado do pré-processamento: cabeçalho da base, faixas do Normalize e,
+ * opcionalmente, os atributos mantidos pela seleção (FeatureSelector).
+ *
+ * Permite aplicar a mesma normalização do treino a amostras novas (valores brutos),
+ * inclusive depois de carregar um modelo salvo. O ClassBalancer só altera pesos de
+ * treino e não tem efeito na classificação, por isso não é guardado.
+ *
+ * As amostras chegam sempre com todos os atributos de getHeader(); com seleção, o
+ * classificador é treinado e consultado só com as colunas mantidas, no cabeçalho de
+ * getModelHeader() (transform, toInstance e select fazem a redução).
+ */
+public class PreprocessingModel implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Instances header;
+    private final double[] min;
+    private final double[] max;
+    private final double scale;
+    private final double translation;
+    // Índices mantidos (crescentes, com a classe), ou null sem seleção.
+    private final int[] selected;
+    private final Instances modelHeader;
+
+    /**
+     * @param header cabeçalho (sem instâncias) com o atributo de classe definido.
+     * @param min mínimos por atributo (NaN onde não há normalização).
+     * @param max máximos por atributo.
+     * @param scale fator de escala do Normalize.
+     * @param translation translação do Normalize.
+     */
+    public PreprocessingModel(Instances header, double[] min, double[] max, double scale, double translation) {
+        if (min.length != header.numAttributes() || max.length != header.numAttributes()) {
+            throw new IllegalArgumentException("Faixas de normalização incompatíveis com o cabeçalho.");
+        }
+        this.header = new Instances(header, 0);
+        this.min = min.clone();
+        this.max = max.clone();
+        this.scale = scale;
+        this.translation = translation;
+        this.selected = null;
+        this.modelHeader = null;
+    }
+
+    private PreprocessingModel(PreprocessingModel base, int[] selected) {
+        this.header = base.header;
+        this.min = base.min;
+        this.max = base.max;
+        this.scale = base.scale;
+        this.translation = base.translation;
+        this.selected = selected.clone();
+        this.modelHeader = selectHeader(base.header, this.selected);
+    }
+
+    /**
+     * Mesmo pré-processamento, mantendo só alguns atributos.
+     *
+     * @param selected índices mantidos, em ordem crescente e incluindo a classe.
+     * @return novo modelo com a seleção.
+     */
+    public PreprocessingModel withSelection(int[] selected) {
+        int previous = -1;
+        boolean hasClass = false;
+        for (int j : selected) {
+            if (j <= previous || j >= header.numAttributes()) {
+                throw new IllegalArgumentException("Seleção de atributos inválida.");
+            }
+            hasClass |= j == header.classIndex();
+            previous = j;
+        }
+        if (!hasClass) {
+            throw new IllegalArgumentException("A seleção de atributos deve incluir a classe.");
+        }
+        return new PreprocessingModel(this, selected);
+    }
+
+    /**
+     * @return mesmo pré-processamento com todos os atributos (o próprio modelo se não
+     *         houver seleção).
+     */
+    public PreprocessingModel withoutSelection() {
+        return selected == null ? this : new PreprocessingModel(header, min, max, scale, translation);
+    }
+
+    // Cabeçalho só com os atributos selecionados, recriados como em ModelStore.readHeader.
+    static Instances selectHeader(Instances header, int[] selected) {
+        ArrayList<Attribute> attributes = new ArrayList<>(selected.length);
+        int classIndex = -1;
+        for (int k = 0; k < selected.length; k++) {
+            Attribute attribute = header.attribute(selected[k]);
+            if (attribute.isNominal()) {
+                ArrayList<String> values = new ArrayList<>(attribute.numValues());
+                for (int v = 0; v < attribute.numValues(); v++) {
+                    values.add(attribute.value(v));
+                }
+                attributes.add(new Attribute(attribute.name(), values));
+            } else {
+                attributes.add(new Attribute(attribute.name()));
+            }
+            if (selected[k] == header.classIndex()) {
+                classIndex = k;
+            }
+        }
+        Instances result = new Instances(header.relationName(), attributes, 0);
+        result.setClassIndex(classIndex);
+        return result;
+    }
+
+    /**
+     * Captura o estado de um Normalize já aplicado (depois de Filter.useFilter).
+     *
+     * @param normalize filtro ajustado.
+     * @param header cabeçalho da base.
+     * @return modelo de pré-processamento.
+     */
+    public static PreprocessingModel fromNormalize(Normalize normalize, Instances header) {
+        return new PreprocessingModel(header, normalize.getMinArray(), normalize.getMaxArray(),
+                normalize.getScale(), normalize.getTranslation());
+    }
+
+    /**
+     * Aplica a normalização do treino, com a mesma regra do Normalize: só atributos
+     * numéricos fora a classe; atributo constante no treino vira 0; ausentes continuam
+     * ausentes. Demais valores são copiados.
+     *
+     * @param raw valores brutos, um por atributo (na ordem do cabeçalho).
+     * @param out destino (pode ser o próprio raw).
+     */
+    public void normalize(double[] raw, double[] out) {
+        for (int j = 0; j < min.length; j++) {
+            out[j] = normalizeValue(j, raw[j]);
+        }
+    }
+
+    /**
+     * Normaliza e reduz às colunas selecionadas (sem seleção, igual a normalize).
+     *
+     * @param raw valores brutos, um por atributo de getHeader().
+     * @param out destino, um valor por atributo de getModelHeader() (não pode ser raw
+     *        quando há seleção).
+     */
+    public void transform(double[] raw, double[] out) {
+        if (selected == null) {
+            normalize(raw, out);
+            return;
+        }
+        for (int k = 0; k < selected.length; k++) {
+            out[k] = normalizeValue(selected[k], raw[selected[k]]);
+        }
+    }
+
+    private double normalizeValue(int j, double value) {
+        if (j == header.classIndex() || Double.isNaN(value) || !header.attribute(j).isNumeric()) {
+            return value;
+        } else if (Double.isNaN(min[j]) || max[j] == min[j]) {
+            return 0;
+        }
+        return (value - min[j]) / (max[j] - min[j]) * scale + translation;
+    }
+
+    /**
+     * Reduz uma base já normalizada (todos os atributos de getHeader()) às colunas
+     * selecionadas, mantendo os pesos. Sem seleção devolve a própria base.
+     *
+     * @param data base normalizada.
+     * @return base no cabeçalho de getModelHeader().
+     */
+    public Instances select(Instances data) {
+        if (selected == null) {
+            return data;
+        }
+        Instances result = new Instances(modelHeader, data.numInstances());
+        for (int i = 0; i < data.numInstances(); i++) {
+            Instance instance = data.instance(i);
+            double[] values = new double[selected.length];
+            for (int k = 0; k < selected.length; k++) {
+                values[k] = instance.value(selected[k]);
+            }
+            result.add(new DenseInstance(instance.weight(), values));
+        }
+        return result;
+    }
+
+    /**
+     * Cria uma instância normalizada, ligada ao cabeçalho do modelo, a partir de
+     * valores brutos.
+     *
+     * @param raw valores brutos (o valor da classe pode ser NaN).
+     * @return instância pronta para o classificador.
+     */
+    public Instance toInstance(double[] raw) {
+        if (raw.length != min.length) {
+            throw new IllegalArgumentException("Esperados " + min.length + " valores, recebidos " + raw.length + ".");
+        }
+        Instances target = getModelHeader();
+        double[] values = new double[target.numAttributes()];
+        transform(raw, values);
+        Instance instance = new DenseInstance(1.0, values);
+        instance.setDataset(target);
+        return instance;
+    }
+
+    /**
+     * @return cabeçalho dos valores brutos (sem instâncias). Não altere.
+     */
+    public Instances getHeader() {
+        return header;
+    }
+
+    /**
+     * @return cabeçalho visto pelo classificador: getHeader() reduzido à seleção, ou o
+     *         próprio getHeader() sem seleção. Não altere.
+     */
+    public Instances getModelHeader() {
+        return selected == null ? header : modelHeader;
+    }
+
+    /**
+     * @return índices mantidos pela seleção, ou null se todos os atributos são usados.
+     */
+    public int[] getSelected() {
+        return selected == null ? null : selected.clone();
+    }
+
+    public double[] getMin() {
+        return min.clone();
+    }
+
+    public double[] getMax() {
+        return max.clone();
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    public double getTranslation() {
+        return translation;
+    }
+}
@@ -0,0 +1,18 @@
+package com.plantdisease.classification;
+
+/**
+ * Recebe o progresso das etapas longas do pipeline (ex.: folds da validação cruzada).
+ * As chamadas acontecem na thread de trabalho; quem atualiza a interface deve
+ * repassar para a EDT.
+ */
+public interface ProgressListener {
+
+    /**
+     * Notifica o avanço de uma tarefa.
+     *
+     * @param completed número de passos concluídos.
+     * @param total número total de passos.
+     * @param message descrição do passo concluído.
+     */
+    void onProgress(int completed, int total, String message);
+}
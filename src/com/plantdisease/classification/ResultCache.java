@@ -0,0 +1,258 @@
+package com.plantdisease.classification;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cache em disco de resultados de avaliação (Evaluation, StreamingEvaluation).
+ *
+ * Cada resultado é gravado serializado num arquivo cujo nome é o SHA-256 da descrição
+ * do experimento: versão dos resultados, conteúdo da base já pré-processada (digest),
+ * configuração de pré-processamento, modelo com as opções completas do classificador,
+ * parâmetros, número de folds, semente e modo de avaliação.
+ * Como a chave depende só do conteúdo, um experimento repetido, inclusive depois de
+ * reiniciar a aplicação ou numa varredura noturna, é lido do disco em vez de
+ * recalculado.
+ *
+ * O total gravado é limitado por um orçamento; ao passar dele os arquivos acessados há
+ * mais tempo (data de modificação, atualizada a cada acerto) são apagados. Um arquivo
+ * ilegível (gravação antiga, classe alterada) é tratado como falta e removido.
+ */
+public class ResultCache {
+
+    private static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+    private static final String SUFFIX = ".res";
+    private static final ResultCache SHARED = new ResultCache(
+            new File(System.getProperty("plantdisease.resultcache.dir",
+                    System.getProperty("user.home") + File.separator + ".plantdisease" + File.separator + "results")),
+            Long.getLong("plantdisease.resultcache.mb", DEFAULT_BUDGET_BYTES / (1024 * 1024)) * 1024 * 1024);
+
+    private final File directory;
+    private long budgetBytes;
+
+    /**
+     * @param directory diretório dos resultados (criado na primeira gravação).
+     * @param budgetBytes orçamento em disco, em bytes.
+     */
+    public ResultCache(File directory, long budgetBytes) {
+        this.directory = directory;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Retorna o cache compartilhado do processo, em ~/.plantdisease/results. O diretório
+     * e o orçamento padrão (64 MB) podem ser alterados com -Dplantdisease.resultcache.dir
+     * e -Dplantdisease.resultcache.mb.
+     *
+     * @return cache compartilhado.
+     */
+    public static ResultCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Monta a chave de um experimento.
+     *
+     * @param parts descrição do experimento (digest da base, modelo, parâmetros...).
+     * @return SHA-256 em hexadecimal.
+     */
+    public static String key(String... parts) {
+        MessageDigest sha = sha256();
+        for (String part : parts) {
+            byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+            sha.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+            sha.update(bytes);
+        }
+        return hex(sha.digest());
+    }
+
+    /**
+     * SHA-256 do conteúdo de uma base: atributos (nome, tipo, rótulos), índice da classe,
+     * valores e pesos de cada instância. O nome da relação não entra.
+     *
+     * @param data base de dados.
+     * @return digest em hexadecimal.
+     */
+    public static String digest(Instances data) {
+        MessageDigest sha = sha256();
+        StringBuilder header = new StringBuilder();
+        for (int j = 0; j < data.numAttributes(); j++) {
+            header.append(data.attribute(j).toString()).append('\n');
+        }
+        header.append(data.classIndex());
+        sha.update(header.toString().getBytes(StandardCharsets.UTF_8));
+        ByteBuffer row = ByteBuffer.allocate(8 * (data.numAttributes() + 1));
+        for (int i = 0; i < data.numInstances(); i++) {
+            Instance instance = data.instance(i);
+            row.clear();
+            for (int j = 0; j < data.numAttributes(); j++) {
+                row.putDouble(instance.value(j));
+            }
+            row.putDouble(instance.weight());
+            sha.update(row.array());
+        }
+        return hex(sha.digest());
+    }
+
+    /**
+     * @param key chave do experimento (ver key).
+     * @return resultado gravado, ou null em caso de falta.
+     */
+    public synchronized Object get(String key) {
+        File file = new File(directory, key + SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(Files.readAllBytes(file.toPath())))) {
+            Object value = in.readObject();
+            file.setLastModified(System.currentTimeMillis());
+            return value;
+        } catch (IOException | ClassNotFoundException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Grava um resultado. O arquivo é escrito ao lado e renomeado no final; falhas de
+     * gravação são ignoradas (o cache é só uma otimização).
+     *
+     * @param key chave do experimento (ver key).
+     * @param value resultado serializável.
+     */
+    public synchronized void put(String key, Serializable value) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(value);
+            }
+            if (bytes.size() > budgetBytes || (!directory.isDirectory() && !directory.mkdirs())) {
+                return;
+            }
+            File file = new File(directory, key + SUFFIX);
+            File tmp = new File(directory, key + SUFFIX + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                bytes.writeTo(out);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            evict(file);
+        } catch (IOException e) {
+            System.err.println("Falha ao gravar no cache de resultados: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apaga todos os resultados gravados.
+     */
+    public synchronized void clear() {
+        for (File file : files()) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Altera o orçamento em disco, apagando resultados se necessário.
+     *
+     * @param budgetBytes novo orçamento em bytes.
+     */
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evict(null);
+    }
+
+    /**
+     * @return número de resultados gravados.
+     */
+    public synchronized int size() {
+        return files().size();
+    }
+
+    /**
+     * @return espaço ocupado pelos resultados gravados, em bytes.
+     */
+    public synchronized long usedBytes() {
+        long used = 0;
+        for (File file : files()) {
+            used += file.length();
+        }
+        return used;
+    }
+
+    // Apaga os menos usados até caber no orçamento; o arquivo recém-gravado é mantido.
+    private void evict(File keep) {
+        List<File> files = files();
+        long used = 0;
+        for (File file : files) {
+            used += file.length();
+        }
+        if (used <= budgetBytes) {
+            return;
+        }
+        Collections.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File file : files) {
+            if (used <= budgetBytes) {
+                break;
+            }
+            if (file.equals(keep)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                used -= length;
+            }
+        }
+    }
+
+    private List<File> files() {
+        List<File> result = new ArrayList<>();
+        File[] listed = directory.listFiles();
+        if (listed != null) {
+            for (File file : listed) {
+                if (file.isFile() && file.getName().endsWith(SUFFIX)) {
+                    result.add(file);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível.", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
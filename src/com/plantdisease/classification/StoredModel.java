@@ -0,0 +1,52 @@
+package com.plantdisease.classification;
+
+import weka.classifiers.Classifier;
+
+/**
+ * Modelo treinado pronto para classificar: classificador, pré-processamento e a
+ * configuração (opção de modelo e parâmetros) usada no treino.
+ */
+public class StoredModel {
+
+    private final int modelOption;
+    private final double[] tuningParams;
+    private final PreprocessingModel preprocessing;
+    private final Classifier classifier;
+    private final long createdMillis;
+
+    /**
+     * @param modelOption opção do modelo (1 a 7).
+     * @param tuningParams parâmetros passados a setClassifier.
+     * @param preprocessing estado do pré-processamento do treino.
+     * @param classifier classificador treinado.
+     * @param createdMillis data de criação (System.currentTimeMillis()).
+     */
+    public StoredModel(int modelOption, double[] tuningParams, PreprocessingModel preprocessing,
+                       Classifier classifier, long createdMillis) {
+        this.modelOption = modelOption;
+        this.tuningParams = tuningParams.clone();
+        this.preprocessing = preprocessing;
+        this.classifier = classifier;
+        this.createdMillis = createdMillis;
+    }
+
+    public int getModelOption() {
+        return modelOption;
+    }
+
+    public double[] getTuningParams() {
+        return tuningParams.clone();
+    }
+
+    public PreprocessingModel getPreprocessing() {
+        return preprocessing;
+    }
+
+    public Classifier getClassifier() {
+        return classifier;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+}
@@ -0,0 +1,719 @@
+package com.plantdisease.classification;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Avaliação de classificação nominal em memória constante.
+ *
+ * A Evaluation do Weka guarda um objeto por predição; ao avaliar uma base de teste
+ * grande essa lista domina o heap. Aqui cada predição só atualiza a matriz de confusão
+ * (primitiva) e as somas de que saem acerto, kappa, erros absoluto/quadrático (também
+ * relativos às probabilidades a priori do treino) e cobertura, com as mesmas fórmulas
+ * da Evaluation; os textos de resumo, de detalhes por classe e da matriz seguem o
+ * layout da Evaluation.
+ *
+ * Opcionalmente uma amostra reservatório (algoritmo R) de até reservoirSize predições
+ * é mantida para as áreas ROC e PRC, que precisam das probabilidades ordenadas; com
+ * reservatório 0 essas colunas saem como "?", como na Evaluation sem predições. Se a
+ * amostra contém todas as predições, as áreas são exatas.
+ *
+ * Não é thread-safe: cada thread acumula na sua instância e as parciais são juntadas
+ * com merge, em O(classes² + reservatório).
+ */
+public class StreamingEvaluation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Nível de confiança das estatísticas de cobertura (o mesmo padrão da Evaluation). */
+    public static final double CONFIDENCE_LEVEL = 0.95;
+
+    private final String[] classNames;
+    private final int numClasses;
+    private final double[] classPriors;
+    private double classPriorsSum;
+
+    private final double[][] confusion;
+    private double withClass;
+    private double missingClass;
+    private double unclassified;
+    private double correct;
+    private double incorrect;
+    private double sumAbsErr;
+    private double sumSqrErr;
+    private double sumPriorAbsErr;
+    private double sumPriorSqrErr;
+    private double totalCoverage;
+    private double totalSizeOfRegions;
+
+    private final int reservoirSize;
+    private final Random random;
+    private final List<Prediction> reservoir = new ArrayList<>();
+    private long seen;
+
+    private static final class Prediction implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final int actual;
+        final double weight;
+        final double[] distribution;
+
+        Prediction(int actual, double weight, double[] distribution) {
+            this.actual = actual;
+            this.weight = weight;
+            this.distribution = distribution;
+        }
+    }
+
+    /**
+     * @param header cabeçalho com o atributo de classe (nominal) definido.
+     * @param reservoirSize predições guardadas para ROC/PRC (0 para nenhuma).
+     * @param seed semente da amostragem do reservatório.
+     */
+    public StreamingEvaluation(Instances header, int reservoirSize, long seed) {
+        if (header.classIndex() < 0 || !header.classAttribute().isNominal()) {
+            throw new IllegalArgumentException("A avaliação em streaming requer classe nominal.");
+        }
+        this.numClasses = header.numClasses();
+        this.classNames = new String[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            classNames[c] = header.classAttribute().value(c);
+        }
+        this.classPriors = new double[numClasses];
+        this.confusion = new double[numClasses][numClasses];
+        this.reservoirSize = reservoirSize;
+        this.random = new Random(seed);
+        Arrays.fill(classPriors, 1);
+        this.classPriorsSum = numClasses;
+    }
+
+    /**
+     * Probabilidades a priori a partir do treino, como Evaluation.setPriors: 1 por
+     * classe mais a soma dos pesos de cada classe.
+     *
+     * @param train linhas de treino.
+     */
+    public void setPriors(IndexView train) {
+        Arrays.fill(classPriors, 1);
+        classPriorsSum = numClasses;
+        for (int i = 0; i < train.numInstances(); i++) {
+            Instance instance = train.instance(i);
+            if (!instance.classIsMissing()) {
+                classPriors[(int) instance.classValue()] += instance.weight();
+                classPriorsSum += instance.weight();
+            }
+        }
+    }
+
+    /**
+     * @param train conjunto de treino.
+     */
+    public void setPriors(Instances train) {
+        setPriors(IndexView.all(train));
+    }
+
+    /**
+     * Registra uma predição, como Evaluation.evaluateModelOnceAndRecordPrediction.
+     *
+     * @param distribution distribuição prevista (não é alterada).
+     * @param instance instância com a classe verdadeira.
+     */
+    public void record(double[] distribution, Instance instance) {
+        if (instance.classIsMissing()) {
+            missingClass += instance.weight();
+            return;
+        }
+        record(distribution, (int) instance.classValue(), instance.weight());
+    }
+
+    /**
+     * @param distribution distribuição prevista (não é alterada).
+     * @param actual classe verdadeira.
+     * @param weight peso da instância.
+     */
+    public void record(double[] distribution, int actual, double weight) {
+        int predicted = -1;
+        double best = 0;
+        for (int c = 0; c < numClasses; c++) {
+            if (distribution[c] > best) {
+                predicted = c;
+                best = distribution[c];
+            }
+        }
+        withClass += weight;
+        if (predicted < 0) {
+            unclassified += weight;
+            return;
+        }
+        double absErr = 0;
+        double sqrErr = 0;
+        double priorAbsErr = 0;
+        double priorSqrErr = 0;
+        for (int c = 0; c < numClasses; c++) {
+            double target = c == actual ? 1 : 0;
+            double diff = distribution[c] - target;
+            absErr += Math.abs(diff);
+            sqrErr += diff * diff;
+            diff = classPriors[c] / classPriorsSum - target;
+            priorAbsErr += Math.abs(diff);
+            priorSqrErr += diff * diff;
+        }
+        sumAbsErr += weight * absErr / numClasses;
+        sumSqrErr += weight * sqrErr / numClasses;
+        sumPriorAbsErr += weight * priorAbsErr / numClasses;
+        sumPriorSqrErr += weight * priorSqrErr / numClasses;
+
+        // Cobertura: menor conjunto de classes mais prováveis que soma CONFIDENCE_LEVEL.
+        Integer[] order = sortedClasses(distribution);
+        double sum = 0;
+        double regionSize = 0;
+        for (int k = numClasses - 1; k >= 0 && sum < CONFIDENCE_LEVEL; k--) {
+            sum += distribution[order[k]];
+            regionSize++;
+            if (order[k] == actual) {
+                totalCoverage += weight;
+            }
+        }
+        totalSizeOfRegions += weight * regionSize / numClasses;
+
+        confusion[actual][predicted] += weight;
+        if (predicted == actual) {
+            correct += weight;
+        } else {
+            incorrect += weight;
+        }
+        sample(actual, weight, distribution);
+    }
+
+    /**
+     * Soma outra avaliação parcial nesta. A amostra resultante pondera cada parcial
+     * pelo número de predições que ela viu.
+     *
+     * @param other parcial com o mesmo cabeçalho.
+     */
+    public void merge(StreamingEvaluation other) {
+        if (other.numClasses != numClasses) {
+            throw new IllegalArgumentException("Avaliações com números de classes diferentes.");
+        }
+        for (int i = 0; i < numClasses; i++) {
+            for (int j = 0; j < numClasses; j++) {
+                confusion[i][j] += other.confusion[i][j];
+            }
+        }
+        withClass += other.withClass;
+        missingClass += other.missingClass;
+        unclassified += other.unclassified;
+        correct += other.correct;
+        incorrect += other.incorrect;
+        sumAbsErr += other.sumAbsErr;
+        sumSqrErr += other.sumSqrErr;
+        sumPriorAbsErr += other.sumPriorAbsErr;
+        sumPriorSqrErr += other.sumPriorSqrErr;
+        totalCoverage += other.totalCoverage;
+        totalSizeOfRegions += other.totalSizeOfRegions;
+        mergeReservoir(other);
+    }
+
+    // Algoritmo R; a distribuição só é copiada se entrar na amostra.
+    private void sample(int actual, double weight, double[] distribution) {
+        seen++;
+        if (reservoirSize <= 0) {
+            return;
+        }
+        if (reservoir.size() < reservoirSize) {
+            reservoir.add(new Prediction(actual, weight, distribution.clone()));
+        } else {
+            long slot = (long) (random.nextDouble() * seen);
+            if (slot < reservoirSize) {
+                reservoir.set((int) slot, new Prediction(actual, weight, distribution.clone()));
+            }
+        }
+    }
+
+    private void mergeReservoir(StreamingEvaluation other) {
+        long total = seen + other.seen;
+        if (reservoir.size() + other.reservoir.size() <= reservoirSize) {
+            reservoir.addAll(other.reservoir);
+            seen = total;
+            return;
+        }
+        // Cada item de uma amostra representa seen / tamanho predições da sua parcial.
+        List<Prediction> a = new ArrayList<>(reservoir);
+        List<Prediction> b = new ArrayList<>(other.reservoir);
+        Collections.shuffle(a, random);
+        Collections.shuffle(b, random);
+        double remainingA = seen;
+        double remainingB = other.seen;
+        double stepA = a.isEmpty() ? 0 : (double) seen / a.size();
+        double stepB = b.isEmpty() ? 0 : (double) other.seen / b.size();
+        List<Prediction> merged = new ArrayList<>(reservoirSize);
+        int ia = 0;
+        int ib = 0;
+        while (merged.size() < reservoirSize && (ia < a.size() || ib < b.size())) {
+            boolean fromA = ib >= b.size()
+                    || (ia < a.size() && random.nextDouble() * (remainingA + remainingB) < remainingA);
+            if (fromA) {
+                merged.add(a.get(ia++));
+                remainingA -= stepA;
+            } else {
+                merged.add(b.get(ib++));
+                remainingB -= stepB;
+            }
+        }
+        reservoir.clear();
+        reservoir.addAll(merged);
+        seen = total;
+    }
+
+    // Classes em ordem crescente de probabilidade; empates na ordem dos índices.
+    private Integer[] sortedClasses(final double[] distribution) {
+        Integer[] order = new Integer[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer x, Integer y) {
+                int byValue = Double.compare(distribution[x], distribution[y]);
+                return byValue != 0 ? byValue : Integer.compare(x, y);
+            }
+        });
+        return order;
+    }
+
+    public double numInstances() {
+        return withClass;
+    }
+
+    public double correct() {
+        return correct;
+    }
+
+    public double incorrect() {
+        return incorrect;
+    }
+
+    public double unclassified() {
+        return unclassified;
+    }
+
+    public double pctCorrect() {
+        return 100 * correct / withClass;
+    }
+
+    public double pctIncorrect() {
+        return 100 * incorrect / withClass;
+    }
+
+    public double errorRate() {
+        return incorrect / withClass;
+    }
+
+    /**
+     * @return cópia da matriz de confusão (linha = classe verdadeira).
+     */
+    public double[][] confusionMatrix() {
+        double[][] copy = new double[numClasses][];
+        for (int i = 0; i < numClasses; i++) {
+            copy[i] = confusion[i].clone();
+        }
+        return copy;
+    }
+
+    public double kappa() {
+        double[] sumRows = new double[numClasses];
+        double[] sumColumns = new double[numClasses];
+        double sumOfWeights = 0;
+        for (int i = 0; i < numClasses; i++) {
+            for (int j = 0; j < numClasses; j++) {
+                sumRows[i] += confusion[i][j];
+                sumColumns[j] += confusion[i][j];
+                sumOfWeights += confusion[i][j];
+            }
+        }
+        double agreement = 0;
+        double chanceAgreement = 0;
+        for (int i = 0; i < numClasses; i++) {
+            chanceAgreement += sumRows[i] * sumColumns[i];
+            agreement += confusion[i][i];
+        }
+        chanceAgreement /= sumOfWeights * sumOfWeights;
+        agreement /= sumOfWeights;
+        return chanceAgreement < 1 ? (agreement - chanceAgreement) / (1 - chanceAgreement) : 1;
+    }
+
+    public double meanAbsoluteError() {
+        return sumAbsErr / (withClass - unclassified);
+    }
+
+    public double rootMeanSquaredError() {
+        return Math.sqrt(sumSqrErr / (withClass - unclassified));
+    }
+
+    public double relativeAbsoluteError() {
+        return 100 * meanAbsoluteError() / (sumPriorAbsErr / withClass);
+    }
+
+    public double rootRelativeSquaredError() {
+        return 100 * rootMeanSquaredError() / Math.sqrt(sumPriorSqrErr / withClass);
+    }
+
+    public double coverageOfTestCasesByPredictedRegions() {
+        return 100 * totalCoverage / withClass;
+    }
+
+    public double sizeOfPredictedRegions() {
+        return 100 * totalSizeOfRegions / withClass;
+    }
+
+    public double truePositiveRate(int c) {
+        double total = 0;
+        for (int j = 0; j < numClasses; j++) {
+            total += confusion[c][j];
+        }
+        return total == 0 ? 0 : confusion[c][c] / total;
+    }
+
+    public double recall(int c) {
+        return truePositiveRate(c);
+    }
+
+    public double falsePositiveRate(int c) {
+        double falsePositives = 0;
+        double negatives = 0;
+        for (int i = 0; i < numClasses; i++) {
+            if (i == c) {
+                continue;
+            }
+            falsePositives += confusion[i][c];
+            for (int j = 0; j < numClasses; j++) {
+                negatives += confusion[i][j];
+            }
+        }
+        return negatives == 0 ? 0 : falsePositives / negatives;
+    }
+
+    /**
+     * @return precisão da classe, ou NaN se a classe nunca foi prevista.
+     */
+    public double precision(int c) {
+        double total = 0;
+        for (int i = 0; i < numClasses; i++) {
+            total += confusion[i][c];
+        }
+        return total == 0 ? Double.NaN : confusion[c][c] / total;
+    }
+
+    public double fMeasure(int c) {
+        double precision = precision(c);
+        double recall = recall(c);
+        if (Double.isNaN(precision)) {
+            return Double.NaN;
+        }
+        return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+    }
+
+    public double matthewsCorrelationCoefficient(int c) {
+        double tp = confusion[c][c];
+        double fp = 0;
+        double fn = 0;
+        double total = 0;
+        for (int i = 0; i < numClasses; i++) {
+            for (int j = 0; j < numClasses; j++) {
+                total += confusion[i][j];
+            }
+            if (i != c) {
+                fp += confusion[i][c];
+                fn += confusion[c][i];
+            }
+        }
+        double tn = total - tp - fp - fn;
+        double d = Math.sqrt((tp + fp) * (tp + fn) * (tn + fp) * (tn + fn));
+        return d == 0 ? Double.NaN : (tp * tn - fp * fn) / d;
+    }
+
+    /**
+     * Área sob a curva ROC da classe, calculada sobre o reservatório.
+     *
+     * @return área, ou NaN sem predições guardadas.
+     */
+    public double areaUnderROC(int c) {
+        double[][] curve = curve(c);
+        if (curve == null) {
+            return Double.NaN;
+        }
+        double[] tp = curve[0];
+        double[] fp = curve[1];
+        double positives = tp[tp.length - 1];
+        double negatives = fp[fp.length - 1];
+        if (positives == 0 || negatives == 0) {
+            return Double.NaN;
+        }
+        double area = 0;
+        for (int k = 1; k < tp.length; k++) {
+            area += (fp[k] - fp[k - 1]) * (tp[k] + tp[k - 1]) / 2;
+        }
+        return area / (positives * negatives);
+    }
+
+    /**
+     * Área sob a curva precisão x sensibilidade da classe, calculada sobre o reservatório.
+     *
+     * @return área, ou NaN sem predições guardadas.
+     */
+    public double areaUnderPRC(int c) {
+        double[][] curve = curve(c);
+        if (curve == null) {
+            return Double.NaN;
+        }
+        double[] tp = curve[0];
+        double[] fp = curve[1];
+        double positives = tp[tp.length - 1];
+        if (positives == 0) {
+            return Double.NaN;
+        }
+        double area = 0;
+        double lastRecall = 0;
+        double lastPrecision = 1;
+        for (int k = 1; k < tp.length; k++) {
+            double recall = tp[k] / positives;
+            double precision = tp[k] + fp[k] == 0 ? 1 : tp[k] / (tp[k] + fp[k]);
+            area += (recall - lastRecall) * (precision + lastPrecision) / 2;
+            lastRecall = recall;
+            lastPrecision = precision;
+        }
+        return area;
+    }
+
+    // Verdadeiros e falsos positivos acumulados por limiar, da maior probabilidade para a menor.
+    private double[][] curve(final int c) {
+        if (reservoir.isEmpty()) {
+            return null;
+        }
+        List<Prediction> sorted = new ArrayList<>(reservoir);
+        sorted.sort(new Comparator<Prediction>() {
+            @Override
+            public int compare(Prediction x, Prediction y) {
+                return Double.compare(y.distribution[c], x.distribution[c]);
+            }
+        });
+        double[] tp = new double[sorted.size() + 1];
+        double[] fp = new double[sorted.size() + 1];
+        int points = 1;
+        double truePositives = 0;
+        double falsePositives = 0;
+        for (int k = 0; k < sorted.size(); k++) {
+            Prediction p = sorted.get(k);
+            if (p.actual == c) {
+                truePositives += p.weight;
+            } else {
+                falsePositives += p.weight;
+            }
+            // Probabilidades empatadas formam um único ponto da curva.
+            if (k + 1 == sorted.size() || sorted.get(k + 1).distribution[c] != p.distribution[c]) {
+                tp[points] = truePositives;
+                fp[points] = falsePositives;
+                points++;
+            }
+        }
+        return new double[][]{Arrays.copyOf(tp, points), Arrays.copyOf(fp, points)};
+    }
+
+    private double classCount(int c) {
+        double count = 0;
+        for (int j = 0; j < numClasses; j++) {
+            count += confusion[c][j];
+        }
+        return count;
+    }
+
+    // Média ponderada pelo número de instâncias de cada classe, ignorando classes indefinidas.
+    private double weighted(double[] values) {
+        double total = 0;
+        double weight = 0;
+        for (int c = 0; c < numClasses; c++) {
+            if (!Double.isNaN(values[c])) {
+                total += values[c] * classCount(c);
+                weight += classCount(c);
+            }
+        }
+        return weight == 0 ? Double.NaN : total / weight;
+    }
+
+    public double weightedPrecision() {
+        double[] values = new double[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            values[c] = precision(c);
+        }
+        return weighted(values);
+    }
+
+    public double weightedRecall() {
+        double[] values = new double[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            values[c] = recall(c);
+        }
+        return weighted(values);
+    }
+
+    public double weightedFMeasure() {
+        double[] values = new double[numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            values[c] = fMeasure(c);
+        }
+        return weighted(values);
+    }
+
+    /**
+     * @return número de predições guardadas no reservatório.
+     */
+    public int reservoirCount() {
+        return reservoir.size();
+    }
+
+    /**
+     * Resumo no layout de Evaluation.toSummaryString.
+     *
+     * @param title título.
+     * @return texto.
+     */
+    public String toSummaryString(String title) {
+        StringBuilder text = new StringBuilder(title).append('\n');
+        if (withClass > 0) {
+            text.append("Correctly Classified Instances     ").append(Utils.doubleToString(correct, 12, 4))
+                    .append("     ").append(Utils.doubleToString(pctCorrect(), 12, 4)).append(" %\n");
+            text.append("Incorrectly Classified Instances   ").append(Utils.doubleToString(incorrect, 12, 4))
+                    .append("     ").append(Utils.doubleToString(pctIncorrect(), 12, 4)).append(" %\n");
+            text.append("Kappa statistic                    ").append(Utils.doubleToString(kappa(), 12, 4))
+                    .append('\n');
+            text.append("Mean absolute error                ")
+                    .append(Utils.doubleToString(meanAbsoluteError(), 12, 4)).append('\n');
+            text.append("Root mean squared error            ")
+                    .append(Utils.doubleToString(rootMeanSquaredError(), 12, 4)).append('\n');
+            text.append("Relative absolute error            ")
+                    .append(Utils.doubleToString(relativeAbsoluteError(), 12, 4)).append(" %\n");
+            text.append("Root relative squared error        ")
+                    .append(Utils.doubleToString(rootRelativeSquaredError(), 12, 4)).append(" %\n");
+            String level = Utils.doubleToString(CONFIDENCE_LEVEL, 4, 2);
+            text.append("Coverage of cases (").append(level).append(" level)     ")
+                    .append(Utils.doubleToString(coverageOfTestCasesByPredictedRegions(), 12, 4)).append(" %\n");
+            text.append("Mean rel. region size (").append(level).append(" level) ")
+                    .append(Utils.doubleToString(sizeOfPredictedRegions(), 12, 4)).append(" %\n");
+        }
+        if (unclassified > 0) {
+            text.append("UnClassified Instances             ").append(Utils.doubleToString(unclassified, 12, 4))
+                    .append("     ").append(Utils.doubleToString(100 * unclassified / withClass, 12, 4))
+                    .append(" %\n");
+        }
+        text.append("Total Number of Instances          ").append(Utils.doubleToString(withClass, 12, 4))
+                .append('\n');
+        if (missingClass > 0) {
+            text.append("Ignored Class Unknown Instances            ")
+                    .append(Utils.doubleToString(missingClass, 12, 4)).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Métricas por classe no layout de Evaluation.toClassDetailsString.
+     *
+     * @return texto.
+     */
+    public String toClassDetailsString() {
+        StringBuilder text = new StringBuilder("=== Detailed Accuracy By Class ===\n\n");
+        text.append("                 TP Rate  FP Rate  Precision  Recall   F-Measure  MCC      ROC Area  PRC Area  Class\n");
+        double[][] columns = new double[8][numClasses];
+        for (int c = 0; c < numClasses; c++) {
+            columns[0][c] = truePositiveRate(c);
+            columns[1][c] = falsePositiveRate(c);
+            columns[2][c] = precision(c);
+            columns[3][c] = recall(c);
+            columns[4][c] = fMeasure(c);
+            columns[5][c] = matthewsCorrelationCoefficient(c);
+            columns[6][c] = areaUnderROC(c);
+            columns[7][c] = areaUnderPRC(c);
+            text.append("                 ");
+            for (double[] column : columns) {
+                appendCell(text, column[c]);
+            }
+            text.append(classNames[c]).append('\n');
+        }
+        text.append("Weighted Avg.    ");
+        for (double[] column : columns) {
+            appendCell(text, weighted(column));
+        }
+        return text.append('\n').toString();
+    }
+
+    private static void appendCell(StringBuilder text, double value) {
+        String cell = Double.isNaN(value) ? "?" : Utils.doubleToString(value, 3);
+        text.append(cell);
+        for (int k = cell.length(); k < 9; k++) {
+            text.append(' ');
+        }
+        text.append(' ');
+    }
+
+    /**
+     * Matriz de confusão no layout de Evaluation.toMatrixString.
+     *
+     * @return texto.
+     */
+    public String toMatrixString() {
+        char[] idChars = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+        boolean fractional = false;
+        double maxValue = 0;
+        for (double[] row : confusion) {
+            for (double value : row) {
+                double current = value < 0 ? value * -10 : value;
+                maxValue = Math.max(maxValue, current);
+                double fraction = current - Math.rint(current);
+                if (!fractional && Math.log(fraction) / Math.log(10) >= -2) {
+                    fractional = true;
+                }
+            }
+        }
+        int idWidth = 1 + Math.max((int) (Math.log(maxValue) / Math.log(10) + (fractional ? 3 : 0)),
+                (int) (Math.log(numClasses) / Math.log(idChars.length)));
+        StringBuilder text = new StringBuilder("=== Confusion Matrix ===\n\n");
+        for (int i = 0; i < numClasses; i++) {
+            text.append(' ').append(shortId(i, idChars, fractional ? idWidth - 3 : idWidth));
+            if (fractional) {
+                text.append("   ");
+            }
+        }
+        text.append("   <-- classified as\n");
+        for (int i = 0; i < numClasses; i++) {
+            for (int j = 0; j < numClasses; j++) {
+                text.append(' ').append(Utils.doubleToString(confusion[i][j], idWidth, fractional ? 2 : 0));
+            }
+            text.append(" | ").append(shortId(i, idChars, idWidth)).append(" = ").append(classNames[i]).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String shortId(int num, char[] idChars, int width) {
+        char[] id = new char[Math.max(width, 1)];
+        int i;
+        for (i = id.length - 1; i >= 0; i--) {
+            id[i] = idChars[num % idChars.length];
+            num = num / idChars.length - 1;
+            if (num < 0) {
+                break;
+            }
+        }
+        for (i--; i >= 0; i--) {
+            id[i] = ' ';
+        }
+        return new String(id);
+    }
+}